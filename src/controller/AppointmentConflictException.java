@@ -0,0 +1,29 @@
+package controller;
+
+import model.Appointment;
+
+import java.util.List;
+
+/**
+ * Thrown when an appointment would double-book its clinician or patient.
+ */
+public class AppointmentConflictException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient List<Appointment> conflicts;
+
+    public AppointmentConflictException(List<Appointment> conflicts) {
+        super("Appointment clashes with " + conflicts.size() + " existing appointment(s)");
+        this.conflicts = conflicts;
+    }
+
+    /**
+     * Gets the existing appointments that clash.
+     *
+     * @return Clashing appointments
+     */
+    public List<Appointment> getConflicts() {
+        return conflicts;
+    }
+}
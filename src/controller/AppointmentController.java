@@ -1,17 +1,28 @@
 package controller;
 
 import model.Appointment;
-import util.CSVReader;
-import util.CSVWriter;
+import model.AppointmentSlotIndex;
+import model.AppointmentStatus;
+import model.Clinician;
+import model.Facility;
+import model.LetterTemplates;
+import model.Patient;
+import repository.EntityMapping;
+import repository.Repository;
+import repository.RepositoryFactory;
+import util.BinarySnapshot;
+import util.BinarySnapshot.ColumnType;
 import util.FilePathManager;
+import util.IdSequence;
 
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
  * Controller class for managing Appointment data.
@@ -19,7 +30,10 @@ import java.util.stream.Collectors;
  */
 public class AppointmentController {
 
-    private List<Appointment> appointments;
+    private Repository<Appointment> repository;
+    private final IdSequence idSequence = new IdSequence("appointments", "A");
+    private final AppointmentSlotIndex clinicianSlots = new AppointmentSlotIndex(Appointment::getClinicianId);
+    private final AppointmentSlotIndex patientSlots = new AppointmentSlotIndex(Appointment::getPatientId);
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
     private static final String[] CSV_HEADER = {
@@ -27,71 +41,67 @@ public class AppointmentController {
             "appointment_date", "appointment_time", "duration_minutes", "appointment_type",
             "status", "reason_for_visit", "notes", "created_date", "last_modified"
     };
+    private static final ColumnType[] BINARY_COLUMNS = {
+            ColumnType.STRING, ColumnType.STRING, ColumnType.STRING, ColumnType.STRING,
+            ColumnType.DATE, ColumnType.TIME, ColumnType.INT, ColumnType.STRING,
+            ColumnType.STRING, ColumnType.STRING, ColumnType.STRING, ColumnType.DATE,
+            ColumnType.DATE
+    };
 
     public AppointmentController() {
-        appointments = new ArrayList<>();
+        EntityMapping<Appointment> mapping = new EntityMapping<>(FilePathManager.getAppointmentsFilePath(), CSV_HEADER,
+                Appointment::getAppointmentId, this::fromRecord, this::toRecord,
+                BINARY_COLUMNS, this::fromSnapshot, this::toSnapshot);
+        mapping.addIndex("patient_id", Appointment::getPatientId);
+        mapping.addIndex("clinician_id", Appointment::getClinicianId);
+        mapping.addIndex("facility_id", Appointment::getFacilityId);
+        mapping.addIndex("appointment_date", appointment -> formatDate(appointment.getAppointmentDate()));
+        repository = RepositoryFactory.create(mapping);
     }
 
     /**
-     * Loads appointments from CSV file.
+     * Loads appointments from the repository's persistent store, discarding unsaved changes.
      *
      * @throws IOException if file cannot be read
      */
     public void loadFromCSV() throws IOException {
-        String filePath = FilePathManager.getAppointmentsFilePath();
-        List<String[]> records = CSVReader.readCSV(filePath);
-        appointments.clear();
-
-        for (String[] record : records) {
-            if (record.length >= 13) {
-                Appointment appointment = new Appointment();
-                appointment.setAppointmentId(record[0]);
-                appointment.setPatientId(record[1]);
-                appointment.setClinicianId(record[2]);
-                appointment.setFacilityId(record[3]);
-                appointment.setAppointmentDate(parseDate(record[4]));
-                appointment.setAppointmentTime(parseTime(record[5]));
-                appointment.setDurationMinutes(parseInt(record[6]));
-                appointment.setAppointmentType(record[7]);
-                appointment.setStatus(record[8]);
-                appointment.setReasonForVisit(record[9]);
-                appointment.setNotes(record[10]);
-                appointment.setCreatedDate(parseDate(record[11]));
-                appointment.setLastModified(parseDate(record[12]));
-                appointments.add(appointment);
-            }
-        }
+        repository.load();
+        List<Appointment> appointments = repository.findAll();
+        idSequence.seed(appointments, Appointment::getAppointmentId);
+        clinicianSlots.rebuild(appointments);
+        patientSlots.rebuild(appointments);
+    }
+
+    /**
+     * Checks whether any appointments have been added, changed or deleted since the last load or save.
+     *
+     * @return true if there are unsaved changes
+     */
+    public boolean isDirty() {
+        return repository.isDirty();
     }
 
     /**
-     * Saves all appointments to CSV file.
+     * Saves changes made since the last load or save to the repository's persistent store.
      *
      * @throws IOException if file cannot be written
      */
     public void saveToCSV() throws IOException {
-        String filePath = FilePathManager.getAppointmentsFilePath();
-        List<String[]> data = new ArrayList<>();
-
-        for (Appointment appointment : appointments) {
-            String[] row = {
-                    appointment.getAppointmentId(),
-                    appointment.getPatientId(),
-                    appointment.getClinicianId(),
-                    appointment.getFacilityId(),
-                    formatDate(appointment.getAppointmentDate()),
-                    formatTime(appointment.getAppointmentTime()),
-                    String.valueOf(appointment.getDurationMinutes()),
-                    appointment.getAppointmentType(),
-                    appointment.getStatus(),
-                    appointment.getReasonForVisit(),
-                    appointment.getNotes(),
-                    formatDate(appointment.getCreatedDate()),
-                    formatDate(appointment.getLastModified())
-            };
-            data.add(row);
-        }
+        repository.flush();
+        idSequence.save();
+    }
 
-        CSVWriter.writeCSV(filePath, CSV_HEADER, data);
+    /**
+     * Writes all appointments to a plain CSV file in the output folder,
+     * whichever snapshot format the repository keeps.
+     *
+     * @return Path of the exported file
+     * @throws IOException if file cannot be written
+     */
+    public String exportToCSV() throws IOException {
+        String filePath = FilePathManager.getExportFilePath(FilePathManager.getAppointmentsFilePath());
+        repository.exportCSV(filePath);
+        return filePath;
     }
 
     /**
@@ -100,7 +110,7 @@ public class AppointmentController {
      * @return List of all appointments
      */
     public List<Appointment> getAllAppointments() {
-        return new ArrayList<>(appointments);
+        return repository.findAll();
     }
 
     /**
@@ -110,10 +120,7 @@ public class AppointmentController {
      * @return The appointment, or null if not found
      */
     public Appointment getAppointmentById(String appointmentId) {
-        return appointments.stream()
-                .filter(a -> a.getAppointmentId().equals(appointmentId))
-                .findFirst()
-                .orElse(null);
+        return repository.findById(appointmentId);
     }
 
     /**
@@ -123,9 +130,7 @@ public class AppointmentController {
      * @return List of appointments for the patient
      */
     public List<Appointment> getAppointmentsByPatient(String patientId) {
-        return appointments.stream()
-                .filter(a -> a.getPatientId().equals(patientId))
-                .collect(Collectors.toList());
+        return repository.findBy("patient_id", patientId);
     }
 
     /**
@@ -135,9 +140,17 @@ public class AppointmentController {
      * @return List of appointments for the clinician
      */
     public List<Appointment> getAppointmentsByClinician(String clinicianId) {
-        return appointments.stream()
-                .filter(a -> a.getClinicianId().equals(clinicianId))
-                .collect(Collectors.toList());
+        return repository.findBy("clinician_id", clinicianId);
+    }
+
+    /**
+     * Gets appointments at a facility.
+     *
+     * @param facilityId The facility ID
+     * @return List of appointments at the facility
+     */
+    public List<Appointment> getAppointmentsByFacility(String facilityId) {
+        return repository.findBy("facility_id", facilityId);
     }
 
     /**
@@ -147,9 +160,7 @@ public class AppointmentController {
      * @return List of appointments on the date
      */
     public List<Appointment> getAppointmentsByDate(LocalDate date) {
-        return appointments.stream()
-                .filter(a -> a.getAppointmentDate() != null && a.getAppointmentDate().equals(date))
-                .collect(Collectors.toList());
+        return repository.findBy("appointment_date", formatDate(date));
     }
 
     /**
@@ -159,9 +170,11 @@ public class AppointmentController {
      * @return List of appointments with the status
      */
     public List<Appointment> getAppointmentsByStatus(String status) {
-        return appointments.stream()
-                .filter(a -> status.equalsIgnoreCase(a.getStatus()))
-                .collect(Collectors.toList());
+        AppointmentStatus code = AppointmentStatus.fromLabel(status);
+        if (code == null) {
+            return new ArrayList<>();
+        }
+        return repository.query(a -> a.getStatusCode() == code);
     }
 
     /**
@@ -170,34 +183,33 @@ public class AppointmentController {
      * @return List of scheduled appointments
      */
     public List<Appointment> getScheduledAppointments() {
-        return appointments.stream()
-                .filter(Appointment::isScheduled)
-                .collect(Collectors.toList());
+        return repository.query(Appointment::isScheduled);
     }
 
     /**
-     * Adds a new appointment.
+     * Adds a new appointment, unless it would double-book its clinician or patient.
      *
      * @param appointment The appointment to add
+     * @throws AppointmentConflictException if the clinician or patient is already booked at that time
      */
-    public void addAppointment(Appointment appointment) {
-        appointments.add(appointment);
+    public synchronized void addAppointment(Appointment appointment) throws AppointmentConflictException {
+        checkConflicts(appointment);
+        repository.insert(appointment);
+        indexSlots(appointment);
     }
 
     /**
-     * Updates an existing appointment.
+     * Updates an existing appointment, unless the new time would double-book its
+     * clinician or patient. Pass a changed copy rather than the stored appointment,
+     * so a rejected update leaves the stored one as it was.
      *
      * @param appointment The appointment with updated data
      * @return true if updated, false if not found
+     * @throws AppointmentConflictException if the clinician or patient is already booked at that time
      */
-    public boolean updateAppointment(Appointment appointment) {
-        for (int i = 0; i < appointments.size(); i++) {
-            if (appointments.get(i).getAppointmentId().equals(appointment.getAppointmentId())) {
-                appointments.set(i, appointment);
-                return true;
-            }
-        }
-        return false;
+    public synchronized boolean updateAppointment(Appointment appointment) throws AppointmentConflictException {
+        checkConflicts(appointment);
+        return storeUpdate(appointment);
     }
 
     /**
@@ -207,7 +219,12 @@ public class AppointmentController {
      * @return true if deleted, false if not found
      */
     public boolean deleteAppointment(String appointmentId) {
-        return appointments.removeIf(a -> a.getAppointmentId().equals(appointmentId));
+        if (!repository.delete(appointmentId)) {
+            return false;
+        }
+        clinicianSlots.remove(appointmentId);
+        patientSlots.remove(appointmentId);
+        return true;
     }
 
     /**
@@ -221,32 +238,76 @@ public class AppointmentController {
         if (appointment != null) {
             appointment.setStatus("Cancelled");
             appointment.setLastModified(LocalDate.now());
-            return true;
+            // Cancelled appointments occupy no time, so they never clash
+            return storeUpdate(appointment);
         }
         return false;
     }
 
+    /**
+     * Checks whether a clinician has no appointment overlapping a time.
+     *
+     * @param clinicianId     The clinician ID
+     * @param date            The day
+     * @param time            Start time
+     * @param durationMinutes Length of the appointment
+     * @return true if the clinician is free for the whole period
+     */
+    public boolean isClinicianFree(String clinicianId, LocalDate date, LocalTime time, int durationMinutes) {
+        return clinicianSlots.isFree(clinicianId, date, time, durationMinutes);
+    }
+
+    /**
+     * Finds existing appointments that would clash with a booking, because
+     * either the clinician or the patient is already booked at that time.
+     *
+     * @param appointmentId   ID of the appointment being booked or edited, which is ignored (may be null)
+     * @param clinicianId     The clinician ID
+     * @param patientId       The patient ID
+     * @param date            The day
+     * @param time            Start time
+     * @param durationMinutes Length of the appointment
+     * @return Clashing appointments (empty if none)
+     */
+    public List<Appointment> findConflicts(String appointmentId, String clinicianId, String patientId,
+                                           LocalDate date, LocalTime time, int durationMinutes) {
+        Set<String> conflictIds = new LinkedHashSet<>(
+                clinicianSlots.findConflicts(clinicianId, date, time, durationMinutes, appointmentId));
+        conflictIds.addAll(patientSlots.findConflicts(patientId, date, time, durationMinutes, appointmentId));
+
+        List<Appointment> conflicts = new ArrayList<>();
+        for (String conflictId : conflictIds) {
+            Appointment conflict = repository.findById(conflictId);
+            if (conflict != null) {
+                conflicts.add(conflict);
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * Generates a reminder letter for an appointment and saves it to a text file.
+     *
+     * @param appointment The appointment
+     * @param patient     The patient attending
+     * @param clinician   The clinician seeing the patient
+     * @param facility    Where the appointment takes place
+     * @return File path where the letter was saved
+     * @throws IOException if file cannot be written
+     */
+    public String generateAppointmentReminder(Appointment appointment, Patient patient,
+                                              Clinician clinician, Facility facility) throws IOException {
+        String letter = LetterTemplates.renderAppointmentReminder(appointment, patient, clinician, facility);
+        return LetterTemplates.saveLetter("appointment_reminder_" + appointment.getAppointmentId(), letter);
+    }
+
     /**
      * Gets the next available appointment ID.
      *
      * @return The next appointment ID
      */
     public String getNextAppointmentId() {
-        int maxId = 0;
-        for (Appointment a : appointments) {
-            String id = a.getAppointmentId();
-            if (id != null && id.startsWith("A")) {
-                try {
-                    int num = Integer.parseInt(id.substring(1));
-                    if (num > maxId) {
-                        maxId = num;
-                    }
-                } catch (NumberFormatException e) {
-                    // Ignore
-                }
-            }
-        }
-        return String.format("A%03d", maxId + 1);
+        return idSequence.next();
     }
 
     /**
@@ -255,7 +316,125 @@ public class AppointmentController {
      * @return Number of appointments
      */
     public int getAppointmentCount() {
-        return appointments.size();
+        return repository.count();
+    }
+
+    /**
+     * Gets the index of times booked by each clinician, for the scheduler.
+     *
+     * @return The clinician slot index
+     */
+    AppointmentSlotIndex getClinicianSlots() {
+        return clinicianSlots;
+    }
+
+    /**
+     * Gets the index of times booked by each patient, for the scheduler.
+     *
+     * @return The patient slot index
+     */
+    AppointmentSlotIndex getPatientSlots() {
+        return patientSlots;
+    }
+
+    private boolean storeUpdate(Appointment appointment) {
+        if (!repository.update(appointment)) {
+            return false;
+        }
+        indexSlots(appointment);
+        return true;
+    }
+
+    private void checkConflicts(Appointment appointment) throws AppointmentConflictException {
+        if (appointment.isCancelled() || appointment.getAppointmentDate() == null
+                || appointment.getAppointmentTime() == null) {
+            return;
+        }
+        List<Appointment> conflicts = findConflicts(appointment.getAppointmentId(),
+                appointment.getClinicianId(), appointment.getPatientId(),
+                appointment.getAppointmentDate(), appointment.getAppointmentTime(),
+                appointment.getDurationMinutes());
+        if (!conflicts.isEmpty()) {
+            throw new AppointmentConflictException(conflicts);
+        }
+    }
+
+    private void indexSlots(Appointment appointment) {
+        clinicianSlots.put(appointment);
+        patientSlots.put(appointment);
+    }
+
+    private Appointment fromRecord(String[] record) {
+        if (record.length < 13) {
+            return null;
+        }
+        Appointment appointment = new Appointment();
+        appointment.setAppointmentId(record[0]);
+        appointment.setPatientId(record[1]);
+        appointment.setClinicianId(record[2]);
+        appointment.setFacilityId(record[3]);
+        appointment.setAppointmentDate(parseDate(record[4]));
+        appointment.setAppointmentTime(parseTime(record[5]));
+        appointment.setDurationMinutes(parseInt(record[6]));
+        appointment.setAppointmentType(record[7]);
+        appointment.setStatus(record[8]);
+        appointment.setReasonForVisit(record[9]);
+        appointment.setNotes(record[10]);
+        appointment.setCreatedDate(parseDate(record[11]));
+        appointment.setLastModified(parseDate(record[12]));
+        return appointment;
+    }
+
+    private String[] toRecord(Appointment appointment) {
+        return new String[]{
+                appointment.getAppointmentId(),
+                appointment.getPatientId(),
+                appointment.getClinicianId(),
+                appointment.getFacilityId(),
+                formatDate(appointment.getAppointmentDate()),
+                formatTime(appointment.getAppointmentTime()),
+                String.valueOf(appointment.getDurationMinutes()),
+                appointment.getAppointmentType(),
+                appointment.getStatus(),
+                appointment.getReasonForVisit(),
+                appointment.getNotes(),
+                formatDate(appointment.getCreatedDate()),
+                formatDate(appointment.getLastModified())
+        };
+    }
+
+    private Appointment fromSnapshot(BinarySnapshot snapshot, int row) {
+        Appointment appointment = new Appointment();
+        appointment.setAppointmentId(snapshot.getString(row, 0));
+        appointment.setPatientId(snapshot.getString(row, 1));
+        appointment.setClinicianId(snapshot.getString(row, 2));
+        appointment.setFacilityId(snapshot.getString(row, 3));
+        appointment.setAppointmentDate(snapshot.getDate(row, 4));
+        appointment.setAppointmentTime(snapshot.getTime(row, 5));
+        appointment.setDurationMinutes(snapshot.getInt(row, 6));
+        appointment.setAppointmentType(snapshot.getString(row, 7));
+        appointment.setStatus(snapshot.getString(row, 8));
+        appointment.setReasonForVisit(snapshot.getString(row, 9));
+        appointment.setNotes(snapshot.getString(row, 10));
+        appointment.setCreatedDate(snapshot.getDate(row, 11));
+        appointment.setLastModified(snapshot.getDate(row, 12));
+        return appointment;
+    }
+
+    private void toSnapshot(BinarySnapshot.Builder row, Appointment appointment) {
+        row.putString(appointment.getAppointmentId());
+        row.putString(appointment.getPatientId());
+        row.putString(appointment.getClinicianId());
+        row.putString(appointment.getFacilityId());
+        row.putDate(appointment.getAppointmentDate());
+        row.putTime(appointment.getAppointmentTime());
+        row.putInt(appointment.getDurationMinutes());
+        row.putString(appointment.getAppointmentType());
+        row.putString(appointment.getStatus());
+        row.putString(appointment.getReasonForVisit());
+        row.putString(appointment.getNotes());
+        row.putDate(appointment.getCreatedDate());
+        row.putDate(appointment.getLastModified());
     }
 
     private LocalDate parseDate(String dateStr) {
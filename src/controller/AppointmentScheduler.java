@@ -0,0 +1,188 @@
+package controller;
+
+import model.AppointmentSlotIndex;
+import model.Clinician;
+import model.Facility;
+import model.OpeningHours;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Finds the earliest free appointment times across clinicians.
+ *
+ * A clinician's free time on a day is their facility's opening hours minus
+ * the minutes already booked for the clinician and, optionally, the patient.
+ * All three are per-minute bitmaps, so checking a clinician for a day costs
+ * a few word operations however many appointments exist. Slots start on a
+ * five-minute boundary, and each clinician is offered at most once per day.
+ */
+public class AppointmentScheduler {
+
+    private static final int SLOT_STEP_MINUTES = 5;
+    private static final Comparator<Slot> EARLIEST_FIRST = Comparator
+            .comparing(Slot::getDate)
+            .thenComparing(Slot::getTime)
+            .thenComparing(slot -> slot.getClinician().getClinicianId());
+
+    private final AppointmentController appointmentController;
+    private final ClinicianController clinicianController;
+    private final FacilityController facilityController;
+
+    public AppointmentScheduler(AppointmentController appointmentController,
+                                ClinicianController clinicianController,
+                                FacilityController facilityController) {
+        this.appointmentController = appointmentController;
+        this.clinicianController = clinicianController;
+        this.facilityController = facilityController;
+    }
+
+    /**
+     * Finds the earliest free slots, at most one per clinician per day.
+     *
+     * @param speciality      Clinician speciality to match (case-insensitive), or null for any
+     * @param facilityId      Facility the clinician must work at, or null for any
+     * @param patientId       Patient who must also be free, or null to ignore the patient's bookings
+     * @param excludeId       Appointment whose time counts as free, e.g. the one being edited (may be null)
+     * @param from            Earliest start
+     * @param daysAhead       Number of days to search, starting with the day of {@code from}
+     * @param durationMinutes Length of the appointment
+     * @param limit           Maximum number of slots to return
+     * @return Free slots, earliest first
+     */
+    public List<Slot> findEarliestSlots(String speciality, String facilityId, String patientId, String excludeId,
+                                        LocalDateTime from, int daysAhead, int durationMinutes, int limit) {
+        List<Candidate> candidates = findCandidates(speciality, facilityId);
+        AppointmentSlotIndex clinicianSlots = appointmentController.getClinicianSlots();
+        AppointmentSlotIndex patientSlots = appointmentController.getPatientSlots();
+
+        List<Slot> slots = new ArrayList<>();
+        for (int offset = 0; offset < daysAhead && slots.size() < limit; offset++) {
+            LocalDate date = from.toLocalDate().plusDays(offset);
+            int earliest = offset == 0 ? from.toLocalTime().toSecondOfDay() / 60 : 0;
+            BitSet patientBooked = patientId != null ? patientSlots.getBookedMinutes(patientId, date, excludeId) : null;
+
+            List<Slot> daySlots = new ArrayList<>();
+            for (Candidate candidate : candidates) {
+                BitSet free = candidate.openingHours.getOpenMinutes(date.getDayOfWeek());
+                if (free.isEmpty()) {
+                    continue;
+                }
+                free.andNot(clinicianSlots.getBookedMinutes(candidate.clinician.getClinicianId(), date, excludeId));
+                if (patientBooked != null) {
+                    free.andNot(patientBooked);
+                }
+                int start = findStart(free, earliest, durationMinutes);
+                if (start >= 0) {
+                    daySlots.add(new Slot(candidate.clinician, candidate.facility, date,
+                            LocalTime.of(start / 60, start % 60)));
+                }
+            }
+            // Every slot on a later day is later than these, so only this day needs sorting
+            daySlots.sort(EARLIEST_FIRST);
+            for (Slot slot : daySlots) {
+                if (slots.size() == limit) {
+                    break;
+                }
+                slots.add(slot);
+            }
+        }
+        return slots;
+    }
+
+    private List<Candidate> findCandidates(String speciality, String facilityId) {
+        List<Candidate> candidates = new ArrayList<>();
+        for (Clinician clinician : clinicianController.getAllClinicians()) {
+            if (speciality != null && !speciality.equalsIgnoreCase(clinician.getSpeciality())) {
+                continue;
+            }
+            if (facilityId != null && !facilityId.equals(clinician.getWorkplaceId())) {
+                continue;
+            }
+            Facility facility = facilityController.getFacilityById(clinician.getWorkplaceId());
+            if (facility == null) {
+                continue;
+            }
+            candidates.add(new Candidate(clinician, facility, facility.getParsedOpeningHours()));
+        }
+        return candidates;
+    }
+
+    /**
+     * Finds the first slot boundary at or after {@code earliest} that starts a
+     * run of at least {@code duration} free minutes.
+     */
+    private static int findStart(BitSet free, int earliest, int duration) {
+        int start = free.nextSetBit(alignUp(earliest));
+        while (start >= 0) {
+            int aligned = alignUp(start);
+            if (!free.get(aligned)) {
+                start = free.nextSetBit(aligned);
+                continue;
+            }
+            int end = free.nextClearBit(aligned);
+            if (end - aligned >= duration) {
+                return aligned;
+            }
+            start = free.nextSetBit(end);
+        }
+        return -1;
+    }
+
+    private static int alignUp(int minute) {
+        return (minute + SLOT_STEP_MINUTES - 1) / SLOT_STEP_MINUTES * SLOT_STEP_MINUTES;
+    }
+
+    /**
+     * A clinician who may be offered, with their facility's opening hours.
+     */
+    private static class Candidate {
+        private final Clinician clinician;
+        private final Facility facility;
+        private final OpeningHours openingHours;
+
+        Candidate(Clinician clinician, Facility facility, OpeningHours openingHours) {
+            this.clinician = clinician;
+            this.facility = facility;
+            this.openingHours = openingHours;
+        }
+    }
+
+    /**
+     * A free appointment time with a clinician.
+     */
+    public static class Slot {
+        private final Clinician clinician;
+        private final Facility facility;
+        private final LocalDate date;
+        private final LocalTime time;
+
+        Slot(Clinician clinician, Facility facility, LocalDate date, LocalTime time) {
+            this.clinician = clinician;
+            this.facility = facility;
+            this.date = date;
+            this.time = time;
+        }
+
+        public Clinician getClinician() {
+            return clinician;
+        }
+
+        public Facility getFacility() {
+            return facility;
+        }
+
+        public LocalDate getDate() {
+            return date;
+        }
+
+        public LocalTime getTime() {
+            return time;
+        }
+    }
+}
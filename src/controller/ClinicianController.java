@@ -1,16 +1,19 @@
 package controller;
 
 import model.Clinician;
-import util.CSVReader;
-import util.CSVWriter;
+import repository.EntityMapping;
+import repository.Repository;
+import repository.RepositoryFactory;
+import util.BinarySnapshot;
+import util.BinarySnapshot.ColumnType;
+import util.DisplayNameCache;
 import util.FilePathManager;
+import util.IdSequence;
 
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Controller class for managing Clinician data.
@@ -18,76 +21,73 @@ import java.util.stream.Collectors;
  */
 public class ClinicianController {
 
-    private List<Clinician> clinicians;
+    private Repository<Clinician> repository;
+    private final IdSequence idSequence = new IdSequence("clinicians", "C");
+    private final DisplayNameCache<Clinician> nameCache =
+            new DisplayNameCache<>(this::getClinicianById, c -> c.getTitle() + " " + c.getFullName());
+    private final DisplayNameCache<Clinician> shortNameCache =
+            new DisplayNameCache<>(this::getClinicianById, c -> c.getTitle() + " " + c.getLastName());
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final String[] CSV_HEADER = {
             "clinician_id", "first_name", "last_name", "title", "speciality",
             "gmc_number", "phone_number", "email", "workplace_id", "workplace_type",
             "employment_status", "start_date"
     };
+    private static final ColumnType[] BINARY_COLUMNS = {
+            ColumnType.STRING, ColumnType.STRING, ColumnType.STRING, ColumnType.STRING,
+            ColumnType.STRING, ColumnType.STRING, ColumnType.STRING, ColumnType.STRING,
+            ColumnType.STRING, ColumnType.STRING, ColumnType.STRING, ColumnType.DATE
+    };
 
     public ClinicianController() {
-        clinicians = new ArrayList<>();
+        EntityMapping<Clinician> mapping = new EntityMapping<>(FilePathManager.getCliniciansFilePath(), CSV_HEADER,
+                Clinician::getClinicianId, this::fromRecord, this::toRecord,
+                BINARY_COLUMNS, this::fromSnapshot, this::toSnapshot);
+        repository = RepositoryFactory.create(mapping);
     }
 
     /**
-     * Loads clinicians from CSV file.
+     * Loads clinicians from the repository's persistent store, discarding unsaved changes.
      *
      * @throws IOException if file cannot be read
      */
     public void loadFromCSV() throws IOException {
-        String filePath = FilePathManager.getCliniciansFilePath();
-        List<String[]> records = CSVReader.readCSV(filePath);
-        clinicians.clear();
+        repository.load();
+        nameCache.clear();
+        shortNameCache.clear();
+        idSequence.seed(repository.findAll(), Clinician::getClinicianId);
+    }
 
-        for (String[] record : records) {
-            if (record.length >= 12) {
-                Clinician clinician = new Clinician();
-                clinician.setClinicianId(record[0]);
-                clinician.setFirstName(record[1]);
-                clinician.setLastName(record[2]);
-                clinician.setTitle(record[3]);
-                clinician.setSpeciality(record[4]);
-                clinician.setGmcNumber(record[5]);
-                clinician.setPhoneNumber(record[6]);
-                clinician.setEmail(record[7]);
-                clinician.setWorkplaceId(record[8]);
-                clinician.setWorkplaceType(record[9]);
-                clinician.setEmploymentStatus(record[10]);
-                clinician.setStartDate(parseDate(record[11]));
-                clinicians.add(clinician);
-            }
-        }
+    /**
+     * Checks whether any clinicians have been added, changed or deleted since the last load or save.
+     *
+     * @return true if there are unsaved changes
+     */
+    public boolean isDirty() {
+        return repository.isDirty();
     }
 
     /**
-     * Saves all clinicians to CSV file.
+     * Saves changes made since the last load or save to the repository's persistent store.
      *
      * @throws IOException if file cannot be written
      */
     public void saveToCSV() throws IOException {
-        String filePath = FilePathManager.getCliniciansFilePath();
-        List<String[]> data = new ArrayList<>();
-
-        for (Clinician clinician : clinicians) {
-            String[] row = {
-                    clinician.getClinicianId(),
-                    clinician.getFirstName(),
-                    clinician.getLastName(),
-                    clinician.getTitle(),
-                    clinician.getSpeciality(),
-                    clinician.getGmcNumber(),
-                    clinician.getPhoneNumber(),
-                    clinician.getEmail(),
-                    clinician.getWorkplaceId(),
-                    clinician.getWorkplaceType(),
-                    clinician.getEmploymentStatus(),
-                    formatDate(clinician.getStartDate())
-            };
-            data.add(row);
-        }
+        repository.flush();
+        idSequence.save();
+    }
 
-        CSVWriter.writeCSV(filePath, CSV_HEADER, data);
+    /**
+     * Writes all clinicians to a plain CSV file in the output folder,
+     * whichever snapshot format the repository keeps.
+     *
+     * @return Path of the exported file
+     * @throws IOException if file cannot be written
+     */
+    public String exportToCSV() throws IOException {
+        String filePath = FilePathManager.getExportFilePath(FilePathManager.getCliniciansFilePath());
+        repository.exportCSV(filePath);
+        return filePath;
     }
 
     /**
@@ -96,7 +96,7 @@ public class ClinicianController {
      * @return List of all clinicians
      */
     public List<Clinician> getAllClinicians() {
-        return new ArrayList<>(clinicians);
+        return repository.findAll();
     }
 
     /**
@@ -106,10 +106,27 @@ public class ClinicianController {
      * @return The clinician, or null if not found
      */
     public Clinician getClinicianById(String clinicianId) {
-        return clinicians.stream()
-                .filter(c -> c.getClinicianId().equals(clinicianId))
-                .findFirst()
-                .orElse(null);
+        return repository.findById(clinicianId);
+    }
+
+    /**
+     * Gets a clinician's title and full name for display in other entities' tables.
+     *
+     * @param clinicianId The clinician ID, may be null
+     * @return The title and full name, or an empty string if not found
+     */
+    public String getClinicianName(String clinicianId) {
+        return nameCache.get(clinicianId);
+    }
+
+    /**
+     * Gets a clinician's title and last name for display in other entities' tables.
+     *
+     * @param clinicianId The clinician ID, may be null
+     * @return The title and last name, or an empty string if not found
+     */
+    public String getClinicianShortName(String clinicianId) {
+        return shortNameCache.get(clinicianId);
     }
 
     /**
@@ -118,9 +135,7 @@ public class ClinicianController {
      * @return List of GPs
      */
     public List<Clinician> getGPs() {
-        return clinicians.stream()
-                .filter(Clinician::isGP)
-                .collect(Collectors.toList());
+        return repository.query(Clinician::isGP);
     }
 
     /**
@@ -129,9 +144,7 @@ public class ClinicianController {
      * @return List of specialists
      */
     public List<Clinician> getSpecialists() {
-        return clinicians.stream()
-                .filter(Clinician::isSpecialist)
-                .collect(Collectors.toList());
+        return repository.query(Clinician::isSpecialist);
     }
 
     /**
@@ -140,9 +153,7 @@ public class ClinicianController {
      * @return List of nurses
      */
     public List<Clinician> getNurses() {
-        return clinicians.stream()
-                .filter(Clinician::isNurse)
-                .collect(Collectors.toList());
+        return repository.query(Clinician::isNurse);
     }
 
     /**
@@ -152,9 +163,7 @@ public class ClinicianController {
      * @return List of clinicians at the workplace
      */
     public List<Clinician> getCliniciansByWorkplace(String workplaceId) {
-        return clinicians.stream()
-                .filter(c -> c.getWorkplaceId().equals(workplaceId))
-                .collect(Collectors.toList());
+        return repository.query(c -> c.getWorkplaceId().equals(workplaceId));
     }
 
     /**
@@ -164,9 +173,7 @@ public class ClinicianController {
      * @return List of clinicians with the speciality
      */
     public List<Clinician> getCliniciansBySpeciality(String speciality) {
-        return clinicians.stream()
-                .filter(c -> c.getSpeciality().equalsIgnoreCase(speciality))
-                .collect(Collectors.toList());
+        return repository.query(c -> c.getSpeciality().equalsIgnoreCase(speciality));
     }
 
     /**
@@ -177,11 +184,9 @@ public class ClinicianController {
      */
     public List<Clinician> searchByName(String searchTerm) {
         String term = searchTerm.toLowerCase();
-        return clinicians.stream()
-                .filter(c -> c.getFirstName().toLowerCase().contains(term) ||
-                        c.getLastName().toLowerCase().contains(term) ||
-                        c.getFullName().toLowerCase().contains(term))
-                .collect(Collectors.toList());
+        return repository.query(c -> c.getFirstName().toLowerCase().contains(term) ||
+                c.getLastName().toLowerCase().contains(term) ||
+                c.getFullName().toLowerCase().contains(term));
     }
 
     /**
@@ -190,7 +195,9 @@ public class ClinicianController {
      * @param clinician The clinician to add
      */
     public void addClinician(Clinician clinician) {
-        clinicians.add(clinician);
+        repository.insert(clinician);
+        nameCache.invalidate(clinician.getClinicianId());
+        shortNameCache.invalidate(clinician.getClinicianId());
     }
 
     /**
@@ -200,13 +207,10 @@ public class ClinicianController {
      * @return true if updated, false if not found
      */
     public boolean updateClinician(Clinician clinician) {
-        for (int i = 0; i < clinicians.size(); i++) {
-            if (clinicians.get(i).getClinicianId().equals(clinician.getClinicianId())) {
-                clinicians.set(i, clinician);
-                return true;
-            }
-        }
-        return false;
+        boolean updated = repository.update(clinician);
+        nameCache.invalidate(clinician.getClinicianId());
+        shortNameCache.invalidate(clinician.getClinicianId());
+        return updated;
     }
 
     /**
@@ -216,7 +220,10 @@ public class ClinicianController {
      * @return true if deleted, false if not found
      */
     public boolean deleteClinician(String clinicianId) {
-        return clinicians.removeIf(c -> c.getClinicianId().equals(clinicianId));
+        boolean deleted = repository.delete(clinicianId);
+        nameCache.invalidate(clinicianId);
+        shortNameCache.invalidate(clinicianId);
+        return deleted;
     }
 
     /**
@@ -225,21 +232,7 @@ public class ClinicianController {
      * @return The next clinician ID
      */
     public String getNextClinicianId() {
-        int maxId = 0;
-        for (Clinician c : clinicians) {
-            String id = c.getClinicianId();
-            if (id != null && id.startsWith("C")) {
-                try {
-                    int num = Integer.parseInt(id.substring(1));
-                    if (num > maxId) {
-                        maxId = num;
-                    }
-                } catch (NumberFormatException e) {
-                    // Ignore
-                }
-            }
-        }
-        return String.format("C%03d", maxId + 1);
+        return idSequence.next();
     }
 
     /**
@@ -248,7 +241,76 @@ public class ClinicianController {
      * @return Number of clinicians
      */
     public int getClinicianCount() {
-        return clinicians.size();
+        return repository.count();
+    }
+
+    private Clinician fromRecord(String[] record) {
+        if (record.length < 12) {
+            return null;
+        }
+        Clinician clinician = new Clinician();
+        clinician.setClinicianId(record[0]);
+        clinician.setFirstName(record[1]);
+        clinician.setLastName(record[2]);
+        clinician.setTitle(record[3]);
+        clinician.setSpeciality(record[4]);
+        clinician.setGmcNumber(record[5]);
+        clinician.setPhoneNumber(record[6]);
+        clinician.setEmail(record[7]);
+        clinician.setWorkplaceId(record[8]);
+        clinician.setWorkplaceType(record[9]);
+        clinician.setEmploymentStatus(record[10]);
+        clinician.setStartDate(parseDate(record[11]));
+        return clinician;
+    }
+
+    private String[] toRecord(Clinician clinician) {
+        return new String[]{
+                clinician.getClinicianId(),
+                clinician.getFirstName(),
+                clinician.getLastName(),
+                clinician.getTitle(),
+                clinician.getSpeciality(),
+                clinician.getGmcNumber(),
+                clinician.getPhoneNumber(),
+                clinician.getEmail(),
+                clinician.getWorkplaceId(),
+                clinician.getWorkplaceType(),
+                clinician.getEmploymentStatus(),
+                formatDate(clinician.getStartDate())
+        };
+    }
+
+    private Clinician fromSnapshot(BinarySnapshot snapshot, int row) {
+        Clinician clinician = new Clinician();
+        clinician.setClinicianId(snapshot.getString(row, 0));
+        clinician.setFirstName(snapshot.getString(row, 1));
+        clinician.setLastName(snapshot.getString(row, 2));
+        clinician.setTitle(snapshot.getString(row, 3));
+        clinician.setSpeciality(snapshot.getString(row, 4));
+        clinician.setGmcNumber(snapshot.getString(row, 5));
+        clinician.setPhoneNumber(snapshot.getString(row, 6));
+        clinician.setEmail(snapshot.getString(row, 7));
+        clinician.setWorkplaceId(snapshot.getString(row, 8));
+        clinician.setWorkplaceType(snapshot.getString(row, 9));
+        clinician.setEmploymentStatus(snapshot.getString(row, 10));
+        clinician.setStartDate(snapshot.getDate(row, 11));
+        return clinician;
+    }
+
+    private void toSnapshot(BinarySnapshot.Builder row, Clinician clinician) {
+        row.putString(clinician.getClinicianId());
+        row.putString(clinician.getFirstName());
+        row.putString(clinician.getLastName());
+        row.putString(clinician.getTitle());
+        row.putString(clinician.getSpeciality());
+        row.putString(clinician.getGmcNumber());
+        row.putString(clinician.getPhoneNumber());
+        row.putString(clinician.getEmail());
+        row.putString(clinician.getWorkplaceId());
+        row.putString(clinician.getWorkplaceType());
+        row.putString(clinician.getEmploymentStatus());
+        row.putDate(clinician.getStartDate());
     }
 
     private LocalDate parseDate(String dateStr) {
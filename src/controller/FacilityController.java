@@ -1,14 +1,17 @@
 package controller;
 
 import model.Facility;
-import util.CSVReader;
-import util.CSVWriter;
+import repository.EntityMapping;
+import repository.Repository;
+import repository.RepositoryFactory;
+import util.BinarySnapshot;
+import util.BinarySnapshot.ColumnType;
+import util.DisplayNameCache;
 import util.FilePathManager;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Controller class for managing Facility data.
@@ -16,72 +19,65 @@ import java.util.stream.Collectors;
  */
 public class FacilityController {
 
-    private List<Facility> facilities;
+    private Repository<Facility> repository;
+    private final DisplayNameCache<Facility> nameCache =
+            new DisplayNameCache<>(this::getFacilityById, Facility::getFacilityName);
     private static final String[] CSV_HEADER = {
             "facility_id", "facility_name", "facility_type", "address", "postcode",
             "phone_number", "email", "opening_hours", "manager_name", "capacity", "specialities_offered"
     };
+    private static final ColumnType[] BINARY_COLUMNS = {
+            ColumnType.STRING, ColumnType.STRING, ColumnType.STRING, ColumnType.STRING,
+            ColumnType.STRING, ColumnType.STRING, ColumnType.STRING, ColumnType.STRING,
+            ColumnType.STRING, ColumnType.INT, ColumnType.STRING
+    };
 
     public FacilityController() {
-        facilities = new ArrayList<>();
+        EntityMapping<Facility> mapping = new EntityMapping<>(FilePathManager.getFacilitiesFilePath(), CSV_HEADER,
+                Facility::getFacilityId, this::fromRecord, this::toRecord,
+                BINARY_COLUMNS, this::fromSnapshot, this::toSnapshot);
+        repository = RepositoryFactory.create(mapping);
     }
 
     /**
-     * Loads facilities from CSV file.
+     * Loads facilities from the repository's persistent store, discarding unsaved changes.
      *
      * @throws IOException if file cannot be read
      */
     public void loadFromCSV() throws IOException {
-        String filePath = FilePathManager.getFacilitiesFilePath();
-        List<String[]> records = CSVReader.readCSV(filePath);
-        facilities.clear();
-
-        for (String[] record : records) {
-            if (record.length >= 11) {
-                Facility facility = new Facility();
-                facility.setFacilityId(record[0]);
-                facility.setFacilityName(record[1]);
-                facility.setFacilityType(record[2]);
-                facility.setAddress(record[3]);
-                facility.setPostcode(record[4]);
-                facility.setPhoneNumber(record[5]);
-                facility.setEmail(record[6]);
-                facility.setOpeningHours(record[7]);
-                facility.setManagerName(record[8]);
-                facility.setCapacity(parseCapacity(record[9]));
-                facility.setSpecialitiesOffered(record[10]);
-                facilities.add(facility);
-            }
-        }
+        repository.load();
+        nameCache.clear();
     }
 
     /**
-     * Saves all facilities to CSV file.
+     * Checks whether any facilities have been added, changed or deleted since the last load or save.
+     *
+     * @return true if there are unsaved changes
+     */
+    public boolean isDirty() {
+        return repository.isDirty();
+    }
+
+    /**
+     * Saves changes made since the last load or save to the repository's persistent store.
      *
      * @throws IOException if file cannot be written
      */
     public void saveToCSV() throws IOException {
-        String filePath = FilePathManager.getFacilitiesFilePath();
-        List<String[]> data = new ArrayList<>();
-
-        for (Facility facility : facilities) {
-            String[] row = {
-                    facility.getFacilityId(),
-                    facility.getFacilityName(),
-                    facility.getFacilityType(),
-                    facility.getAddress(),
-                    facility.getPostcode(),
-                    facility.getPhoneNumber(),
-                    facility.getEmail(),
-                    facility.getOpeningHours(),
-                    facility.getManagerName(),
-                    String.valueOf(facility.getCapacity()),
-                    facility.getSpecialitiesOffered()
-            };
-            data.add(row);
-        }
+        repository.flush();
+    }
 
-        CSVWriter.writeCSV(filePath, CSV_HEADER, data);
+    /**
+     * Writes all facilities to a plain CSV file in the output folder,
+     * whichever snapshot format the repository keeps.
+     *
+     * @return Path of the exported file
+     * @throws IOException if file cannot be written
+     */
+    public String exportToCSV() throws IOException {
+        String filePath = FilePathManager.getExportFilePath(FilePathManager.getFacilitiesFilePath());
+        repository.exportCSV(filePath);
+        return filePath;
     }
 
     /**
@@ -90,7 +86,17 @@ public class FacilityController {
      * @return List of all facilities
      */
     public List<Facility> getAllFacilities() {
-        return new ArrayList<>(facilities);
+        return repository.findAll();
+    }
+
+    /**
+     * Gets the facilities that are open at a time.
+     *
+     * @param time The date and time
+     * @return List of open facilities
+     */
+    public List<Facility> getFacilitiesOpenAt(LocalDateTime time) {
+        return repository.query(facility -> facility.isOpenAt(time));
     }
 
     /**
@@ -100,10 +106,17 @@ public class FacilityController {
      * @return The facility, or null if not found
      */
     public Facility getFacilityById(String facilityId) {
-        return facilities.stream()
-                .filter(f -> f.getFacilityId().equals(facilityId))
-                .findFirst()
-                .orElse(null);
+        return repository.findById(facilityId);
+    }
+
+    /**
+     * Gets a facility's name for display in other entities' tables.
+     *
+     * @param facilityId The facility ID, may be null
+     * @return The facility name, or an empty string if not found
+     */
+    public String getFacilityName(String facilityId) {
+        return nameCache.get(facilityId);
     }
 
     /**
@@ -112,9 +125,7 @@ public class FacilityController {
      * @return List of GP surgeries
      */
     public List<Facility> getGPSurgeries() {
-        return facilities.stream()
-                .filter(Facility::isGPSurgery)
-                .collect(Collectors.toList());
+        return repository.query(Facility::isGPSurgery);
     }
 
     /**
@@ -123,9 +134,7 @@ public class FacilityController {
      * @return List of hospitals
      */
     public List<Facility> getHospitals() {
-        return facilities.stream()
-                .filter(Facility::isHospital)
-                .collect(Collectors.toList());
+        return repository.query(Facility::isHospital);
     }
 
     /**
@@ -136,9 +145,7 @@ public class FacilityController {
      */
     public List<Facility> searchByName(String searchTerm) {
         String term = searchTerm.toLowerCase();
-        return facilities.stream()
-                .filter(f -> f.getFacilityName().toLowerCase().contains(term))
-                .collect(Collectors.toList());
+        return repository.query(f -> f.getFacilityName().toLowerCase().contains(term));
     }
 
     /**
@@ -147,7 +154,8 @@ public class FacilityController {
      * @param facility The facility to add
      */
     public void addFacility(Facility facility) {
-        facilities.add(facility);
+        repository.insert(facility);
+        nameCache.invalidate(facility.getFacilityId());
     }
 
     /**
@@ -157,13 +165,9 @@ public class FacilityController {
      * @return true if updated, false if not found
      */
     public boolean updateFacility(Facility facility) {
-        for (int i = 0; i < facilities.size(); i++) {
-            if (facilities.get(i).getFacilityId().equals(facility.getFacilityId())) {
-                facilities.set(i, facility);
-                return true;
-            }
-        }
-        return false;
+        boolean updated = repository.update(facility);
+        nameCache.invalidate(facility.getFacilityId());
+        return updated;
     }
 
     /**
@@ -173,7 +177,9 @@ public class FacilityController {
      * @return true if deleted, false if not found
      */
     public boolean deleteFacility(String facilityId) {
-        return facilities.removeIf(f -> f.getFacilityId().equals(facilityId));
+        boolean deleted = repository.delete(facilityId);
+        nameCache.invalidate(facilityId);
+        return deleted;
     }
 
     /**
@@ -182,7 +188,72 @@ public class FacilityController {
      * @return Number of facilities
      */
     public int getFacilityCount() {
-        return facilities.size();
+        return repository.count();
+    }
+
+    private Facility fromRecord(String[] record) {
+        if (record.length < 11) {
+            return null;
+        }
+        Facility facility = new Facility();
+        facility.setFacilityId(record[0]);
+        facility.setFacilityName(record[1]);
+        facility.setFacilityType(record[2]);
+        facility.setAddress(record[3]);
+        facility.setPostcode(record[4]);
+        facility.setPhoneNumber(record[5]);
+        facility.setEmail(record[6]);
+        facility.setOpeningHours(record[7]);
+        facility.setManagerName(record[8]);
+        facility.setCapacity(parseCapacity(record[9]));
+        facility.setSpecialitiesOffered(record[10]);
+        return facility;
+    }
+
+    private String[] toRecord(Facility facility) {
+        return new String[]{
+                facility.getFacilityId(),
+                facility.getFacilityName(),
+                facility.getFacilityType(),
+                facility.getAddress(),
+                facility.getPostcode(),
+                facility.getPhoneNumber(),
+                facility.getEmail(),
+                facility.getOpeningHours(),
+                facility.getManagerName(),
+                String.valueOf(facility.getCapacity()),
+                facility.getSpecialitiesOffered()
+        };
+    }
+
+    private Facility fromSnapshot(BinarySnapshot snapshot, int row) {
+        Facility facility = new Facility();
+        facility.setFacilityId(snapshot.getString(row, 0));
+        facility.setFacilityName(snapshot.getString(row, 1));
+        facility.setFacilityType(snapshot.getString(row, 2));
+        facility.setAddress(snapshot.getString(row, 3));
+        facility.setPostcode(snapshot.getString(row, 4));
+        facility.setPhoneNumber(snapshot.getString(row, 5));
+        facility.setEmail(snapshot.getString(row, 6));
+        facility.setOpeningHours(snapshot.getString(row, 7));
+        facility.setManagerName(snapshot.getString(row, 8));
+        facility.setCapacity(snapshot.getInt(row, 9));
+        facility.setSpecialitiesOffered(snapshot.getString(row, 10));
+        return facility;
+    }
+
+    private void toSnapshot(BinarySnapshot.Builder row, Facility facility) {
+        row.putString(facility.getFacilityId());
+        row.putString(facility.getFacilityName());
+        row.putString(facility.getFacilityType());
+        row.putString(facility.getAddress());
+        row.putString(facility.getPostcode());
+        row.putString(facility.getPhoneNumber());
+        row.putString(facility.getEmail());
+        row.putString(facility.getOpeningHours());
+        row.putString(facility.getManagerName());
+        row.putInt(facility.getCapacity());
+        row.putString(facility.getSpecialitiesOffered());
     }
 
     private int parseCapacity(String capacityStr) {
@@ -1,16 +1,19 @@
 package controller;
 
 import model.Patient;
-import util.CSVReader;
-import util.CSVWriter;
+import repository.EntityMapping;
+import repository.Repository;
+import repository.RepositoryFactory;
+import util.BinarySnapshot;
+import util.BinarySnapshot.ColumnType;
+import util.DisplayNameCache;
 import util.FilePathManager;
+import util.IdSequence;
 
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Controller class for managing Patient data.
@@ -18,80 +21,72 @@ import java.util.stream.Collectors;
  */
 public class PatientController {
 
-    private List<Patient> patients;
+    private Repository<Patient> repository;
+    private final IdSequence idSequence = new IdSequence("patients", "P");
+    private final DisplayNameCache<Patient> nameCache =
+            new DisplayNameCache<>(this::getPatientById, Patient::getFullName);
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final String[] CSV_HEADER = {
             "patient_id", "first_name", "last_name", "date_of_birth", "nhs_number",
             "gender", "phone_number", "email", "address", "postcode",
             "emergency_contact_name", "emergency_contact_phone", "registration_date", "gp_surgery_id"
     };
+    private static final ColumnType[] BINARY_COLUMNS = {
+            ColumnType.STRING, ColumnType.STRING, ColumnType.STRING, ColumnType.DATE,
+            ColumnType.STRING, ColumnType.STRING, ColumnType.STRING, ColumnType.STRING,
+            ColumnType.STRING, ColumnType.STRING, ColumnType.STRING, ColumnType.STRING,
+            ColumnType.DATE, ColumnType.STRING
+    };
 
     public PatientController() {
-        patients = new ArrayList<>();
+        EntityMapping<Patient> mapping = new EntityMapping<>(FilePathManager.getPatientsFilePath(), CSV_HEADER,
+                Patient::getPatientId, this::fromRecord, this::toRecord,
+                BINARY_COLUMNS, this::fromSnapshot, this::toSnapshot);
+        mapping.addIndex("nhs_number", Patient::getNhsNumber);
+        repository = RepositoryFactory.create(mapping);
     }
 
     /**
-     * Loads patients from CSV file.
+     * Loads patients from the repository's persistent store, discarding unsaved changes.
      *
      * @throws IOException if file cannot be read
      */
     public void loadFromCSV() throws IOException {
-        String filePath = FilePathManager.getPatientsFilePath();
-        List<String[]> records = CSVReader.readCSV(filePath);
-        patients.clear();
-
-        for (String[] record : records) {
-            if (record.length >= 14) {
-                Patient patient = new Patient();
-                patient.setPatientId(record[0]);
-                patient.setFirstName(record[1]);
-                patient.setLastName(record[2]);
-                patient.setDateOfBirth(parseDate(record[3]));
-                patient.setNhsNumber(record[4]);
-                patient.setGender(record[5]);
-                patient.setPhoneNumber(record[6]);
-                patient.setEmail(record[7]);
-                patient.setAddress(record[8]);
-                patient.setPostcode(record[9]);
-                patient.setEmergencyContactName(record[10]);
-                patient.setEmergencyContactPhone(record[11]);
-                patient.setRegistrationDate(parseDate(record[12]));
-                patient.setGpSurgeryId(record[13]);
-                patients.add(patient);
-            }
-        }
+        repository.load();
+        nameCache.clear();
+        idSequence.seed(repository.findAll(), Patient::getPatientId);
+    }
+
+    /**
+     * Checks whether any patients have been added, changed or deleted since the last load or save.
+     *
+     * @return true if there are unsaved changes
+     */
+    public boolean isDirty() {
+        return repository.isDirty();
     }
 
     /**
-     * Saves all patients to CSV file.
+     * Saves changes made since the last load or save to the repository's persistent store.
      *
      * @throws IOException if file cannot be written
      */
     public void saveToCSV() throws IOException {
-        String filePath = FilePathManager.getPatientsFilePath();
-        List<String[]> data = new ArrayList<>();
-
-        for (Patient patient : patients) {
-            String[] row = {
-                    patient.getPatientId(),
-                    patient.getFirstName(),
-                    patient.getLastName(),
-                    formatDate(patient.getDateOfBirth()),
-                    patient.getNhsNumber(),
-                    patient.getGender(),
-                    patient.getPhoneNumber(),
-                    patient.getEmail(),
-                    patient.getAddress(),
-                    patient.getPostcode(),
-                    patient.getEmergencyContactName(),
-                    patient.getEmergencyContactPhone(),
-                    formatDate(patient.getRegistrationDate()),
-                    patient.getGpSurgeryId()
-            };
-            data.add(row);
-        }
+        repository.flush();
+        idSequence.save();
+    }
 
-        CSVWriter.writeCSV(filePath, CSV_HEADER, data);
+    /**
+     * Writes all patients to a plain CSV file in the output folder,
+     * whichever snapshot format the repository keeps.
+     *
+     * @return Path of the exported file
+     * @throws IOException if file cannot be written
+     */
+    public String exportToCSV() throws IOException {
+        String filePath = FilePathManager.getExportFilePath(FilePathManager.getPatientsFilePath());
+        repository.exportCSV(filePath);
+        return filePath;
     }
 
     /**
@@ -100,7 +95,7 @@ public class PatientController {
      * @return List of all patients
      */
     public List<Patient> getAllPatients() {
-        return new ArrayList<>(patients);
+        return repository.findAll();
     }
 
     /**
@@ -110,10 +105,17 @@ public class PatientController {
      * @return The patient, or null if not found
      */
     public Patient getPatientById(String patientId) {
-        return patients.stream()
-                .filter(p -> p.getPatientId().equals(patientId))
-                .findFirst()
-                .orElse(null);
+        return repository.findById(patientId);
+    }
+
+    /**
+     * Gets a patient's full name for display in other entities' tables.
+     *
+     * @param patientId The patient ID, may be null
+     * @return The full name, or an empty string if not found
+     */
+    public String getPatientName(String patientId) {
+        return nameCache.get(patientId);
     }
 
     /**
@@ -123,10 +125,8 @@ public class PatientController {
      * @return The patient, or null if not found
      */
     public Patient getPatientByNhsNumber(String nhsNumber) {
-        return patients.stream()
-                .filter(p -> p.getNhsNumber().equals(nhsNumber))
-                .findFirst()
-                .orElse(null);
+        List<Patient> matches = repository.findBy("nhs_number", nhsNumber);
+        return matches.isEmpty() ? null : matches.get(0);
     }
 
     /**
@@ -137,11 +137,9 @@ public class PatientController {
      */
     public List<Patient> searchByName(String searchTerm) {
         String term = searchTerm.toLowerCase();
-        return patients.stream()
-                .filter(p -> p.getFirstName().toLowerCase().contains(term) ||
-                        p.getLastName().toLowerCase().contains(term) ||
-                        p.getFullName().toLowerCase().contains(term))
-                .collect(Collectors.toList());
+        return repository.query(p -> p.getFirstName().toLowerCase().contains(term) ||
+                p.getLastName().toLowerCase().contains(term) ||
+                p.getFullName().toLowerCase().contains(term));
     }
 
     /**
@@ -151,9 +149,7 @@ public class PatientController {
      * @return List of patients registered at the surgery
      */
     public List<Patient> getPatientsByGPSurgery(String gpSurgeryId) {
-        return patients.stream()
-                .filter(p -> p.getGpSurgeryId().equals(gpSurgeryId))
-                .collect(Collectors.toList());
+        return repository.query(p -> p.getGpSurgeryId().equals(gpSurgeryId));
     }
 
     /**
@@ -162,7 +158,8 @@ public class PatientController {
      * @param patient The patient to add
      */
     public void addPatient(Patient patient) {
-        patients.add(patient);
+        repository.insert(patient);
+        nameCache.invalidate(patient.getPatientId());
     }
 
     /**
@@ -172,13 +169,9 @@ public class PatientController {
      * @return true if updated, false if not found
      */
     public boolean updatePatient(Patient patient) {
-        for (int i = 0; i < patients.size(); i++) {
-            if (patients.get(i).getPatientId().equals(patient.getPatientId())) {
-                patients.set(i, patient);
-                return true;
-            }
-        }
-        return false;
+        boolean updated = repository.update(patient);
+        nameCache.invalidate(patient.getPatientId());
+        return updated;
     }
 
     /**
@@ -188,7 +181,9 @@ public class PatientController {
      * @return true if deleted, false if not found
      */
     public boolean deletePatient(String patientId) {
-        return patients.removeIf(p -> p.getPatientId().equals(patientId));
+        boolean deleted = repository.delete(patientId);
+        nameCache.invalidate(patientId);
+        return deleted;
     }
 
     /**
@@ -197,21 +192,7 @@ public class PatientController {
      * @return The next patient ID
      */
     public String getNextPatientId() {
-        int maxId = 0;
-        for (Patient p : patients) {
-            String id = p.getPatientId();
-            if (id != null && id.startsWith("P")) {
-                try {
-                    int num = Integer.parseInt(id.substring(1));
-                    if (num > maxId) {
-                        maxId = num;
-                    }
-                } catch (NumberFormatException e) {
-                    // Ignore
-                }
-            }
-        }
-        return String.format("P%03d", maxId + 1);
+        return idSequence.next();
     }
 
     /**
@@ -220,7 +201,84 @@ public class PatientController {
      * @return Number of patients
      */
     public int getPatientCount() {
-        return patients.size();
+        return repository.count();
+    }
+
+    private Patient fromRecord(String[] record) {
+        if (record.length < 14) {
+            return null;
+        }
+        Patient patient = new Patient();
+        patient.setPatientId(record[0]);
+        patient.setFirstName(record[1]);
+        patient.setLastName(record[2]);
+        patient.setDateOfBirth(parseDate(record[3]));
+        patient.setNhsNumber(record[4]);
+        patient.setGender(record[5]);
+        patient.setPhoneNumber(record[6]);
+        patient.setEmail(record[7]);
+        patient.setAddress(record[8]);
+        patient.setPostcode(record[9]);
+        patient.setEmergencyContactName(record[10]);
+        patient.setEmergencyContactPhone(record[11]);
+        patient.setRegistrationDate(parseDate(record[12]));
+        patient.setGpSurgeryId(record[13]);
+        return patient;
+    }
+
+    private String[] toRecord(Patient patient) {
+        return new String[]{
+                patient.getPatientId(),
+                patient.getFirstName(),
+                patient.getLastName(),
+                formatDate(patient.getDateOfBirth()),
+                patient.getNhsNumber(),
+                patient.getGender(),
+                patient.getPhoneNumber(),
+                patient.getEmail(),
+                patient.getAddress(),
+                patient.getPostcode(),
+                patient.getEmergencyContactName(),
+                patient.getEmergencyContactPhone(),
+                formatDate(patient.getRegistrationDate()),
+                patient.getGpSurgeryId()
+        };
+    }
+
+    private Patient fromSnapshot(BinarySnapshot snapshot, int row) {
+        Patient patient = new Patient();
+        patient.setPatientId(snapshot.getString(row, 0));
+        patient.setFirstName(snapshot.getString(row, 1));
+        patient.setLastName(snapshot.getString(row, 2));
+        patient.setDateOfBirth(snapshot.getDate(row, 3));
+        patient.setNhsNumber(snapshot.getString(row, 4));
+        patient.setGender(snapshot.getString(row, 5));
+        patient.setPhoneNumber(snapshot.getString(row, 6));
+        patient.setEmail(snapshot.getString(row, 7));
+        patient.setAddress(snapshot.getString(row, 8));
+        patient.setPostcode(snapshot.getString(row, 9));
+        patient.setEmergencyContactName(snapshot.getString(row, 10));
+        patient.setEmergencyContactPhone(snapshot.getString(row, 11));
+        patient.setRegistrationDate(snapshot.getDate(row, 12));
+        patient.setGpSurgeryId(snapshot.getString(row, 13));
+        return patient;
+    }
+
+    private void toSnapshot(BinarySnapshot.Builder row, Patient patient) {
+        row.putString(patient.getPatientId());
+        row.putString(patient.getFirstName());
+        row.putString(patient.getLastName());
+        row.putDate(patient.getDateOfBirth());
+        row.putString(patient.getNhsNumber());
+        row.putString(patient.getGender());
+        row.putString(patient.getPhoneNumber());
+        row.putString(patient.getEmail());
+        row.putString(patient.getAddress());
+        row.putString(patient.getPostcode());
+        row.putString(patient.getEmergencyContactName());
+        row.putString(patient.getEmergencyContactPhone());
+        row.putDate(patient.getRegistrationDate());
+        row.putString(patient.getGpSurgeryId());
     }
 
     private LocalDate parseDate(String dateStr) {
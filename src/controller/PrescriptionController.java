@@ -1,16 +1,23 @@
 package controller;
 
+import model.Clinician;
+import model.LetterTemplates;
+import model.Patient;
 import model.Prescription;
-import util.CSVReader;
-import util.CSVWriter;
+import model.PrescriptionStatus;
+import repository.EntityMapping;
+import repository.Repository;
+import repository.RepositoryFactory;
+import util.BinarySnapshot;
+import util.BinarySnapshot.ColumnType;
 import util.FilePathManager;
+import util.IdSequence;
 
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Controller class for managing Prescription data.
@@ -18,7 +25,8 @@ import java.util.stream.Collectors;
  */
 public class PrescriptionController {
 
-    private List<Prescription> prescriptions;
+    private Repository<Prescription> repository;
+    private final IdSequence idSequence = new IdSequence("prescriptions", "RX");
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final String[] CSV_HEADER = {
             "prescription_id", "patient_id", "clinician_id", "appointment_id",
@@ -26,75 +34,62 @@ public class PrescriptionController {
             "duration_days", "quantity", "instructions", "pharmacy_name",
             "status", "issue_date", "collection_date"
     };
+    private static final ColumnType[] BINARY_COLUMNS = {
+            ColumnType.STRING, ColumnType.STRING, ColumnType.STRING, ColumnType.STRING,
+            ColumnType.DATE, ColumnType.STRING, ColumnType.STRING, ColumnType.STRING,
+            ColumnType.INT, ColumnType.STRING, ColumnType.STRING, ColumnType.STRING,
+            ColumnType.STRING, ColumnType.DATE, ColumnType.DATE
+    };
 
     public PrescriptionController() {
-        prescriptions = new ArrayList<>();
+        EntityMapping<Prescription> mapping = new EntityMapping<>(FilePathManager.getPrescriptionsFilePath(), CSV_HEADER,
+                Prescription::getPrescriptionId, this::fromRecord, this::toRecord,
+                BINARY_COLUMNS, this::fromSnapshot, this::toSnapshot);
+        mapping.addIndex("patient_id", Prescription::getPatientId);
+        mapping.addIndex("clinician_id", Prescription::getClinicianId);
+        repository = RepositoryFactory.create(mapping);
     }
 
     /**
-     * Loads prescriptions from CSV file.
+     * Loads prescriptions from the repository's persistent store, discarding unsaved changes.
      *
      * @throws IOException if file cannot be read
      */
     public void loadFromCSV() throws IOException {
-        String filePath = FilePathManager.getPrescriptionsFilePath();
-        List<String[]> records = CSVReader.readCSV(filePath);
-        prescriptions.clear();
+        repository.load();
+        idSequence.seed(repository.findAll(), Prescription::getPrescriptionId);
+    }
 
-        for (String[] record : records) {
-            if (record.length >= 15) {
-                Prescription prescription = new Prescription();
-                prescription.setPrescriptionId(record[0]);
-                prescription.setPatientId(record[1]);
-                prescription.setClinicianId(record[2]);
-                prescription.setAppointmentId(record[3]);
-                prescription.setPrescriptionDate(parseDate(record[4]));
-                prescription.setMedicationName(record[5]);
-                prescription.setDosage(record[6]);
-                prescription.setFrequency(record[7]);
-                prescription.setDurationDays(parseInt(record[8]));
-                prescription.setQuantity(record[9]);
-                prescription.setInstructions(record[10]);
-                prescription.setPharmacyName(record[11]);
-                prescription.setStatus(record[12]);
-                prescription.setIssueDate(parseDate(record[13]));
-                prescription.setCollectionDate(parseDate(record[14]));
-                prescriptions.add(prescription);
-            }
-        }
+    /**
+     * Checks whether any prescriptions have been added, changed or deleted since the last load or save.
+     *
+     * @return true if there are unsaved changes
+     */
+    public boolean isDirty() {
+        return repository.isDirty();
     }
 
     /**
-     * Saves all prescriptions to CSV file.
+     * Saves changes made since the last load or save to the repository's persistent store.
      *
      * @throws IOException if file cannot be written
      */
     public void saveToCSV() throws IOException {
-        String filePath = FilePathManager.getPrescriptionsFilePath();
-        List<String[]> data = new ArrayList<>();
-
-        for (Prescription prescription : prescriptions) {
-            String[] row = {
-                    prescription.getPrescriptionId(),
-                    prescription.getPatientId(),
-                    prescription.getClinicianId(),
-                    prescription.getAppointmentId() != null ? prescription.getAppointmentId() : "",
-                    formatDate(prescription.getPrescriptionDate()),
-                    prescription.getMedicationName(),
-                    prescription.getDosage(),
-                    prescription.getFrequency(),
-                    String.valueOf(prescription.getDurationDays()),
-                    prescription.getQuantity(),
-                    prescription.getInstructions(),
-                    prescription.getPharmacyName(),
-                    prescription.getStatus(),
-                    formatDate(prescription.getIssueDate()),
-                    formatDate(prescription.getCollectionDate())
-            };
-            data.add(row);
-        }
+        repository.flush();
+        idSequence.save();
+    }
 
-        CSVWriter.writeCSV(filePath, CSV_HEADER, data);
+    /**
+     * Writes all prescriptions to a plain CSV file in the output folder,
+     * whichever snapshot format the repository keeps.
+     *
+     * @return Path of the exported file
+     * @throws IOException if file cannot be written
+     */
+    public String exportToCSV() throws IOException {
+        String filePath = FilePathManager.getExportFilePath(FilePathManager.getPrescriptionsFilePath());
+        repository.exportCSV(filePath);
+        return filePath;
     }
 
     /**
@@ -103,7 +98,7 @@ public class PrescriptionController {
      * @return List of all prescriptions
      */
     public List<Prescription> getAllPrescriptions() {
-        return new ArrayList<>(prescriptions);
+        return repository.findAll();
     }
 
     /**
@@ -113,10 +108,7 @@ public class PrescriptionController {
      * @return The prescription, or null if not found
      */
     public Prescription getPrescriptionById(String prescriptionId) {
-        return prescriptions.stream()
-                .filter(p -> p.getPrescriptionId().equals(prescriptionId))
-                .findFirst()
-                .orElse(null);
+        return repository.findById(prescriptionId);
     }
 
     /**
@@ -126,9 +118,7 @@ public class PrescriptionController {
      * @return List of prescriptions for the patient
      */
     public List<Prescription> getPrescriptionsByPatient(String patientId) {
-        return prescriptions.stream()
-                .filter(p -> p.getPatientId().equals(patientId))
-                .collect(Collectors.toList());
+        return repository.findBy("patient_id", patientId);
     }
 
     /**
@@ -138,9 +128,7 @@ public class PrescriptionController {
      * @return List of prescriptions by the clinician
      */
     public List<Prescription> getPrescriptionsByClinician(String clinicianId) {
-        return prescriptions.stream()
-                .filter(p -> p.getClinicianId().equals(clinicianId))
-                .collect(Collectors.toList());
+        return repository.findBy("clinician_id", clinicianId);
     }
 
     /**
@@ -150,9 +138,11 @@ public class PrescriptionController {
      * @return List of prescriptions with the status
      */
     public List<Prescription> getPrescriptionsByStatus(String status) {
-        return prescriptions.stream()
-                .filter(p -> status.equalsIgnoreCase(p.getStatus()))
-                .collect(Collectors.toList());
+        PrescriptionStatus code = PrescriptionStatus.fromLabel(status);
+        if (code == null) {
+            return new ArrayList<>();
+        }
+        return repository.query(p -> p.getStatusCode() == code);
     }
 
     /**
@@ -161,9 +151,7 @@ public class PrescriptionController {
      * @return List of issued prescriptions
      */
     public List<Prescription> getIssuedPrescriptions() {
-        return prescriptions.stream()
-                .filter(Prescription::isIssued)
-                .collect(Collectors.toList());
+        return repository.query(Prescription::isIssued);
     }
 
     /**
@@ -174,9 +162,7 @@ public class PrescriptionController {
      */
     public List<Prescription> searchByMedication(String medicationName) {
         String term = medicationName.toLowerCase();
-        return prescriptions.stream()
-                .filter(p -> p.getMedicationName().toLowerCase().contains(term))
-                .collect(Collectors.toList());
+        return repository.query(p -> p.getMedicationName().toLowerCase().contains(term));
     }
 
     /**
@@ -185,7 +171,7 @@ public class PrescriptionController {
      * @param prescription The prescription to add
      */
     public void addPrescription(Prescription prescription) {
-        prescriptions.add(prescription);
+        repository.insert(prescription);
     }
 
     /**
@@ -195,13 +181,7 @@ public class PrescriptionController {
      * @return true if updated, false if not found
      */
     public boolean updatePrescription(Prescription prescription) {
-        for (int i = 0; i < prescriptions.size(); i++) {
-            if (prescriptions.get(i).getPrescriptionId().equals(prescription.getPrescriptionId())) {
-                prescriptions.set(i, prescription);
-                return true;
-            }
-        }
-        return false;
+        return repository.update(prescription);
     }
 
     /**
@@ -211,7 +191,7 @@ public class PrescriptionController {
      * @return true if deleted, false if not found
      */
     public boolean deletePrescription(String prescriptionId) {
-        return prescriptions.removeIf(p -> p.getPrescriptionId().equals(prescriptionId));
+        return repository.delete(prescriptionId);
     }
 
     /**
@@ -225,32 +205,33 @@ public class PrescriptionController {
         if (prescription != null) {
             prescription.setStatus("Collected");
             prescription.setCollectionDate(LocalDate.now());
-            return true;
+            return repository.update(prescription);
         }
         return false;
     }
 
+    /**
+     * Generates a notice letter for a prescription and saves it to a text file.
+     *
+     * @param prescription The prescription
+     * @param patient      The patient it was prescribed for
+     * @param clinician    The prescribing clinician
+     * @return File path where the letter was saved
+     * @throws IOException if file cannot be written
+     */
+    public String generatePrescriptionNotice(Prescription prescription, Patient patient,
+                                             Clinician clinician) throws IOException {
+        String letter = LetterTemplates.renderPrescriptionNotice(prescription, patient, clinician);
+        return LetterTemplates.saveLetter("prescription_notice_" + prescription.getPrescriptionId(), letter);
+    }
+
     /**
      * Gets the next available prescription ID.
      *
      * @return The next prescription ID
      */
     public String getNextPrescriptionId() {
-        int maxId = 0;
-        for (Prescription p : prescriptions) {
-            String id = p.getPrescriptionId();
-            if (id != null && id.startsWith("RX")) {
-                try {
-                    int num = Integer.parseInt(id.substring(2));
-                    if (num > maxId) {
-                        maxId = num;
-                    }
-                } catch (NumberFormatException e) {
-                    // Ignore
-                }
-            }
-        }
-        return String.format("RX%03d", maxId + 1);
+        return idSequence.next();
     }
 
     /**
@@ -259,7 +240,88 @@ public class PrescriptionController {
      * @return Number of prescriptions
      */
     public int getPrescriptionCount() {
-        return prescriptions.size();
+        return repository.count();
+    }
+
+    private Prescription fromRecord(String[] record) {
+        if (record.length < 15) {
+            return null;
+        }
+        Prescription prescription = new Prescription();
+        prescription.setPrescriptionId(record[0]);
+        prescription.setPatientId(record[1]);
+        prescription.setClinicianId(record[2]);
+        prescription.setAppointmentId(record[3]);
+        prescription.setPrescriptionDate(parseDate(record[4]));
+        prescription.setMedicationName(record[5]);
+        prescription.setDosage(record[6]);
+        prescription.setFrequency(record[7]);
+        prescription.setDurationDays(parseInt(record[8]));
+        prescription.setQuantity(record[9]);
+        prescription.setInstructions(record[10]);
+        prescription.setPharmacyName(record[11]);
+        prescription.setStatus(record[12]);
+        prescription.setIssueDate(parseDate(record[13]));
+        prescription.setCollectionDate(parseDate(record[14]));
+        return prescription;
+    }
+
+    private String[] toRecord(Prescription prescription) {
+        return new String[]{
+                prescription.getPrescriptionId(),
+                prescription.getPatientId(),
+                prescription.getClinicianId(),
+                prescription.getAppointmentId() != null ? prescription.getAppointmentId() : "",
+                formatDate(prescription.getPrescriptionDate()),
+                prescription.getMedicationName(),
+                prescription.getDosage(),
+                prescription.getFrequency(),
+                String.valueOf(prescription.getDurationDays()),
+                prescription.getQuantity(),
+                prescription.getInstructions(),
+                prescription.getPharmacyName(),
+                prescription.getStatus(),
+                formatDate(prescription.getIssueDate()),
+                formatDate(prescription.getCollectionDate())
+        };
+    }
+
+    private Prescription fromSnapshot(BinarySnapshot snapshot, int row) {
+        Prescription prescription = new Prescription();
+        prescription.setPrescriptionId(snapshot.getString(row, 0));
+        prescription.setPatientId(snapshot.getString(row, 1));
+        prescription.setClinicianId(snapshot.getString(row, 2));
+        prescription.setAppointmentId(snapshot.getString(row, 3));
+        prescription.setPrescriptionDate(snapshot.getDate(row, 4));
+        prescription.setMedicationName(snapshot.getString(row, 5));
+        prescription.setDosage(snapshot.getString(row, 6));
+        prescription.setFrequency(snapshot.getString(row, 7));
+        prescription.setDurationDays(snapshot.getInt(row, 8));
+        prescription.setQuantity(snapshot.getString(row, 9));
+        prescription.setInstructions(snapshot.getString(row, 10));
+        prescription.setPharmacyName(snapshot.getString(row, 11));
+        prescription.setStatus(snapshot.getString(row, 12));
+        prescription.setIssueDate(snapshot.getDate(row, 13));
+        prescription.setCollectionDate(snapshot.getDate(row, 14));
+        return prescription;
+    }
+
+    private void toSnapshot(BinarySnapshot.Builder row, Prescription prescription) {
+        row.putString(prescription.getPrescriptionId());
+        row.putString(prescription.getPatientId());
+        row.putString(prescription.getClinicianId());
+        row.putString(prescription.getAppointmentId());
+        row.putDate(prescription.getPrescriptionDate());
+        row.putString(prescription.getMedicationName());
+        row.putString(prescription.getDosage());
+        row.putString(prescription.getFrequency());
+        row.putInt(prescription.getDurationDays());
+        row.putString(prescription.getQuantity());
+        row.putString(prescription.getInstructions());
+        row.putString(prescription.getPharmacyName());
+        row.putString(prescription.getStatus());
+        row.putDate(prescription.getIssueDate());
+        row.putDate(prescription.getCollectionDate());
     }
 
     private LocalDate parseDate(String dateStr) {
@@ -4,15 +4,17 @@ import model.Clinician;
 import model.Facility;
 import model.Patient;
 import model.Referral;
+import model.ReferralLetterBatch;
 import model.ReferralManager;
-import util.CSVReader;
-import util.CSVWriter;
+import repository.EntityMapping;
+import repository.RepositoryFactory;
+import util.BinarySnapshot;
+import util.BinarySnapshot.ColumnType;
 import util.FilePathManager;
 
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -30,82 +32,62 @@ public class ReferralController {
             "referral_reason", "clinical_summary", "requested_investigations", "status",
             "appointment_id", "notes", "created_date", "last_updated"
     };
+    private static final ColumnType[] BINARY_COLUMNS = {
+            ColumnType.STRING, ColumnType.STRING, ColumnType.STRING, ColumnType.STRING,
+            ColumnType.STRING, ColumnType.STRING, ColumnType.DATE, ColumnType.STRING,
+            ColumnType.STRING, ColumnType.STRING, ColumnType.STRING, ColumnType.STRING,
+            ColumnType.STRING, ColumnType.STRING, ColumnType.DATE, ColumnType.DATE
+    };
 
     public ReferralController() {
         // Use the singleton instance of ReferralManager
         this.referralManager = ReferralManager.getInstance();
+
+        EntityMapping<Referral> mapping = new EntityMapping<>(FilePathManager.getReferralsFilePath(), CSV_HEADER,
+                Referral::getReferralId, this::fromRecord, this::toRecord,
+                BINARY_COLUMNS, this::fromSnapshot, this::toSnapshot);
+        mapping.addIndex("patient_id", Referral::getPatientId);
+        this.referralManager.setRepository(RepositoryFactory.create(mapping));
     }
 
     /**
-     * Loads referrals from CSV file.
+     * Loads referrals from persistent storage into the singleton manager, discarding unsaved changes.
      *
      * @throws IOException if file cannot be read
      */
     public void loadFromCSV() throws IOException {
-        String filePath = FilePathManager.getReferralsFilePath();
-        List<String[]> records = CSVReader.readCSV(filePath);
-        List<Referral> referrals = new ArrayList<>();
-
-        for (String[] record : records) {
-            if (record.length >= 16) {
-                Referral referral = new Referral();
-                referral.setReferralId(record[0]);
-                referral.setPatientId(record[1]);
-                referral.setReferringClinicianId(record[2]);
-                referral.setReferredToClinicianId(record[3]);
-                referral.setReferringFacilityId(record[4]);
-                referral.setReferredToFacilityId(record[5]);
-                referral.setReferralDate(parseDate(record[6]));
-                referral.setUrgencyLevel(record[7]);
-                referral.setReferralReason(record[8]);
-                referral.setClinicalSummary(record[9]);
-                referral.setRequestedInvestigations(record[10]);
-                referral.setStatus(record[11]);
-                referral.setAppointmentId(record[12]);
-                referral.setNotes(record[13]);
-                referral.setCreatedDate(parseDate(record[14]));
-                referral.setLastUpdated(parseDate(record[15]));
-                referrals.add(referral);
-            }
-        }
+        referralManager.loadReferrals();
+    }
 
-        // Load into the singleton manager
-        referralManager.setReferrals(referrals);
+    /**
+     * Checks whether any referrals have been added, changed or deleted since the last load or save.
+     *
+     * @return true if there are unsaved changes
+     */
+    public boolean isDirty() {
+        return referralManager.hasUnsavedChanges();
     }
 
     /**
-     * Saves all referrals to CSV file.
+     * Saves changes made since the last load or save to persistent storage.
      *
      * @throws IOException if file cannot be written
      */
     public void saveToCSV() throws IOException {
-        String filePath = FilePathManager.getReferralsFilePath();
-        List<String[]> data = new ArrayList<>();
-        List<Referral> referrals = referralManager.getAllReferrals();
-
-        for (Referral referral : referrals) {
-            String[] row = {
-                    referral.getReferralId(),
-                    referral.getPatientId(),
-                    referral.getReferringClinicianId(),
-                    referral.getReferredToClinicianId(),
-                    referral.getReferringFacilityId(),
-                    referral.getReferredToFacilityId(),
-                    formatDate(referral.getReferralDate()),
-                    referral.getUrgencyLevel(),
-                    referral.getReferralReason(),
-                    referral.getClinicalSummary(),
-                    referral.getRequestedInvestigations(),
-                    referral.getStatus(),
-                    referral.getAppointmentId() != null ? referral.getAppointmentId() : "",
-                    referral.getNotes() != null ? referral.getNotes() : "",
-                    formatDate(referral.getCreatedDate()),
-                    formatDate(referral.getLastUpdated())
-            };
-            data.add(row);
-        }
+        referralManager.saveReferrals();
+    }
 
-        CSVWriter.writeCSV(filePath, CSV_HEADER, data);
+    /**
+     * Writes all referrals to a plain CSV file in the output folder,
+     * whichever snapshot format the repository keeps.
+     *
+     * @return Path of the exported file
+     * @throws IOException if file cannot be written
+     */
+    public String exportToCSV() throws IOException {
+        String filePath = FilePathManager.getExportFilePath(FilePathManager.getReferralsFilePath());
+        referralManager.exportReferrals(filePath);
+        return filePath;
     }
 
     /**
@@ -256,6 +238,24 @@ public class ReferralController {
                 referringClinician, referredToClinician, referringFacility, referredToFacility);
     }
 
+    /**
+     * Generates letters for every referral with a status and referral date in range.
+     *
+     * @param batch         Batch generator that looks up patients, clinicians and facilities
+     * @param status        Status to match, or null for any status
+     * @param from          Earliest referral date, or null for no limit
+     * @param to            Latest referral date, or null for no limit
+     * @param singleArchive true to write one ZIP archive, false for one file per letter
+     * @return Summary of the batch
+     * @throws IOException if the letters cannot be written
+     */
+    public ReferralLetterBatch.Result generateReferralLetters(ReferralLetterBatch batch, String status,
+                                                              LocalDate from, LocalDate to,
+                                                              boolean singleArchive) throws IOException {
+        return referralManager.generateReferralLetters(ReferralLetterBatch.filter(status, from, to),
+                batch, singleArchive);
+    }
+
     /**
      * Updates EHR for a referral.
      *
@@ -265,6 +265,24 @@ public class ReferralController {
         referralManager.updateEHR(referral);
     }
 
+    /**
+     * Takes the most urgent referral waiting for triage and marks it In Progress.
+     *
+     * @return The referral, or null if none is waiting
+     */
+    public Referral takeNextForTriage() {
+        return referralManager.takeNextForTriage();
+    }
+
+    /**
+     * Gets the number of referrals waiting for triage.
+     *
+     * @return Number of New or Pending referrals
+     */
+    public int getTriageBacklog() {
+        return referralManager.getTriageBacklog();
+    }
+
     /**
      * Gets the next available referral ID.
      *
@@ -275,12 +293,24 @@ public class ReferralController {
     }
 
     /**
-     * Gets the audit log.
+     * Gets the most recent audit log entries.
+     *
+     * @param count Maximum number of entries
+     * @return List of audit entries, oldest first
+     */
+    public List<String> getRecentAuditEntries(int count) {
+        return referralManager.getRecentAuditEntries(count);
+    }
+
+    /**
+     * Gets a page of audit log entries, counting back from the newest.
      *
-     * @return List of audit entries
+     * @param offset Number of newest entries to skip
+     * @param limit  Maximum number of entries
+     * @return List of audit entries, oldest first
      */
-    public List<String> getAuditLog() {
-        return referralManager.getAuditLog();
+    public List<String> getAuditEntries(int offset, int limit) {
+        return referralManager.getAuditEntries(offset, limit);
     }
 
     /**
@@ -292,6 +322,91 @@ public class ReferralController {
         return referralManager.getReferralCount();
     }
 
+    private Referral fromRecord(String[] record) {
+        if (record.length < 16) {
+            return null;
+        }
+        Referral referral = new Referral();
+        referral.setReferralId(record[0]);
+        referral.setPatientId(record[1]);
+        referral.setReferringClinicianId(record[2]);
+        referral.setReferredToClinicianId(record[3]);
+        referral.setReferringFacilityId(record[4]);
+        referral.setReferredToFacilityId(record[5]);
+        referral.setReferralDate(parseDate(record[6]));
+        referral.setUrgencyLevel(record[7]);
+        referral.setReferralReason(record[8]);
+        referral.setClinicalSummary(record[9]);
+        referral.setRequestedInvestigations(record[10]);
+        referral.setStatus(record[11]);
+        referral.setAppointmentId(record[12]);
+        referral.setNotes(record[13]);
+        referral.setCreatedDate(parseDate(record[14]));
+        referral.setLastUpdated(parseDate(record[15]));
+        return referral;
+    }
+
+    private String[] toRecord(Referral referral) {
+        return new String[]{
+                referral.getReferralId(),
+                referral.getPatientId(),
+                referral.getReferringClinicianId(),
+                referral.getReferredToClinicianId(),
+                referral.getReferringFacilityId(),
+                referral.getReferredToFacilityId(),
+                formatDate(referral.getReferralDate()),
+                referral.getUrgencyLevel(),
+                referral.getReferralReason(),
+                referral.getClinicalSummary(),
+                referral.getRequestedInvestigations(),
+                referral.getStatus(),
+                referral.getAppointmentId() != null ? referral.getAppointmentId() : "",
+                referral.getNotes() != null ? referral.getNotes() : "",
+                formatDate(referral.getCreatedDate()),
+                formatDate(referral.getLastUpdated())
+        };
+    }
+
+    private Referral fromSnapshot(BinarySnapshot snapshot, int row) {
+        Referral referral = new Referral();
+        referral.setReferralId(snapshot.getString(row, 0));
+        referral.setPatientId(snapshot.getString(row, 1));
+        referral.setReferringClinicianId(snapshot.getString(row, 2));
+        referral.setReferredToClinicianId(snapshot.getString(row, 3));
+        referral.setReferringFacilityId(snapshot.getString(row, 4));
+        referral.setReferredToFacilityId(snapshot.getString(row, 5));
+        referral.setReferralDate(snapshot.getDate(row, 6));
+        referral.setUrgencyLevel(snapshot.getString(row, 7));
+        referral.setReferralReason(snapshot.getString(row, 8));
+        referral.setClinicalSummary(snapshot.getString(row, 9));
+        referral.setRequestedInvestigations(snapshot.getString(row, 10));
+        referral.setStatus(snapshot.getString(row, 11));
+        referral.setAppointmentId(snapshot.getString(row, 12));
+        referral.setNotes(snapshot.getString(row, 13));
+        referral.setCreatedDate(snapshot.getDate(row, 14));
+        referral.setLastUpdated(snapshot.getDate(row, 15));
+        return referral;
+    }
+
+    private void toSnapshot(BinarySnapshot.Builder row, Referral referral) {
+        row.putString(referral.getReferralId());
+        row.putString(referral.getPatientId());
+        row.putString(referral.getReferringClinicianId());
+        row.putString(referral.getReferredToClinicianId());
+        row.putString(referral.getReferringFacilityId());
+        row.putString(referral.getReferredToFacilityId());
+        row.putDate(referral.getReferralDate());
+        row.putString(referral.getUrgencyLevel());
+        row.putString(referral.getReferralReason());
+        row.putString(referral.getClinicalSummary());
+        row.putString(referral.getRequestedInvestigations());
+        row.putString(referral.getStatus());
+        row.putString(referral.getAppointmentId());
+        row.putString(referral.getNotes());
+        row.putDate(referral.getCreatedDate());
+        row.putDate(referral.getLastUpdated());
+    }
+
     private LocalDate parseDate(String dateStr) {
         if (dateStr == null || dateStr.isEmpty()) {
             return null;
@@ -1,16 +1,18 @@
 package controller;
 
 import model.Staff;
-import util.CSVReader;
-import util.CSVWriter;
+import repository.EntityMapping;
+import repository.Repository;
+import repository.RepositoryFactory;
+import util.BinarySnapshot;
+import util.BinarySnapshot.ColumnType;
 import util.FilePathManager;
+import util.IdSequence;
 
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Controller class for managing Staff data.
@@ -18,76 +20,67 @@ import java.util.stream.Collectors;
  */
 public class StaffController {
 
-    private List<Staff> staffList;
+    private Repository<Staff> repository;
+    private final IdSequence idSequence = new IdSequence("staff", "ST");
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final String[] CSV_HEADER = {
             "staff_id", "first_name", "last_name", "role", "department",
             "facility_id", "phone_number", "email", "employment_status",
             "start_date", "line_manager", "access_level"
     };
+    private static final ColumnType[] BINARY_COLUMNS = {
+            ColumnType.STRING, ColumnType.STRING, ColumnType.STRING, ColumnType.STRING,
+            ColumnType.STRING, ColumnType.STRING, ColumnType.STRING, ColumnType.STRING,
+            ColumnType.STRING, ColumnType.DATE, ColumnType.STRING, ColumnType.STRING
+    };
 
     public StaffController() {
-        staffList = new ArrayList<>();
+        EntityMapping<Staff> mapping = new EntityMapping<>(FilePathManager.getStaffFilePath(), CSV_HEADER,
+                Staff::getStaffId, this::fromRecord, this::toRecord,
+                BINARY_COLUMNS, this::fromSnapshot, this::toSnapshot);
+        repository = RepositoryFactory.create(mapping);
     }
 
     /**
-     * Loads staff from CSV file.
+     * Loads staff members from the repository's persistent store, discarding unsaved changes.
      *
      * @throws IOException if file cannot be read
      */
     public void loadFromCSV() throws IOException {
-        String filePath = FilePathManager.getStaffFilePath();
-        List<String[]> records = CSVReader.readCSV(filePath);
-        staffList.clear();
-
-        for (String[] record : records) {
-            if (record.length >= 12) {
-                Staff staff = new Staff();
-                staff.setStaffId(record[0]);
-                staff.setFirstName(record[1]);
-                staff.setLastName(record[2]);
-                staff.setRole(record[3]);
-                staff.setDepartment(record[4]);
-                staff.setFacilityId(record[5]);
-                staff.setPhoneNumber(record[6]);
-                staff.setEmail(record[7]);
-                staff.setEmploymentStatus(record[8]);
-                staff.setStartDate(parseDate(record[9]));
-                staff.setLineManager(record[10]);
-                staff.setAccessLevel(record[11]);
-                staffList.add(staff);
-            }
-        }
+        repository.load();
+        idSequence.seed(repository.findAll(), Staff::getStaffId);
+    }
+
+    /**
+     * Checks whether any staff members have been added, changed or deleted since the last load or save.
+     *
+     * @return true if there are unsaved changes
+     */
+    public boolean isDirty() {
+        return repository.isDirty();
     }
 
     /**
-     * Saves all staff to CSV file.
+     * Saves changes made since the last load or save to the repository's persistent store.
      *
      * @throws IOException if file cannot be written
      */
     public void saveToCSV() throws IOException {
-        String filePath = FilePathManager.getStaffFilePath();
-        List<String[]> data = new ArrayList<>();
-
-        for (Staff staff : staffList) {
-            String[] row = {
-                    staff.getStaffId(),
-                    staff.getFirstName(),
-                    staff.getLastName(),
-                    staff.getRole(),
-                    staff.getDepartment(),
-                    staff.getFacilityId(),
-                    staff.getPhoneNumber(),
-                    staff.getEmail(),
-                    staff.getEmploymentStatus(),
-                    formatDate(staff.getStartDate()),
-                    staff.getLineManager(),
-                    staff.getAccessLevel()
-            };
-            data.add(row);
-        }
+        repository.flush();
+        idSequence.save();
+    }
 
-        CSVWriter.writeCSV(filePath, CSV_HEADER, data);
+    /**
+     * Writes all staff members to a plain CSV file in the output folder,
+     * whichever snapshot format the repository keeps.
+     *
+     * @return Path of the exported file
+     * @throws IOException if file cannot be written
+     */
+    public String exportToCSV() throws IOException {
+        String filePath = FilePathManager.getExportFilePath(FilePathManager.getStaffFilePath());
+        repository.exportCSV(filePath);
+        return filePath;
     }
 
     /**
@@ -96,7 +89,7 @@ public class StaffController {
      * @return List of all staff
      */
     public List<Staff> getAllStaff() {
-        return new ArrayList<>(staffList);
+        return repository.findAll();
     }
 
     /**
@@ -106,10 +99,7 @@ public class StaffController {
      * @return The staff member, or null if not found
      */
     public Staff getStaffById(String staffId) {
-        return staffList.stream()
-                .filter(s -> s.getStaffId().equals(staffId))
-                .findFirst()
-                .orElse(null);
+        return repository.findById(staffId);
     }
 
     /**
@@ -119,9 +109,7 @@ public class StaffController {
      * @return List of staff at the facility
      */
     public List<Staff> getStaffByFacility(String facilityId) {
-        return staffList.stream()
-                .filter(s -> s.getFacilityId().equals(facilityId))
-                .collect(Collectors.toList());
+        return repository.query(s -> s.getFacilityId().equals(facilityId));
     }
 
     /**
@@ -131,9 +119,7 @@ public class StaffController {
      * @return List of staff with the role
      */
     public List<Staff> getStaffByRole(String role) {
-        return staffList.stream()
-                .filter(s -> s.getRole().equalsIgnoreCase(role))
-                .collect(Collectors.toList());
+        return repository.query(s -> s.getRole().equalsIgnoreCase(role));
     }
 
     /**
@@ -143,9 +129,7 @@ public class StaffController {
      * @return List of staff in the department
      */
     public List<Staff> getStaffByDepartment(String department) {
-        return staffList.stream()
-                .filter(s -> s.getDepartment().equalsIgnoreCase(department))
-                .collect(Collectors.toList());
+        return repository.query(s -> s.getDepartment().equalsIgnoreCase(department));
     }
 
     /**
@@ -156,11 +140,9 @@ public class StaffController {
      */
     public List<Staff> searchByName(String searchTerm) {
         String term = searchTerm.toLowerCase();
-        return staffList.stream()
-                .filter(s -> s.getFirstName().toLowerCase().contains(term) ||
-                        s.getLastName().toLowerCase().contains(term) ||
-                        s.getFullName().toLowerCase().contains(term))
-                .collect(Collectors.toList());
+        return repository.query(s -> s.getFirstName().toLowerCase().contains(term) ||
+                s.getLastName().toLowerCase().contains(term) ||
+                s.getFullName().toLowerCase().contains(term));
     }
 
     /**
@@ -169,7 +151,7 @@ public class StaffController {
      * @param staff The staff to add
      */
     public void addStaff(Staff staff) {
-        staffList.add(staff);
+        repository.insert(staff);
     }
 
     /**
@@ -179,13 +161,7 @@ public class StaffController {
      * @return true if updated, false if not found
      */
     public boolean updateStaff(Staff staff) {
-        for (int i = 0; i < staffList.size(); i++) {
-            if (staffList.get(i).getStaffId().equals(staff.getStaffId())) {
-                staffList.set(i, staff);
-                return true;
-            }
-        }
-        return false;
+        return repository.update(staff);
     }
 
     /**
@@ -195,7 +171,7 @@ public class StaffController {
      * @return true if deleted, false if not found
      */
     public boolean deleteStaff(String staffId) {
-        return staffList.removeIf(s -> s.getStaffId().equals(staffId));
+        return repository.delete(staffId);
     }
 
     /**
@@ -204,21 +180,7 @@ public class StaffController {
      * @return The next staff ID
      */
     public String getNextStaffId() {
-        int maxId = 0;
-        for (Staff s : staffList) {
-            String id = s.getStaffId();
-            if (id != null && id.startsWith("ST")) {
-                try {
-                    int num = Integer.parseInt(id.substring(2));
-                    if (num > maxId) {
-                        maxId = num;
-                    }
-                } catch (NumberFormatException e) {
-                    // Ignore
-                }
-            }
-        }
-        return String.format("ST%03d", maxId + 1);
+        return idSequence.next();
     }
 
     /**
@@ -227,7 +189,76 @@ public class StaffController {
      * @return Number of staff
      */
     public int getStaffCount() {
-        return staffList.size();
+        return repository.count();
+    }
+
+    private Staff fromRecord(String[] record) {
+        if (record.length < 12) {
+            return null;
+        }
+        Staff staff = new Staff();
+        staff.setStaffId(record[0]);
+        staff.setFirstName(record[1]);
+        staff.setLastName(record[2]);
+        staff.setRole(record[3]);
+        staff.setDepartment(record[4]);
+        staff.setFacilityId(record[5]);
+        staff.setPhoneNumber(record[6]);
+        staff.setEmail(record[7]);
+        staff.setEmploymentStatus(record[8]);
+        staff.setStartDate(parseDate(record[9]));
+        staff.setLineManager(record[10]);
+        staff.setAccessLevel(record[11]);
+        return staff;
+    }
+
+    private String[] toRecord(Staff staff) {
+        return new String[]{
+                staff.getStaffId(),
+                staff.getFirstName(),
+                staff.getLastName(),
+                staff.getRole(),
+                staff.getDepartment(),
+                staff.getFacilityId(),
+                staff.getPhoneNumber(),
+                staff.getEmail(),
+                staff.getEmploymentStatus(),
+                formatDate(staff.getStartDate()),
+                staff.getLineManager(),
+                staff.getAccessLevel()
+        };
+    }
+
+    private Staff fromSnapshot(BinarySnapshot snapshot, int row) {
+        Staff staff = new Staff();
+        staff.setStaffId(snapshot.getString(row, 0));
+        staff.setFirstName(snapshot.getString(row, 1));
+        staff.setLastName(snapshot.getString(row, 2));
+        staff.setRole(snapshot.getString(row, 3));
+        staff.setDepartment(snapshot.getString(row, 4));
+        staff.setFacilityId(snapshot.getString(row, 5));
+        staff.setPhoneNumber(snapshot.getString(row, 6));
+        staff.setEmail(snapshot.getString(row, 7));
+        staff.setEmploymentStatus(snapshot.getString(row, 8));
+        staff.setStartDate(snapshot.getDate(row, 9));
+        staff.setLineManager(snapshot.getString(row, 10));
+        staff.setAccessLevel(snapshot.getString(row, 11));
+        return staff;
+    }
+
+    private void toSnapshot(BinarySnapshot.Builder row, Staff staff) {
+        row.putString(staff.getStaffId());
+        row.putString(staff.getFirstName());
+        row.putString(staff.getLastName());
+        row.putString(staff.getRole());
+        row.putString(staff.getDepartment());
+        row.putString(staff.getFacilityId());
+        row.putString(staff.getPhoneNumber());
+        row.putString(staff.getEmail());
+        row.putString(staff.getEmploymentStatus());
+        row.putDate(staff.getStartDate());
+        row.putString(staff.getLineManager());
+        row.putString(staff.getAccessLevel());
     }
 
     private LocalDate parseDate(String dateStr) {
@@ -1,5 +1,7 @@
 package model;
 
+import util.StringPool;
+
 import java.time.LocalDate;
 import java.time.LocalTime;
 
@@ -16,7 +18,7 @@ public class Appointment {
     private LocalTime appointmentTime;
     private int durationMinutes;
     private String appointmentType;
-    private String status;
+    private AppointmentStatus status;
     private String reasonForVisit;
     private String notes;
     private LocalDate createdDate;
@@ -30,14 +32,14 @@ public class Appointment {
                        String appointmentType, String status, String reasonForVisit, String notes,
                        LocalDate createdDate, LocalDate lastModified) {
         this.appointmentId = appointmentId;
-        this.patientId = patientId;
-        this.clinicianId = clinicianId;
-        this.facilityId = facilityId;
+        this.patientId = StringPool.intern(patientId);
+        this.clinicianId = StringPool.intern(clinicianId);
+        this.facilityId = StringPool.intern(facilityId);
         this.appointmentDate = appointmentDate;
         this.appointmentTime = appointmentTime;
         this.durationMinutes = durationMinutes;
-        this.appointmentType = appointmentType;
-        this.status = status;
+        this.appointmentType = StringPool.intern(appointmentType);
+        this.status = AppointmentStatus.parse(status);
         this.reasonForVisit = reasonForVisit;
         this.notes = notes;
         this.createdDate = createdDate;
@@ -58,7 +60,7 @@ public class Appointment {
     }
 
     public void setPatientId(String patientId) {
-        this.patientId = patientId;
+        this.patientId = StringPool.intern(patientId);
     }
 
     public String getClinicianId() {
@@ -66,7 +68,7 @@ public class Appointment {
     }
 
     public void setClinicianId(String clinicianId) {
-        this.clinicianId = clinicianId;
+        this.clinicianId = StringPool.intern(clinicianId);
     }
 
     public String getFacilityId() {
@@ -74,7 +76,7 @@ public class Appointment {
     }
 
     public void setFacilityId(String facilityId) {
-        this.facilityId = facilityId;
+        this.facilityId = StringPool.intern(facilityId);
     }
 
     public LocalDate getAppointmentDate() {
@@ -106,15 +108,36 @@ public class Appointment {
     }
 
     public void setAppointmentType(String appointmentType) {
-        this.appointmentType = appointmentType;
+        this.appointmentType = StringPool.intern(appointmentType);
     }
 
+    /**
+     * Gets the status as it is stored in the data files and shown in the UI.
+     *
+     * @return The status label, or null if no status is set
+     */
     public String getStatus() {
+        return status != null ? status.getLabel() : null;
+    }
+
+    /**
+     * Gets the status as an enum, for fast comparisons.
+     *
+     * @return The status, or null if no status is set
+     */
+    public AppointmentStatus getStatusCode() {
         return status;
     }
 
+    /**
+     * Sets the status from its label, ignoring case.
+     * A null or empty label clears it.
+     *
+     * @param status The status label
+     * @throws IllegalArgumentException if the label is not a recognised status
+     */
     public void setStatus(String status) {
-        this.status = status;
+        this.status = AppointmentStatus.parse(status);
     }
 
     public String getReasonForVisit() {
@@ -150,15 +173,15 @@ public class Appointment {
     }
 
     public boolean isScheduled() {
-        return "Scheduled".equalsIgnoreCase(status);
+        return status == AppointmentStatus.SCHEDULED;
     }
 
     public boolean isCancelled() {
-        return "Cancelled".equalsIgnoreCase(status);
+        return status == AppointmentStatus.CANCELLED;
     }
 
     public boolean isCompleted() {
-        return "Completed".equalsIgnoreCase(status);
+        return status == AppointmentStatus.COMPLETED;
     }
 
     @Override
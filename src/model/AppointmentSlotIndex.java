@@ -0,0 +1,273 @@
+package model;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Index of the times booked by each clinician (or patient) on each day, used
+ * to spot double bookings.
+ *
+ * Every day a resource has appointments is kept as a bitmap with one bit per
+ * minute, so checking whether a time is free is a map lookup followed by a
+ * few word comparisons, however many appointments there are. Cancelled
+ * appointments do not occupy any time. Like {@code SecondaryIndex}, the index
+ * remembers where each appointment was filed, so an appointment edited in
+ * place is moved correctly when it is put again.
+ */
+public class AppointmentSlotIndex {
+
+    /** Number of minutes in a day, and so the number of bits in each day's bitmap. */
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private static final int WORDS_PER_DAY = (MINUTES_PER_DAY + Long.SIZE - 1) / Long.SIZE;
+
+    private final Function<Appointment, String> resourceExtractor;
+    private final Map<String, Map<LocalDate, DaySchedule>> schedules;
+    private final Map<String, Booking> bookingsById;
+
+    /**
+     * Creates an empty index.
+     *
+     * @param resourceExtractor Function returning who an appointment books, e.g. its clinician ID
+     */
+    public AppointmentSlotIndex(Function<Appointment, String> resourceExtractor) {
+        this.resourceExtractor = resourceExtractor;
+        this.schedules = new HashMap<>();
+        this.bookingsById = new HashMap<>();
+    }
+
+    /**
+     * Adds an appointment, or moves it to match its current resource, date,
+     * time, duration and status.
+     *
+     * @param appointment The appointment
+     */
+    public synchronized void put(Appointment appointment) {
+        remove(appointment.getAppointmentId());
+
+        String resourceId = resourceExtractor.apply(appointment);
+        LocalDate date = appointment.getAppointmentDate();
+        LocalTime time = appointment.getAppointmentTime();
+        if (resourceId == null || date == null || time == null || appointment.isCancelled()) {
+            return;
+        }
+        int start = minuteOfDay(time);
+        int end = endMinute(start, appointment.getDurationMinutes());
+        if (end <= start) {
+            return;
+        }
+
+        Booking booking = new Booking(appointment.getAppointmentId(), resourceId, date, start, end);
+        schedules.computeIfAbsent(resourceId, id -> new HashMap<>())
+                .computeIfAbsent(date, d -> new DaySchedule())
+                .add(booking);
+        bookingsById.put(booking.appointmentId, booking);
+    }
+
+    /**
+     * Removes an appointment from the index.
+     *
+     * @param appointmentId The appointment ID
+     */
+    public synchronized void remove(String appointmentId) {
+        Booking booking = bookingsById.remove(appointmentId);
+        if (booking == null) {
+            return;
+        }
+        Map<LocalDate, DaySchedule> days = schedules.get(booking.resourceId);
+        DaySchedule day = days.get(booking.date);
+        day.remove(booking);
+        if (day.bookings.isEmpty()) {
+            days.remove(booking.date);
+            if (days.isEmpty()) {
+                schedules.remove(booking.resourceId);
+            }
+        }
+    }
+
+    /**
+     * Clears the index and adds the given appointments.
+     *
+     * @param appointments The appointments to index
+     */
+    public synchronized void rebuild(Collection<Appointment> appointments) {
+        schedules.clear();
+        bookingsById.clear();
+        for (Appointment appointment : appointments) {
+            put(appointment);
+        }
+    }
+
+    /**
+     * Checks whether a resource has no appointment overlapping a time.
+     *
+     * @param resourceId      Clinician (or patient) ID
+     * @param date            The day
+     * @param time            Start time
+     * @param durationMinutes Length of the proposed appointment
+     * @return true if the whole period is free
+     */
+    public synchronized boolean isFree(String resourceId, LocalDate date, LocalTime time, int durationMinutes) {
+        DaySchedule day = getDay(resourceId, date);
+        if (day == null) {
+            return true;
+        }
+        int start = minuteOfDay(time);
+        return day.isFree(start, endMinute(start, durationMinutes));
+    }
+
+    /**
+     * Finds the appointments of a resource that overlap a time.
+     *
+     * @param resourceId      Clinician (or patient) ID
+     * @param date            The day
+     * @param time            Start time
+     * @param durationMinutes Length of the proposed appointment
+     * @param excludeId       Appointment to ignore, e.g. the one being edited (may be null)
+     * @return IDs of the overlapping appointments (empty if none)
+     */
+    public synchronized List<String> findConflicts(String resourceId, LocalDate date, LocalTime time,
+                                                   int durationMinutes, String excludeId) {
+        List<String> conflicts = new ArrayList<>();
+        DaySchedule day = getDay(resourceId, date);
+        if (day == null) {
+            return conflicts;
+        }
+        int start = minuteOfDay(time);
+        int end = endMinute(start, durationMinutes);
+        if (day.isFree(start, end)) {
+            return conflicts;
+        }
+        for (Booking booking : day.bookings.values()) {
+            if (booking.start < end && start < booking.end && !booking.appointmentId.equals(excludeId)) {
+                conflicts.add(booking.appointmentId);
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * Gets the minutes of a day a resource is booked.
+     *
+     * @param resourceId Clinician (or patient) ID
+     * @param date       The day
+     * @return A new bitmap with a bit set for each booked minute, which the caller may modify
+     */
+    public BitSet getBookedMinutes(String resourceId, LocalDate date) {
+        return getBookedMinutes(resourceId, date, null);
+    }
+
+    /**
+     * Gets the minutes of a day a resource is booked, leaving out one appointment.
+     *
+     * @param resourceId Clinician (or patient) ID
+     * @param date       The day
+     * @param excludeId  Appointment to ignore, e.g. the one being edited (may be null)
+     * @return A new bitmap with a bit set for each booked minute, which the caller may modify
+     */
+    public synchronized BitSet getBookedMinutes(String resourceId, LocalDate date, String excludeId) {
+        DaySchedule day = getDay(resourceId, date);
+        if (day == null) {
+            return new BitSet(MINUTES_PER_DAY);
+        }
+        if (excludeId == null || !day.bookings.containsKey(excludeId)) {
+            return BitSet.valueOf(day.minutes);
+        }
+        BitSet booked = new BitSet(MINUTES_PER_DAY);
+        for (Booking booking : day.bookings.values()) {
+            if (!booking.appointmentId.equals(excludeId)) {
+                booked.set(booking.start, booking.end);
+            }
+        }
+        return booked;
+    }
+
+    private DaySchedule getDay(String resourceId, LocalDate date) {
+        Map<LocalDate, DaySchedule> days = schedules.get(resourceId);
+        return days != null ? days.get(date) : null;
+    }
+
+    private static int minuteOfDay(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    private static int endMinute(int start, int durationMinutes) {
+        // Appointments running past midnight are cut off at the end of the day
+        return Math.min(start + Math.max(durationMinutes, 0), MINUTES_PER_DAY);
+    }
+
+    /**
+     * One appointment's place in the index.
+     */
+    private static class Booking {
+        private final String appointmentId;
+        private final String resourceId;
+        private final LocalDate date;
+        private final int start;
+        private final int end;
+
+        Booking(String appointmentId, String resourceId, LocalDate date, int start, int end) {
+            this.appointmentId = appointmentId;
+            this.resourceId = resourceId;
+            this.date = date;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Bookings of one resource on one day, with a bitmap of the minutes they occupy.
+     */
+    private static class DaySchedule {
+        private final long[] minutes = new long[WORDS_PER_DAY];
+        private final Map<String, Booking> bookings = new HashMap<>();
+
+        void add(Booking booking) {
+            bookings.put(booking.appointmentId, booking);
+            mark(booking.start, booking.end);
+        }
+
+        void remove(Booking booking) {
+            bookings.remove(booking.appointmentId);
+            // Existing data may hold overlapping appointments, so rebuild rather than clear bits
+            Arrays.fill(minutes, 0L);
+            for (Booking remaining : bookings.values()) {
+                mark(remaining.start, remaining.end);
+            }
+        }
+
+        boolean isFree(int start, int end) {
+            for (int word = start / Long.SIZE; start < end; word++) {
+                int wordEnd = Math.min(end, (word + 1) * Long.SIZE);
+                if ((minutes[word] & mask(start, wordEnd)) != 0) {
+                    return false;
+                }
+                start = wordEnd;
+            }
+            return true;
+        }
+
+        private void mark(int start, int end) {
+            for (int word = start / Long.SIZE; start < end; word++) {
+                int wordEnd = Math.min(end, (word + 1) * Long.SIZE);
+                minutes[word] |= mask(start, wordEnd);
+                start = wordEnd;
+            }
+        }
+
+        /** Bits for minutes [start, end), which must lie within one word. */
+        private static long mask(int start, int end) {
+            int count = end - start;
+            long bits = count == Long.SIZE ? -1L : (1L << count) - 1;
+            return bits << (start % Long.SIZE);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package model;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Status of an appointment.
+ * Lets code compare appointment statuses by reference instead of by text.
+ */
+public enum AppointmentStatus {
+    SCHEDULED("Scheduled"),
+    COMPLETED("Completed"),
+    CANCELLED("Cancelled");
+
+    private static final Map<String, AppointmentStatus> BY_LABEL = new HashMap<>();
+
+    static {
+        for (AppointmentStatus value : values()) {
+            BY_LABEL.put(value.label, value);
+            BY_LABEL.put(value.label.toLowerCase(Locale.ROOT), value);
+        }
+    }
+
+    private final String label;
+
+    AppointmentStatus(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Gets the text stored in the data files and shown in the UI.
+     *
+     * @return The label, e.g. "Scheduled"
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Finds the value with a label, ignoring case.
+     *
+     * @param label The label, may be null
+     * @return The matching value, or null if the label is not recognised
+     */
+    public static AppointmentStatus fromLabel(String label) {
+        if (label == null) {
+            return null;
+        }
+        AppointmentStatus value = BY_LABEL.get(label);
+        return value != null ? value : BY_LABEL.get(label.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Finds the value with a label, ignoring case, for storing on an entity.
+     * Rejects unknown labels rather than dropping them, so text that is not a
+     * appointment status is never silently replaced by an empty value on the next save.
+     *
+     * @param label The label, may be null or empty for none
+     * @return The matching value, or null if the label is null or empty
+     * @throws IllegalArgumentException if the label is not recognised
+     */
+    public static AppointmentStatus parse(String label) {
+        if (label == null || label.isEmpty()) {
+            return null;
+        }
+        AppointmentStatus value = fromLabel(label);
+        if (value == null) {
+            throw new IllegalArgumentException("Unknown appointment status '" + label + "'");
+        }
+        return value;
+    }
+}
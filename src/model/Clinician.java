@@ -1,5 +1,7 @@
 package model;
 
+import util.StringPool;
+
 import java.time.LocalDate;
 
 /**
@@ -26,17 +28,17 @@ public class Clinician {
     public Clinician(String clinicianId, String firstName, String lastName, String title,
                      String speciality, String gmcNumber, String phoneNumber, String email,
                      String workplaceId, String workplaceType, String employmentStatus, LocalDate startDate) {
-        this.clinicianId = clinicianId;
+        this.clinicianId = StringPool.intern(clinicianId);
         this.firstName = firstName;
         this.lastName = lastName;
-        this.title = title;
-        this.speciality = speciality;
+        this.title = StringPool.intern(title);
+        this.speciality = StringPool.intern(speciality);
         this.gmcNumber = gmcNumber;
         this.phoneNumber = phoneNumber;
         this.email = email;
-        this.workplaceId = workplaceId;
-        this.workplaceType = workplaceType;
-        this.employmentStatus = employmentStatus;
+        this.workplaceId = StringPool.intern(workplaceId);
+        this.workplaceType = StringPool.intern(workplaceType);
+        this.employmentStatus = StringPool.intern(employmentStatus);
         this.startDate = startDate;
     }
 
@@ -46,7 +48,7 @@ public class Clinician {
     }
 
     public void setClinicianId(String clinicianId) {
-        this.clinicianId = clinicianId;
+        this.clinicianId = StringPool.intern(clinicianId);
     }
 
     public String getFirstName() {
@@ -74,7 +76,7 @@ public class Clinician {
     }
 
     public void setTitle(String title) {
-        this.title = title;
+        this.title = StringPool.intern(title);
     }
 
     public String getSpeciality() {
@@ -82,7 +84,7 @@ public class Clinician {
     }
 
     public void setSpeciality(String speciality) {
-        this.speciality = speciality;
+        this.speciality = StringPool.intern(speciality);
     }
 
     public String getGmcNumber() {
@@ -114,7 +116,7 @@ public class Clinician {
     }
 
     public void setWorkplaceId(String workplaceId) {
-        this.workplaceId = workplaceId;
+        this.workplaceId = StringPool.intern(workplaceId);
     }
 
     public String getWorkplaceType() {
@@ -122,7 +124,7 @@ public class Clinician {
     }
 
     public void setWorkplaceType(String workplaceType) {
-        this.workplaceType = workplaceType;
+        this.workplaceType = StringPool.intern(workplaceType);
     }
 
     public String getEmploymentStatus() {
@@ -130,7 +132,7 @@ public class Clinician {
     }
 
     public void setEmploymentStatus(String employmentStatus) {
-        this.employmentStatus = employmentStatus;
+        this.employmentStatus = StringPool.intern(employmentStatus);
     }
 
     public LocalDate getStartDate() {
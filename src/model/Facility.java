@@ -1,5 +1,8 @@
 package model;
 
+import util.StringPool;
+
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 
@@ -16,6 +19,7 @@ public class Facility {
     private String phoneNumber;
     private String email;
     private String openingHours;
+    private OpeningHours parsedOpeningHours = OpeningHours.parse(null);
     private String managerName;
     private int capacity;
     private String specialitiesOffered;
@@ -26,14 +30,14 @@ public class Facility {
     public Facility(String facilityId, String facilityName, String facilityType, String address,
                     String postcode, String phoneNumber, String email, String openingHours,
                     String managerName, int capacity, String specialitiesOffered) {
-        this.facilityId = facilityId;
+        this.facilityId = StringPool.intern(facilityId);
         this.facilityName = facilityName;
-        this.facilityType = facilityType;
+        this.facilityType = StringPool.intern(facilityType);
         this.address = address;
         this.postcode = postcode;
         this.phoneNumber = phoneNumber;
         this.email = email;
-        this.openingHours = openingHours;
+        setOpeningHours(openingHours);
         this.managerName = managerName;
         this.capacity = capacity;
         this.specialitiesOffered = specialitiesOffered;
@@ -45,7 +49,7 @@ public class Facility {
     }
 
     public void setFacilityId(String facilityId) {
-        this.facilityId = facilityId;
+        this.facilityId = StringPool.intern(facilityId);
     }
 
     public String getFacilityName() {
@@ -61,7 +65,7 @@ public class Facility {
     }
 
     public void setFacilityType(String facilityType) {
-        this.facilityType = facilityType;
+        this.facilityType = StringPool.intern(facilityType);
     }
 
     public String getAddress() {
@@ -102,6 +106,26 @@ public class Facility {
 
     public void setOpeningHours(String openingHours) {
         this.openingHours = openingHours;
+        this.parsedOpeningHours = OpeningHours.parse(openingHours);
+    }
+
+    /**
+     * Gets the opening hours, parsed when they were set.
+     *
+     * @return The parsed opening hours
+     */
+    public OpeningHours getParsedOpeningHours() {
+        return parsedOpeningHours;
+    }
+
+    /**
+     * Checks whether the facility is open at a time.
+     *
+     * @param time The date and time
+     * @return true if open
+     */
+    public boolean isOpenAt(LocalDateTime time) {
+        return parsedOpeningHours.isOpenAt(time);
     }
 
     public String getManagerName() {
@@ -0,0 +1,341 @@
+package model;
+
+import util.FilePathManager;
+import util.TextTemplate;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Letters the system sends to patients and clinicians: referral letters,
+ * appointment reminders and prescription notices.
+ *
+ * Each letter type is a {@link TextTemplate} compiled once when this class is
+ * loaded. The render methods are safe to call from several threads. Any of
+ * the related patients, clinicians and facilities may be null, in which case
+ * their part of the letter is left out.
+ */
+public final class LetterTemplates {
+
+    private static final DateTimeFormatter FILE_TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+    private static final DateTimeFormatter LETTER_TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+
+    private static final String REFERRAL_SOURCE = """
+            ============================================================
+                             REFERRAL LETTER
+            ============================================================
+
+            Referral ID: {{referralId}}
+            Date: {{referralDate}}
+            Urgency: {{urgency}}
+
+            ------------------------------------------------------------
+            PATIENT DETAILS
+            ------------------------------------------------------------
+            {{#patient}}Name: {{patientName}}
+            Date of Birth: {{patientDateOfBirth}}
+            NHS Number: {{patientNhsNumber}}
+            Address: {{patientAddress}}
+            Phone: {{patientPhone}}
+            {{/patient}}
+            ------------------------------------------------------------
+            REFERRING CLINICIAN
+            ------------------------------------------------------------
+            {{#fromClinician}}Name: {{fromClinicianName}}
+            Title: {{fromClinicianTitle}}
+            Email: {{fromClinicianEmail}}
+            {{/fromClinician}}{{#fromFacility}}Facility: {{fromFacilityName}}
+            Address: {{fromFacilityAddress}}
+            {{/fromFacility}}
+            ------------------------------------------------------------
+            REFERRED TO
+            ------------------------------------------------------------
+            {{#toClinician}}Name: {{toClinicianName}}
+            Speciality: {{toClinicianSpeciality}}
+            Email: {{toClinicianEmail}}
+            {{/toClinician}}{{#toFacility}}Facility: {{toFacilityName}}
+            Address: {{toFacilityAddress}}
+            {{/toFacility}}
+            ------------------------------------------------------------
+            CLINICAL INFORMATION
+            ------------------------------------------------------------
+            Reason for Referral: {{reason}}
+
+            Clinical Summary:
+            {{clinicalSummary}}
+
+            Requested Investigations: {{investigations}}
+
+            {{#notes}}Additional Notes: {{notes}}
+            {{/notes}}
+            ============================================================
+            This referral was generated by the Healthcare Management System
+            Generated on: {{generatedOn}}
+            ============================================================
+            """;
+
+    private static final String APPOINTMENT_REMINDER_SOURCE = """
+            ============================================================
+                             APPOINTMENT REMINDER
+            ============================================================
+
+            {{#patient}}Dear {{patientName}},
+
+            {{/patient}}This is a reminder of your upcoming appointment.
+
+            Appointment ID: {{appointmentId}}
+            Date: {{date}}
+            Time: {{time}}
+            Duration: {{duration}} minutes
+            Type: {{type}}
+            {{#clinician}}Clinician: {{clinicianName}}
+            {{/clinician}}{{#reason}}Reason for Visit: {{reason}}
+            {{/reason}}
+            {{#facility}}------------------------------------------------------------
+            LOCATION
+            ------------------------------------------------------------
+            {{facilityName}}
+            {{facilityAddress}} {{facilityPostcode}}
+            Phone: {{facilityPhone}}
+
+            {{/facility}}Please arrive 10 minutes before your appointment time. If you
+            cannot attend, please let us know as soon as possible so the
+            appointment can be offered to another patient.
+
+            ============================================================
+            Generated on: {{generatedOn}}
+            ============================================================
+            """;
+
+    private static final String PRESCRIPTION_NOTICE_SOURCE = """
+            ============================================================
+                             PRESCRIPTION NOTICE
+            ============================================================
+
+            Prescription ID: {{prescriptionId}}
+            Date: {{prescriptionDate}}
+            Status: {{status}}
+            {{#patient}}Patient: {{patientName}}
+            NHS Number: {{patientNhsNumber}}
+            {{/patient}}{{#clinician}}Prescriber: {{clinicianName}}
+            {{/clinician}}
+            ------------------------------------------------------------
+            MEDICATION
+            ------------------------------------------------------------
+            Medication: {{medication}}
+            Dosage: {{dosage}}
+            Frequency: {{frequency}}
+            Duration: {{durationDays}} days
+            Quantity: {{quantity}}
+            {{#instructions}}Instructions: {{instructions}}
+            {{/instructions}}
+            {{#pharmacy}}Collect from: {{pharmacy}}
+            {{/pharmacy}}{{#issueDate}}Issued: {{issueDate}}
+            {{/issueDate}}
+            ============================================================
+            Generated on: {{generatedOn}}
+            ============================================================
+            """;
+
+    private static final TextTemplate<ReferralLetter> REFERRAL =
+            TextTemplate.compile(REFERRAL_SOURCE, referralFields());
+    private static final TextTemplate<AppointmentReminder> APPOINTMENT_REMINDER =
+            TextTemplate.compile(APPOINTMENT_REMINDER_SOURCE, appointmentReminderFields());
+    private static final TextTemplate<PrescriptionNotice> PRESCRIPTION_NOTICE =
+            TextTemplate.compile(PRESCRIPTION_NOTICE_SOURCE, prescriptionNoticeFields());
+
+    private LetterTemplates() {
+    }
+
+    /**
+     * Renders a referral letter.
+     *
+     * @param referral            The referral
+     * @param patient             The patient being referred
+     * @param referringClinician  The clinician making the referral
+     * @param referredToClinician The clinician receiving the referral
+     * @param referringFacility   The facility making the referral
+     * @param referredToFacility  The facility receiving the referral
+     * @return The letter text
+     */
+    public static String renderReferralLetter(Referral referral, Patient patient,
+                                              Clinician referringClinician, Clinician referredToClinician,
+                                              Facility referringFacility, Facility referredToFacility) {
+        return REFERRAL.render(new ReferralLetter(referral, patient, referringClinician, referredToClinician,
+                referringFacility, referredToFacility));
+    }
+
+    /**
+     * Renders a reminder letter for an appointment.
+     *
+     * @param appointment The appointment
+     * @param patient     The patient attending
+     * @param clinician   The clinician seeing the patient
+     * @param facility    Where the appointment takes place
+     * @return The letter text
+     */
+    public static String renderAppointmentReminder(Appointment appointment, Patient patient,
+                                                   Clinician clinician, Facility facility) {
+        return APPOINTMENT_REMINDER.render(new AppointmentReminder(appointment, patient, clinician, facility));
+    }
+
+    /**
+     * Renders a notice telling a patient about a prescription.
+     *
+     * @param prescription The prescription
+     * @param patient      The patient it was prescribed for
+     * @param clinician    The prescribing clinician
+     * @return The letter text
+     */
+    public static String renderPrescriptionNotice(Prescription prescription, Patient patient, Clinician clinician) {
+        return PRESCRIPTION_NOTICE.render(new PrescriptionNotice(prescription, patient, clinician));
+    }
+
+    /**
+     * Saves a letter to a timestamped text file in the output directory.
+     *
+     * @param prefix Start of the file name, e.g. {@code referral_R001}
+     * @param text   The letter text
+     * @return The file path where the letter was saved
+     * @throws IOException if the file cannot be written
+     */
+    public static String saveLetter(String prefix, String text) throws IOException {
+        String filename = prefix + "_" + LocalDateTime.now().format(FILE_TIMESTAMP_FORMAT) + ".txt";
+        String filePath = FilePathManager.getOutputFilePath(filename);
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
+            writer.write(text);
+        }
+        return filePath;
+    }
+
+    private static String generatedOn() {
+        return LocalDateTime.now().format(LETTER_TIMESTAMP_FORMAT);
+    }
+
+    private static Map<String, Function<ReferralLetter, ?>> referralFields() {
+        Map<String, Function<ReferralLetter, ?>> fields = new HashMap<>();
+        fields.put("referralId", l -> l.referral.getReferralId());
+        fields.put("referralDate", l -> l.referral.getReferralDate());
+        fields.put("urgency", l -> l.referral.getUrgencyLevel());
+        fields.put("reason", l -> l.referral.getReferralReason());
+        fields.put("clinicalSummary", l -> l.referral.getClinicalSummary());
+        fields.put("investigations", l -> l.referral.getRequestedInvestigations());
+        fields.put("notes", l -> l.referral.getNotes());
+        fields.put("patient", l -> l.patient);
+        fields.put("patientName", l -> l.patient.getFullName());
+        fields.put("patientDateOfBirth", l -> l.patient.getDateOfBirth());
+        fields.put("patientNhsNumber", l -> l.patient.getNhsNumber());
+        fields.put("patientAddress", l -> l.patient.getAddress());
+        fields.put("patientPhone", l -> l.patient.getPhoneNumber());
+        fields.put("fromClinician", l -> l.referringClinician);
+        fields.put("fromClinicianName", l -> l.referringClinician.getFullName());
+        fields.put("fromClinicianTitle", l -> l.referringClinician.getTitle());
+        fields.put("fromClinicianEmail", l -> l.referringClinician.getEmail());
+        fields.put("toClinician", l -> l.referredToClinician);
+        fields.put("toClinicianName", l -> l.referredToClinician.getFullName());
+        fields.put("toClinicianSpeciality", l -> l.referredToClinician.getSpeciality());
+        fields.put("toClinicianEmail", l -> l.referredToClinician.getEmail());
+        fields.put("fromFacility", l -> l.referringFacility);
+        fields.put("fromFacilityName", l -> l.referringFacility.getFacilityName());
+        fields.put("fromFacilityAddress", l -> l.referringFacility.getAddress());
+        fields.put("toFacility", l -> l.referredToFacility);
+        fields.put("toFacilityName", l -> l.referredToFacility.getFacilityName());
+        fields.put("toFacilityAddress", l -> l.referredToFacility.getAddress());
+        fields.put("generatedOn", l -> generatedOn());
+        return fields;
+    }
+
+    private static Map<String, Function<AppointmentReminder, ?>> appointmentReminderFields() {
+        Map<String, Function<AppointmentReminder, ?>> fields = new HashMap<>();
+        fields.put("appointmentId", l -> l.appointment.getAppointmentId());
+        fields.put("date", l -> l.appointment.getAppointmentDate());
+        fields.put("time", l -> l.appointment.getAppointmentTime());
+        fields.put("duration", l -> l.appointment.getDurationMinutes());
+        fields.put("type", l -> l.appointment.getAppointmentType());
+        fields.put("reason", l -> l.appointment.getReasonForVisit());
+        fields.put("patient", l -> l.patient);
+        fields.put("patientName", l -> l.patient.getFullName());
+        fields.put("clinician", l -> l.clinician);
+        fields.put("clinicianName", l -> l.clinician.getFullName());
+        fields.put("facility", l -> l.facility);
+        fields.put("facilityName", l -> l.facility.getFacilityName());
+        fields.put("facilityAddress", l -> l.facility.getAddress());
+        fields.put("facilityPostcode", l -> l.facility.getPostcode());
+        fields.put("facilityPhone", l -> l.facility.getPhoneNumber());
+        fields.put("generatedOn", l -> generatedOn());
+        return fields;
+    }
+
+    private static Map<String, Function<PrescriptionNotice, ?>> prescriptionNoticeFields() {
+        Map<String, Function<PrescriptionNotice, ?>> fields = new HashMap<>();
+        fields.put("prescriptionId", l -> l.prescription.getPrescriptionId());
+        fields.put("prescriptionDate", l -> l.prescription.getPrescriptionDate());
+        fields.put("status", l -> l.prescription.getStatus());
+        fields.put("medication", l -> l.prescription.getMedicationName());
+        fields.put("dosage", l -> l.prescription.getDosage());
+        fields.put("frequency", l -> l.prescription.getFrequency());
+        fields.put("durationDays", l -> l.prescription.getDurationDays());
+        fields.put("quantity", l -> l.prescription.getQuantity());
+        fields.put("instructions", l -> l.prescription.getInstructions());
+        fields.put("pharmacy", l -> l.prescription.getPharmacyName());
+        fields.put("issueDate", l -> l.prescription.getIssueDate());
+        fields.put("patient", l -> l.patient);
+        fields.put("patientName", l -> l.patient.getFullName());
+        fields.put("patientNhsNumber", l -> l.patient.getNhsNumber());
+        fields.put("clinician", l -> l.clinician);
+        fields.put("clinicianName", l -> l.clinician.getFullName());
+        fields.put("generatedOn", l -> generatedOn());
+        return fields;
+    }
+
+    private static class ReferralLetter {
+        private final Referral referral;
+        private final Patient patient;
+        private final Clinician referringClinician;
+        private final Clinician referredToClinician;
+        private final Facility referringFacility;
+        private final Facility referredToFacility;
+
+        ReferralLetter(Referral referral, Patient patient, Clinician referringClinician,
+                       Clinician referredToClinician, Facility referringFacility, Facility referredToFacility) {
+            this.referral = referral;
+            this.patient = patient;
+            this.referringClinician = referringClinician;
+            this.referredToClinician = referredToClinician;
+            this.referringFacility = referringFacility;
+            this.referredToFacility = referredToFacility;
+        }
+    }
+
+    private static class AppointmentReminder {
+        private final Appointment appointment;
+        private final Patient patient;
+        private final Clinician clinician;
+        private final Facility facility;
+
+        AppointmentReminder(Appointment appointment, Patient patient, Clinician clinician, Facility facility) {
+            this.appointment = appointment;
+            this.patient = patient;
+            this.clinician = clinician;
+            this.facility = facility;
+        }
+    }
+
+    private static class PrescriptionNotice {
+        private final Prescription prescription;
+        private final Patient patient;
+        private final Clinician clinician;
+
+        PrescriptionNotice(Prescription prescription, Patient patient, Clinician clinician) {
+            this.prescription = prescription;
+            this.patient = patient;
+            this.clinician = clinician;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Weekly opening hours of a facility, parsed from text such as
+ * {@code "Mon-Fri: 8:00-18:00, Sat: 8:00-12:00"} or
+ * {@code "24/7 Emergency, Outpatients: Mon-Fri 8:00-17:00"}.
+ *
+ * The day and time ranges are the hours when appointments can be booked.
+ * Each day is held as a bitmap with one bit per minute of the day, matching
+ * {@link AppointmentSlotIndex}, so free appointment times can be found by
+ * combining bitmaps. A facility marked 24/7 (such as an emergency department)
+ * is also open at every other time, but that does not add bookable hours.
+ *
+ * Instances are immutable. Parsed hours are shared between facilities with
+ * the same text, so parsing a large facility list stays cheap.
+ */
+public class OpeningHours {
+
+    private static final String DAY = "(Daily|Mon|Tue|Wed|Thu|Fri|Sat|Sun)[a-z]*";
+    private static final Pattern DAYS_AND_TIMES = Pattern.compile(
+            DAY + "(?:\\s*-\\s*" + DAY + ")?\\s*:?\\s*(\\d{1,2})[:.](\\d{2})\\s*-\\s*(\\d{1,2})[:.](\\d{2})",
+            Pattern.CASE_INSENSITIVE);
+    private static final String[] DAY_NAMES = {"mon", "tue", "wed", "thu", "fri", "sat", "sun"};
+    private static final int MAX_CACHED = 10000;
+    private static final ConcurrentMap<String, OpeningHours> PARSED = new ConcurrentHashMap<>();
+
+    private final BitSet[] openMinutes;
+    private final boolean aroundTheClock;
+
+    private OpeningHours(BitSet[] openMinutes, boolean aroundTheClock) {
+        this.openMinutes = openMinutes;
+        this.aroundTheClock = aroundTheClock;
+    }
+
+    /**
+     * Parses opening hours text. Text that cannot be understood gives no opening hours.
+     *
+     * @param text Opening hours, may be null
+     * @return The parsed opening hours
+     */
+    public static OpeningHours parse(String text) {
+        if (text == null) {
+            text = "";
+        }
+        OpeningHours cached = PARSED.get(text);
+        if (cached != null) {
+            return cached;
+        }
+        OpeningHours parsed = doParse(text);
+        if (PARSED.size() < MAX_CACHED) {
+            PARSED.putIfAbsent(text, parsed);
+        }
+        return parsed;
+    }
+
+    private static OpeningHours doParse(String text) {
+        BitSet[] openMinutes = new BitSet[DAY_NAMES.length];
+        for (int day = 0; day < openMinutes.length; day++) {
+            openMinutes[day] = new BitSet(AppointmentSlotIndex.MINUTES_PER_DAY);
+        }
+
+        Matcher matcher = DAYS_AND_TIMES.matcher(text);
+        while (matcher.find()) {
+            int firstDay;
+            int lastDay;
+            if ("daily".equalsIgnoreCase(matcher.group(1))) {
+                firstDay = 0;
+                lastDay = DAY_NAMES.length - 1;
+            } else {
+                firstDay = dayIndex(matcher.group(1));
+                lastDay = matcher.group(2) != null ? dayIndex(matcher.group(2)) : firstDay;
+            }
+            int open = minuteOfDay(matcher.group(3), matcher.group(4));
+            int close = minuteOfDay(matcher.group(5), matcher.group(6));
+            if (close <= open) {
+                continue;
+            }
+            // Ranges such as Sat-Mon wrap round the end of the week
+            for (int day = firstDay; ; day = (day + 1) % DAY_NAMES.length) {
+                openMinutes[day].set(open, close);
+                if (day == lastDay) {
+                    break;
+                }
+            }
+        }
+        return new OpeningHours(openMinutes, text.contains("24/7"));
+    }
+
+    /**
+     * Checks whether the facility is open at a time, including 24/7 services.
+     *
+     * @param time The date and time
+     * @return true if open
+     */
+    public boolean isOpenAt(LocalDateTime time) {
+        if (aroundTheClock) {
+            return true;
+        }
+        int minute = time.getHour() * 60 + time.getMinute();
+        return openMinutes[time.getDayOfWeek().getValue() - 1].get(minute);
+    }
+
+    /**
+     * Checks whether the facility is open around the clock, e.g. for emergencies.
+     *
+     * @return true if open 24/7
+     */
+    public boolean isAroundTheClock() {
+        return aroundTheClock;
+    }
+
+    /**
+     * Gets the minutes of a day when the facility is open for appointments.
+     *
+     * @param day Day of the week
+     * @return A new bitmap with a bit set for each open minute, which the caller may modify
+     */
+    public BitSet getOpenMinutes(DayOfWeek day) {
+        return (BitSet) openMinutes[day.getValue() - 1].clone();
+    }
+
+    private static int dayIndex(String name) {
+        String prefix = name.substring(0, 3).toLowerCase();
+        for (int day = 0; day < DAY_NAMES.length; day++) {
+            if (DAY_NAMES[day].equals(prefix)) {
+                return day;
+            }
+        }
+        throw new IllegalArgumentException("Unknown day " + name);
+    }
+
+    private static int minuteOfDay(String hours, String minutes) {
+        int minute = Integer.parseInt(hours) * 60 + Integer.parseInt(minutes);
+        return Math.min(minute, AppointmentSlotIndex.MINUTES_PER_DAY);
+    }
+}
@@ -1,5 +1,7 @@
 package model;
 
+import util.StringPool;
+
 import java.time.LocalDate;
 
 /**
@@ -29,12 +31,12 @@ public class Patient {
                    String nhsNumber, String gender, String phoneNumber, String email,
                    String address, String postcode, String emergencyContactName,
                    String emergencyContactPhone, LocalDate registrationDate, String gpSurgeryId) {
-        this.patientId = patientId;
+        this.patientId = StringPool.intern(patientId);
         this.firstName = firstName;
         this.lastName = lastName;
         this.dateOfBirth = dateOfBirth;
         this.nhsNumber = nhsNumber;
-        this.gender = gender;
+        this.gender = StringPool.intern(gender);
         this.phoneNumber = phoneNumber;
         this.email = email;
         this.address = address;
@@ -42,7 +44,7 @@ public class Patient {
         this.emergencyContactName = emergencyContactName;
         this.emergencyContactPhone = emergencyContactPhone;
         this.registrationDate = registrationDate;
-        this.gpSurgeryId = gpSurgeryId;
+        this.gpSurgeryId = StringPool.intern(gpSurgeryId);
     }
 
     // Getters and Setters
@@ -51,7 +53,7 @@ public class Patient {
     }
 
     public void setPatientId(String patientId) {
-        this.patientId = patientId;
+        this.patientId = StringPool.intern(patientId);
     }
 
     public String getFirstName() {
@@ -95,7 +97,7 @@ public class Patient {
     }
 
     public void setGender(String gender) {
-        this.gender = gender;
+        this.gender = StringPool.intern(gender);
     }
 
     public String getPhoneNumber() {
@@ -159,7 +161,7 @@ public class Patient {
     }
 
     public void setGpSurgeryId(String gpSurgeryId) {
-        this.gpSurgeryId = gpSurgeryId;
+        this.gpSurgeryId = StringPool.intern(gpSurgeryId);
     }
 
     @Override
@@ -1,5 +1,7 @@
 package model;
 
+import util.StringPool;
+
 import java.time.LocalDate;
 
 /**
@@ -19,7 +21,7 @@ public class Prescription {
     private String quantity;
     private String instructions;
     private String pharmacyName;
-    private String status;
+    private PrescriptionStatus status;
     private LocalDate issueDate;
     private LocalDate collectionDate;
 
@@ -31,18 +33,18 @@ public class Prescription {
                         int durationDays, String quantity, String instructions, String pharmacyName,
                         String status, LocalDate issueDate, LocalDate collectionDate) {
         this.prescriptionId = prescriptionId;
-        this.patientId = patientId;
-        this.clinicianId = clinicianId;
-        this.appointmentId = appointmentId;
+        this.patientId = StringPool.intern(patientId);
+        this.clinicianId = StringPool.intern(clinicianId);
+        this.appointmentId = StringPool.intern(appointmentId);
         this.prescriptionDate = prescriptionDate;
         this.medicationName = medicationName;
-        this.dosage = dosage;
-        this.frequency = frequency;
+        this.dosage = StringPool.intern(dosage);
+        this.frequency = StringPool.intern(frequency);
         this.durationDays = durationDays;
         this.quantity = quantity;
         this.instructions = instructions;
-        this.pharmacyName = pharmacyName;
-        this.status = status;
+        this.pharmacyName = StringPool.intern(pharmacyName);
+        this.status = PrescriptionStatus.parse(status);
         this.issueDate = issueDate;
         this.collectionDate = collectionDate;
     }
@@ -61,7 +63,7 @@ public class Prescription {
     }
 
     public void setPatientId(String patientId) {
-        this.patientId = patientId;
+        this.patientId = StringPool.intern(patientId);
     }
 
     public String getClinicianId() {
@@ -69,7 +71,7 @@ public class Prescription {
     }
 
     public void setClinicianId(String clinicianId) {
-        this.clinicianId = clinicianId;
+        this.clinicianId = StringPool.intern(clinicianId);
     }
 
     public String getAppointmentId() {
@@ -77,7 +79,7 @@ public class Prescription {
     }
 
     public void setAppointmentId(String appointmentId) {
-        this.appointmentId = appointmentId;
+        this.appointmentId = StringPool.intern(appointmentId);
     }
 
     public LocalDate getPrescriptionDate() {
@@ -101,7 +103,7 @@ public class Prescription {
     }
 
     public void setDosage(String dosage) {
-        this.dosage = dosage;
+        this.dosage = StringPool.intern(dosage);
     }
 
     public String getFrequency() {
@@ -109,7 +111,7 @@ public class Prescription {
     }
 
     public void setFrequency(String frequency) {
-        this.frequency = frequency;
+        this.frequency = StringPool.intern(frequency);
     }
 
     public int getDurationDays() {
@@ -141,15 +143,36 @@ public class Prescription {
     }
 
     public void setPharmacyName(String pharmacyName) {
-        this.pharmacyName = pharmacyName;
+        this.pharmacyName = StringPool.intern(pharmacyName);
     }
 
+    /**
+     * Gets the status as it is stored in the data files and shown in the UI.
+     *
+     * @return The status label, or null if no status is set
+     */
     public String getStatus() {
+        return status != null ? status.getLabel() : null;
+    }
+
+    /**
+     * Gets the status as an enum, for fast comparisons.
+     *
+     * @return The status, or null if no status is set
+     */
+    public PrescriptionStatus getStatusCode() {
         return status;
     }
 
+    /**
+     * Sets the status from its label, ignoring case.
+     * A null or empty label clears it.
+     *
+     * @param status The status label
+     * @throws IllegalArgumentException if the label is not a recognised status
+     */
     public void setStatus(String status) {
-        this.status = status;
+        this.status = PrescriptionStatus.parse(status);
     }
 
     public LocalDate getIssueDate() {
@@ -169,11 +192,11 @@ public class Prescription {
     }
 
     public boolean isIssued() {
-        return "Issued".equalsIgnoreCase(status);
+        return status == PrescriptionStatus.ISSUED;
     }
 
     public boolean isCollected() {
-        return "Collected".equalsIgnoreCase(status);
+        return status == PrescriptionStatus.COLLECTED;
     }
 
     @Override
@@ -0,0 +1,72 @@
+package model;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Status of a prescription.
+ * Lets code compare prescription statuses by reference instead of by text.
+ */
+public enum PrescriptionStatus {
+    ISSUED("Issued"),
+    COLLECTED("Collected");
+
+    private static final Map<String, PrescriptionStatus> BY_LABEL = new HashMap<>();
+
+    static {
+        for (PrescriptionStatus value : values()) {
+            BY_LABEL.put(value.label, value);
+            BY_LABEL.put(value.label.toLowerCase(Locale.ROOT), value);
+        }
+    }
+
+    private final String label;
+
+    PrescriptionStatus(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Gets the text stored in the data files and shown in the UI.
+     *
+     * @return The label, e.g. "Issued"
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Finds the value with a label, ignoring case.
+     *
+     * @param label The label, may be null
+     * @return The matching value, or null if the label is not recognised
+     */
+    public static PrescriptionStatus fromLabel(String label) {
+        if (label == null) {
+            return null;
+        }
+        PrescriptionStatus value = BY_LABEL.get(label);
+        return value != null ? value : BY_LABEL.get(label.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Finds the value with a label, ignoring case, for storing on an entity.
+     * Rejects unknown labels rather than dropping them, so text that is not a
+     * prescription status is never silently replaced by an empty value on the next save.
+     *
+     * @param label The label, may be null or empty for none
+     * @return The matching value, or null if the label is null or empty
+     * @throws IllegalArgumentException if the label is not recognised
+     */
+    public static PrescriptionStatus parse(String label) {
+        if (label == null || label.isEmpty()) {
+            return null;
+        }
+        PrescriptionStatus value = fromLabel(label);
+        if (value == null) {
+            throw new IllegalArgumentException("Unknown prescription status '" + label + "'");
+        }
+        return value;
+    }
+}
@@ -1,5 +1,7 @@
 package model;
 
+import util.StringPool;
+
 import java.time.LocalDate;
 
 /**
@@ -14,11 +16,11 @@ public class Referral {
     private String referringFacilityId;
     private String referredToFacilityId;
     private LocalDate referralDate;
-    private String urgencyLevel;
+    private UrgencyLevel urgency;
     private String referralReason;
     private String clinicalSummary;
     private String requestedInvestigations;
-    private String status;
+    private ReferralStatus status;
     private String appointmentId;
     private String notes;
     private LocalDate createdDate;
@@ -33,18 +35,18 @@ public class Referral {
                     String clinicalSummary, String requestedInvestigations, String status,
                     String appointmentId, String notes, LocalDate createdDate, LocalDate lastUpdated) {
         this.referralId = referralId;
-        this.patientId = patientId;
-        this.referringClinicianId = referringClinicianId;
-        this.referredToClinicianId = referredToClinicianId;
-        this.referringFacilityId = referringFacilityId;
-        this.referredToFacilityId = referredToFacilityId;
+        this.patientId = StringPool.intern(patientId);
+        this.referringClinicianId = StringPool.intern(referringClinicianId);
+        this.referredToClinicianId = StringPool.intern(referredToClinicianId);
+        this.referringFacilityId = StringPool.intern(referringFacilityId);
+        this.referredToFacilityId = StringPool.intern(referredToFacilityId);
         this.referralDate = referralDate;
-        this.urgencyLevel = urgencyLevel;
+        this.urgency = UrgencyLevel.parse(urgencyLevel);
         this.referralReason = referralReason;
         this.clinicalSummary = clinicalSummary;
         this.requestedInvestigations = requestedInvestigations;
-        this.status = status;
-        this.appointmentId = appointmentId;
+        this.status = ReferralStatus.parse(status);
+        this.appointmentId = StringPool.intern(appointmentId);
         this.notes = notes;
         this.createdDate = createdDate;
         this.lastUpdated = lastUpdated;
@@ -64,7 +66,7 @@ public class Referral {
     }
 
     public void setPatientId(String patientId) {
-        this.patientId = patientId;
+        this.patientId = StringPool.intern(patientId);
     }
 
     public String getReferringClinicianId() {
@@ -72,7 +74,7 @@ public class Referral {
     }
 
     public void setReferringClinicianId(String referringClinicianId) {
-        this.referringClinicianId = referringClinicianId;
+        this.referringClinicianId = StringPool.intern(referringClinicianId);
     }
 
     public String getReferredToClinicianId() {
@@ -80,7 +82,7 @@ public class Referral {
     }
 
     public void setReferredToClinicianId(String referredToClinicianId) {
-        this.referredToClinicianId = referredToClinicianId;
+        this.referredToClinicianId = StringPool.intern(referredToClinicianId);
     }
 
     public String getReferringFacilityId() {
@@ -88,7 +90,7 @@ public class Referral {
     }
 
     public void setReferringFacilityId(String referringFacilityId) {
-        this.referringFacilityId = referringFacilityId;
+        this.referringFacilityId = StringPool.intern(referringFacilityId);
     }
 
     public String getReferredToFacilityId() {
@@ -96,7 +98,7 @@ public class Referral {
     }
 
     public void setReferredToFacilityId(String referredToFacilityId) {
-        this.referredToFacilityId = referredToFacilityId;
+        this.referredToFacilityId = StringPool.intern(referredToFacilityId);
     }
 
     public LocalDate getReferralDate() {
@@ -107,12 +109,33 @@ public class Referral {
         this.referralDate = referralDate;
     }
 
+    /**
+     * Gets the urgency level as it is stored in the data files and shown in the UI.
+     *
+     * @return The urgency label, or null if no urgency level is set
+     */
     public String getUrgencyLevel() {
-        return urgencyLevel;
+        return urgency != null ? urgency.getLabel() : null;
+    }
+
+    /**
+     * Gets the urgency level as an enum, for fast comparisons.
+     *
+     * @return The urgency level, or null if no urgency level is set
+     */
+    public UrgencyLevel getUrgency() {
+        return urgency;
     }
 
+    /**
+     * Sets the urgency level from its label, ignoring case.
+     * A null or empty label clears it.
+     *
+     * @param urgencyLevel The urgency label
+     * @throws IllegalArgumentException if the label is not a recognised urgency level
+     */
     public void setUrgencyLevel(String urgencyLevel) {
-        this.urgencyLevel = urgencyLevel;
+        this.urgency = UrgencyLevel.parse(urgencyLevel);
     }
 
     public String getReferralReason() {
@@ -139,12 +162,33 @@ public class Referral {
         this.requestedInvestigations = requestedInvestigations;
     }
 
+    /**
+     * Gets the status as it is stored in the data files and shown in the UI.
+     *
+     * @return The status label, or null if no status is set
+     */
     public String getStatus() {
+        return status != null ? status.getLabel() : null;
+    }
+
+    /**
+     * Gets the status as an enum, for fast comparisons.
+     *
+     * @return The status, or null if no status is set
+     */
+    public ReferralStatus getStatusCode() {
         return status;
     }
 
+    /**
+     * Sets the status from its label, ignoring case.
+     * A null or empty label clears it.
+     *
+     * @param status The status label
+     * @throws IllegalArgumentException if the label is not a recognised status
+     */
     public void setStatus(String status) {
-        this.status = status;
+        this.status = ReferralStatus.parse(status);
     }
 
     public String getAppointmentId() {
@@ -152,7 +196,7 @@ public class Referral {
     }
 
     public void setAppointmentId(String appointmentId) {
-        this.appointmentId = appointmentId;
+        this.appointmentId = StringPool.intern(appointmentId);
     }
 
     public String getNotes() {
@@ -180,31 +224,31 @@ public class Referral {
     }
 
     public boolean isUrgent() {
-        return "Urgent".equalsIgnoreCase(urgencyLevel);
+        return urgency == UrgencyLevel.URGENT;
     }
 
     public boolean isRoutine() {
-        return "Routine".equalsIgnoreCase(urgencyLevel);
+        return urgency == UrgencyLevel.ROUTINE;
     }
 
     public boolean isNew() {
-        return "New".equalsIgnoreCase(status);
+        return status == ReferralStatus.NEW;
     }
 
     public boolean isPending() {
-        return "Pending".equalsIgnoreCase(status);
+        return status == ReferralStatus.PENDING;
     }
 
     public boolean isInProgress() {
-        return "In Progress".equalsIgnoreCase(status);
+        return status == ReferralStatus.IN_PROGRESS;
     }
 
     public boolean isCompleted() {
-        return "Completed".equalsIgnoreCase(status);
+        return status == ReferralStatus.COMPLETED;
     }
 
     @Override
     public String toString() {
-        return referralId + " - " + referralReason + " (" + urgencyLevel + ")";
+        return referralId + " - " + referralReason + " (" + getUrgencyLevel() + ")";
     }
 }
@@ -0,0 +1,273 @@
+package model;
+
+import util.FilePathManager;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates referral letters in bulk, e.g. for every New referral at the end
+ * of the day.
+ *
+ * Patients, clinicians and facilities are looked up on the calling thread,
+ * once per distinct ID, so the lookups never have to be thread-safe. Letters
+ * are rendered (and, for per-letter output, written) on a small worker pool.
+ * At most a fixed window of letters is in flight at a time, so memory use does
+ * not grow with the size of the batch. In archive mode the calling thread
+ * streams each finished letter straight into a single ZIP file.
+ */
+public class ReferralLetterBatch {
+
+    private static final DateTimeFormatter BATCH_TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+    private static final int MAX_THREADS = 8;
+    private static final int IN_FLIGHT_PER_THREAD = 4;
+
+    private final Function<String, Patient> patientLookup;
+    private final Function<String, Clinician> clinicianLookup;
+    private final Function<String, Facility> facilityLookup;
+    private final int threads;
+
+    /**
+     * Creates a batch generator.
+     *
+     * @param patientLookup   Finds a patient by ID, returning null if not found
+     * @param clinicianLookup Finds a clinician by ID, returning null if not found
+     * @param facilityLookup  Finds a facility by ID, returning null if not found
+     */
+    public ReferralLetterBatch(Function<String, Patient> patientLookup,
+                               Function<String, Clinician> clinicianLookup,
+                               Function<String, Facility> facilityLookup) {
+        this.patientLookup = patientLookup;
+        this.clinicianLookup = clinicianLookup;
+        this.facilityLookup = facilityLookup;
+        this.threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), MAX_THREADS));
+    }
+
+    /**
+     * Builds a filter selecting referrals by status and referral date.
+     *
+     * @param status Status to match (case-insensitive), or null for any status
+     * @param from   Earliest referral date (inclusive), or null for no limit
+     * @param to     Latest referral date (inclusive), or null for no limit
+     * @return The filter
+     */
+    public static Predicate<Referral> filter(String status, LocalDate from, LocalDate to) {
+        ReferralStatus code = ReferralStatus.fromLabel(status);
+        return referral -> {
+            if (status != null && (code == null || referral.getStatusCode() != code)) {
+                return false;
+            }
+            LocalDate date = referral.getReferralDate();
+            if (from != null && (date == null || date.isBefore(from))) {
+                return false;
+            }
+            return to == null || (date != null && !date.isAfter(to));
+        };
+    }
+
+    /**
+     * Generates a letter for each referral.
+     *
+     * @param referrals     The referrals to write letters for
+     * @param singleArchive true to write one ZIP archive, false for one file per letter in a new folder
+     * @return Summary of the batch
+     * @throws IOException if a letter cannot be written
+     */
+    public Result run(List<Referral> referrals, boolean singleArchive) throws IOException {
+        long started = System.nanoTime();
+        String batchName = "referral_letters_" + LocalDateTime.now().format(BATCH_TIMESTAMP_FORMAT);
+        Path output = Paths.get(FilePathManager.getOutputFilePath(singleArchive ? batchName + ".zip" : batchName));
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "referral-letters");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            if (singleArchive) {
+                writeArchive(referrals, output, executor);
+            } else {
+                Files.createDirectories(output);
+                writeFiles(referrals, output, executor);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        return new Result(referrals.size(), elapsedMillis, output.toString());
+    }
+
+    private void writeArchive(List<Referral> referrals, Path output, ExecutorService executor) throws IOException {
+        CompletionService<Letter> completion = new ExecutorCompletionService<>(executor);
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(output)))) {
+            Map<String, Object> resolved = new HashMap<>();
+            int submitted = 0;
+            int completed = 0;
+            int window = threads * IN_FLIGHT_PER_THREAD;
+            while (completed < referrals.size()) {
+                while (submitted < referrals.size() && submitted - completed < window) {
+                    Letter letter = resolve(referrals.get(submitted++), resolved);
+                    completion.submit(() -> letter.render());
+                }
+                Letter letter = take(completion);
+                completed++;
+                zip.putNextEntry(new ZipEntry(letter.fileName()));
+                zip.write(letter.text.getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+    }
+
+    private void writeFiles(List<Referral> referrals, Path folder, ExecutorService executor) throws IOException {
+        CompletionService<Letter> completion = new ExecutorCompletionService<>(executor);
+        Map<String, Object> resolved = new HashMap<>();
+        int submitted = 0;
+        int completed = 0;
+        int window = threads * IN_FLIGHT_PER_THREAD;
+        while (completed < referrals.size()) {
+            while (submitted < referrals.size() && submitted - completed < window) {
+                Letter letter = resolve(referrals.get(submitted++), resolved);
+                completion.submit(() -> {
+                    letter.render();
+                    try (OutputStream out = Files.newOutputStream(folder.resolve(letter.fileName()))) {
+                        out.write(letter.text.getBytes(StandardCharsets.UTF_8));
+                    }
+                    return letter;
+                });
+            }
+            take(completion);
+            completed++;
+        }
+    }
+
+    private Letter take(CompletionService<Letter> completion) throws IOException {
+        try {
+            return completion.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Letter generation was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Could not generate letter: " + e.getCause(), e.getCause());
+        }
+    }
+
+    /**
+     * Looks up everything a letter refers to. Many referrals share the same
+     * clinicians and facilities, so each ID is only looked up once per batch.
+     */
+    private Letter resolve(Referral referral, Map<String, Object> resolved) {
+        return new Letter(referral,
+                lookup(resolved, "P:", referral.getPatientId(), patientLookup),
+                lookup(resolved, "C:", referral.getReferringClinicianId(), clinicianLookup),
+                lookup(resolved, "C:", referral.getReferredToClinicianId(), clinicianLookup),
+                lookup(resolved, "F:", referral.getReferringFacilityId(), facilityLookup),
+                lookup(resolved, "F:", referral.getReferredToFacilityId(), facilityLookup));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T lookup(Map<String, Object> resolved, String kind, String id, Function<String, T> lookup) {
+        if (id == null || id.isEmpty()) {
+            return null;
+        }
+        String key = kind + id;
+        if (resolved.containsKey(key)) {
+            return (T) resolved.get(key);
+        }
+        T entity = lookup.apply(id);
+        resolved.put(key, entity);
+        return entity;
+    }
+
+    /**
+     * A referral with everything needed to render its letter.
+     */
+    private static class Letter {
+        private final Referral referral;
+        private final Patient patient;
+        private final Clinician referringClinician;
+        private final Clinician referredToClinician;
+        private final Facility referringFacility;
+        private final Facility referredToFacility;
+        private String text;
+
+        Letter(Referral referral, Patient patient, Clinician referringClinician, Clinician referredToClinician,
+               Facility referringFacility, Facility referredToFacility) {
+            this.referral = referral;
+            this.patient = patient;
+            this.referringClinician = referringClinician;
+            this.referredToClinician = referredToClinician;
+            this.referringFacility = referringFacility;
+            this.referredToFacility = referredToFacility;
+        }
+
+        Letter render() {
+            text = LetterTemplates.renderReferralLetter(referral, patient,
+                    referringClinician, referredToClinician, referringFacility, referredToFacility);
+            return this;
+        }
+
+        String fileName() {
+            return "referral_" + referral.getReferralId() + ".txt";
+        }
+    }
+
+    /**
+     * Summary of a completed batch.
+     */
+    public static class Result {
+        private final int letterCount;
+        private final long elapsedMillis;
+        private final String outputPath;
+
+        Result(int letterCount, long elapsedMillis, String outputPath) {
+            this.letterCount = letterCount;
+            this.elapsedMillis = elapsedMillis;
+            this.outputPath = outputPath;
+        }
+
+        public int getLetterCount() {
+            return letterCount;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public String getOutputPath() {
+            return outputPath;
+        }
+
+        /**
+         * Gets the throughput of the batch.
+         *
+         * @return Letters generated per second
+         */
+        public double getLettersPerSecond() {
+            return elapsedMillis > 0 ? letterCount * 1000.0 / elapsedMillis : letterCount;
+        }
+    }
+}
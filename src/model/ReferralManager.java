@@ -1,35 +1,41 @@
 package model;
 
-import util.FilePathManager;
+import repository.Repository;
+import util.AuditLog;
+import util.IdSequence;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
 
 /**
  * Singleton class for managing referrals in the healthcare system.
  * Ensures single instance creation of critical system components,
  * preventing resource conflicts and maintaining data consistency
  * across referral processes.
+ *
+ * Referrals may be added and updated from several threads at once, for
+ * example bulk imports alongside the UI. The queue is backed by a thread-safe
+ * repository, status changes lock only the referral being changed, and audit
+ * entries are written asynchronously to rotating log files.
  */
 public class ReferralManager {
 
+    private static final long AUDIT_FLUSH_TIMEOUT_MS = 5000;
+
     private static ReferralManager instance;
-    private List<Referral> referralQueue;
-    private List<String> auditLog;
+    private volatile Repository<Referral> referralQueue;
+    private final IdSequence idSequence = new IdSequence("referrals", "R");
+    private final TriageQueue triageQueue = new TriageQueue();
+    private final AuditLog auditLog;
 
     /**
      * Private constructor to prevent external instantiation.
      */
     private ReferralManager() {
-        referralQueue = new ArrayList<>();
-        auditLog = new ArrayList<>();
+        auditLog = new AuditLog("referral-audit.log");
         logAudit("ReferralManager initialized");
     }
 
@@ -46,13 +52,67 @@ public class ReferralManager {
         return instance;
     }
 
+    /**
+     * Sets the repository that stores the referral queue.
+     *
+     * @param repository The referral repository
+     */
+    public void setRepository(Repository<Referral> repository) {
+        this.referralQueue = repository;
+    }
+
+    /**
+     * Loads the referral queue from its repository, discarding unsaved changes.
+     *
+     * @throws IOException if the referrals cannot be read
+     */
+    public void loadReferrals() throws IOException {
+        referralQueue.load();
+        List<Referral> referrals = referralQueue.findAll();
+        idSequence.seed(referrals, Referral::getReferralId);
+        triageQueue.rebuild(referrals);
+        logAudit("Referral queue loaded with " + referrals.size() + " referrals");
+    }
+
+    /**
+     * Saves changes to the referral queue made since the last load or save,
+     * and makes sure the audit trail of those changes is on disk.
+     *
+     * @throws IOException if the referrals or the audit trail cannot be written
+     */
+    public void saveReferrals() throws IOException {
+        referralQueue.flush();
+        idSequence.save();
+        auditLog.flush(AUDIT_FLUSH_TIMEOUT_MS);
+    }
+
+    /**
+     * Writes every referral in the queue to a plain CSV file.
+     *
+     * @param filePath Path of the CSV file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void exportReferrals(String filePath) throws IOException {
+        referralQueue.exportCSV(filePath);
+    }
+
+    /**
+     * Checks whether the referral queue has unsaved changes.
+     *
+     * @return true if there are unsaved changes
+     */
+    public boolean hasUnsavedChanges() {
+        return referralQueue.isDirty();
+    }
+
     /**
      * Adds a referral to the queue.
      *
      * @param referral The referral to add
      */
     public void addReferral(Referral referral) {
-        referralQueue.add(referral);
+        referralQueue.insert(referral);
+        triageQueue.offer(referral);
         logAudit("Referral added: " + referral.getReferralId() + " - " + referral.getReferralReason());
     }
 
@@ -63,8 +123,9 @@ public class ReferralManager {
      * @return true if referral was removed, false otherwise
      */
     public boolean removeReferral(String referralId) {
-        boolean removed = referralQueue.removeIf(r -> r.getReferralId().equals(referralId));
+        boolean removed = referralQueue.delete(referralId);
         if (removed) {
+            triageQueue.remove(referralId);
             logAudit("Referral removed: " + referralId);
         }
         return removed;
@@ -76,7 +137,7 @@ public class ReferralManager {
      * @return List of all referrals
      */
     public List<Referral> getAllReferrals() {
-        return new ArrayList<>(referralQueue);
+        return referralQueue.findAll();
     }
 
     /**
@@ -86,10 +147,7 @@ public class ReferralManager {
      * @return The referral, or null if not found
      */
     public Referral getReferralById(String referralId) {
-        return referralQueue.stream()
-                .filter(r -> r.getReferralId().equals(referralId))
-                .findFirst()
-                .orElse(null);
+        return referralQueue.findById(referralId);
     }
 
     /**
@@ -99,9 +157,7 @@ public class ReferralManager {
      * @return List of referrals for the patient
      */
     public List<Referral> getReferralsByPatient(String patientId) {
-        return referralQueue.stream()
-                .filter(r -> r.getPatientId().equals(patientId))
-                .collect(Collectors.toList());
+        return referralQueue.findBy("patient_id", patientId);
     }
 
     /**
@@ -110,9 +166,7 @@ public class ReferralManager {
      * @return List of urgent referrals
      */
     public List<Referral> getUrgentReferrals() {
-        return referralQueue.stream()
-                .filter(Referral::isUrgent)
-                .collect(Collectors.toList());
+        return referralQueue.query(Referral::isUrgent);
     }
 
     /**
@@ -122,9 +176,11 @@ public class ReferralManager {
      * @return List of referrals with the specified status
      */
     public List<Referral> getReferralsByStatus(String status) {
-        return referralQueue.stream()
-                .filter(r -> status.equalsIgnoreCase(r.getStatus()))
-                .collect(Collectors.toList());
+        ReferralStatus code = ReferralStatus.fromLabel(status);
+        if (code == null) {
+            return new ArrayList<>();
+        }
+        return referralQueue.query(r -> r.getStatusCode() == code);
     }
 
     /**
@@ -136,14 +192,19 @@ public class ReferralManager {
      */
     public boolean updateReferralStatus(String referralId, String newStatus) {
         Referral referral = getReferralById(referralId);
-        if (referral != null) {
-            String oldStatus = referral.getStatus();
+        if (referral == null) {
+            return false;
+        }
+        String oldStatus;
+        synchronized (referral) {
+            oldStatus = referral.getStatus();
             referral.setStatus(newStatus);
             referral.setLastUpdated(LocalDate.now());
-            logAudit("Referral " + referralId + " status changed from " + oldStatus + " to " + newStatus);
-            return true;
+            referralQueue.update(referral);
+            triageQueue.offer(referral);
         }
-        return false;
+        logAudit("Referral " + referralId + " status changed from " + oldStatus + " to " + newStatus);
+        return true;
     }
 
     /**
@@ -153,14 +214,47 @@ public class ReferralManager {
      * @return true if updated successfully, false if not found
      */
     public boolean updateReferral(Referral updatedReferral) {
-        for (int i = 0; i < referralQueue.size(); i++) {
-            if (referralQueue.get(i).getReferralId().equals(updatedReferral.getReferralId())) {
-                referralQueue.set(i, updatedReferral);
-                logAudit("Referral updated: " + updatedReferral.getReferralId());
-                return true;
+        synchronized (updatedReferral) {
+            if (!referralQueue.update(updatedReferral)) {
+                return false;
             }
+            triageQueue.offer(updatedReferral);
+        }
+        logAudit("Referral updated: " + updatedReferral.getReferralId());
+        return true;
+    }
+
+    /**
+     * Gets the referral that should be triaged next without taking it.
+     * Urgent referrals come first, then the oldest within each urgency level.
+     *
+     * @return The next New or Pending referral, or null if none is waiting
+     */
+    public Referral peekNextForTriage() {
+        return triageQueue.peek();
+    }
+
+    /**
+     * Takes the referral that should be triaged next and marks it In Progress,
+     * so another caller cannot take the same referral.
+     *
+     * @return The referral, or null if none is waiting
+     */
+    public Referral takeNextForTriage() {
+        Referral referral = triageQueue.poll();
+        if (referral != null) {
+            updateReferralStatus(referral.getReferralId(), "In Progress");
         }
-        return false;
+        return referral;
+    }
+
+    /**
+     * Gets the number of referrals waiting for triage.
+     *
+     * @return Number of New or Pending referrals
+     */
+    public int getTriageBacklog() {
+        return triageQueue.size();
     }
 
     /**
@@ -180,84 +274,32 @@ public class ReferralManager {
                                          Clinician referringClinician, Clinician referredToClinician,
                                          Facility referringFacility, Facility referredToFacility) throws IOException {
 
-        String filename = "referral_" + referral.getReferralId() + "_" +
-                         LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".txt";
-        String filePath = FilePathManager.getOutputFilePath(filename);
-
-        StringBuilder emailContent = new StringBuilder();
-        emailContent.append("=".repeat(60)).append("\n");
-        emailContent.append("                 REFERRAL LETTER\n");
-        emailContent.append("=".repeat(60)).append("\n\n");
-
-        emailContent.append("Referral ID: ").append(referral.getReferralId()).append("\n");
-        emailContent.append("Date: ").append(referral.getReferralDate()).append("\n");
-        emailContent.append("Urgency: ").append(referral.getUrgencyLevel()).append("\n\n");
-
-        emailContent.append("-".repeat(60)).append("\n");
-        emailContent.append("PATIENT DETAILS\n");
-        emailContent.append("-".repeat(60)).append("\n");
-        if (patient != null) {
-            emailContent.append("Name: ").append(patient.getFullName()).append("\n");
-            emailContent.append("Date of Birth: ").append(patient.getDateOfBirth()).append("\n");
-            emailContent.append("NHS Number: ").append(patient.getNhsNumber()).append("\n");
-            emailContent.append("Address: ").append(patient.getAddress()).append("\n");
-            emailContent.append("Phone: ").append(patient.getPhoneNumber()).append("\n");
-        }
-        emailContent.append("\n");
-
-        emailContent.append("-".repeat(60)).append("\n");
-        emailContent.append("REFERRING CLINICIAN\n");
-        emailContent.append("-".repeat(60)).append("\n");
-        if (referringClinician != null) {
-            emailContent.append("Name: ").append(referringClinician.getFullName()).append("\n");
-            emailContent.append("Title: ").append(referringClinician.getTitle()).append("\n");
-            emailContent.append("Email: ").append(referringClinician.getEmail()).append("\n");
-        }
-        if (referringFacility != null) {
-            emailContent.append("Facility: ").append(referringFacility.getFacilityName()).append("\n");
-            emailContent.append("Address: ").append(referringFacility.getAddress()).append("\n");
-        }
-        emailContent.append("\n");
-
-        emailContent.append("-".repeat(60)).append("\n");
-        emailContent.append("REFERRED TO\n");
-        emailContent.append("-".repeat(60)).append("\n");
-        if (referredToClinician != null) {
-            emailContent.append("Name: ").append(referredToClinician.getFullName()).append("\n");
-            emailContent.append("Speciality: ").append(referredToClinician.getSpeciality()).append("\n");
-            emailContent.append("Email: ").append(referredToClinician.getEmail()).append("\n");
-        }
-        if (referredToFacility != null) {
-            emailContent.append("Facility: ").append(referredToFacility.getFacilityName()).append("\n");
-            emailContent.append("Address: ").append(referredToFacility.getAddress()).append("\n");
-        }
-        emailContent.append("\n");
-
-        emailContent.append("-".repeat(60)).append("\n");
-        emailContent.append("CLINICAL INFORMATION\n");
-        emailContent.append("-".repeat(60)).append("\n");
-        emailContent.append("Reason for Referral: ").append(referral.getReferralReason()).append("\n\n");
-        emailContent.append("Clinical Summary:\n").append(referral.getClinicalSummary()).append("\n\n");
-        emailContent.append("Requested Investigations: ").append(referral.getRequestedInvestigations()).append("\n\n");
-        if (referral.getNotes() != null && !referral.getNotes().isEmpty()) {
-            emailContent.append("Additional Notes: ").append(referral.getNotes()).append("\n");
-        }
-        emailContent.append("\n");
-
-        emailContent.append("=".repeat(60)).append("\n");
-        emailContent.append("This referral was generated by the Healthcare Management System\n");
-        emailContent.append("Generated on: ").append(LocalDateTime.now().format(
-                DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss"))).append("\n");
-        emailContent.append("=".repeat(60)).append("\n");
-
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
-            writer.write(emailContent.toString());
-        }
+        String letter = LetterTemplates.renderReferralLetter(referral, patient,
+                referringClinician, referredToClinician, referringFacility, referredToFacility);
+        String filePath = LetterTemplates.saveLetter("referral_" + referral.getReferralId(), letter);
 
         logAudit("Referral email generated for " + referral.getReferralId() + " at " + filePath);
         return filePath;
     }
 
+    /**
+     * Generates letters for every referral matching a filter in one batch.
+     *
+     * @param filter        Selects the referrals to write letters for
+     * @param batch         Letter pipeline that resolves the people and places in each letter
+     * @param singleArchive true to write one ZIP archive, false for one file per letter
+     * @return Summary of the batch
+     * @throws IOException if the letters cannot be written
+     */
+    public ReferralLetterBatch.Result generateReferralLetters(Predicate<Referral> filter,
+                                                              ReferralLetterBatch batch,
+                                                              boolean singleArchive) throws IOException {
+        List<Referral> referrals = referralQueue.query(filter);
+        ReferralLetterBatch.Result result = batch.run(referrals, singleArchive);
+        logAudit("Batch of " + result.getLetterCount() + " referral letters generated at " + result.getOutputPath());
+        return result;
+    }
+
     /**
      * Updates the Electronic Health Record (simulated by logging).
      *
@@ -275,48 +317,50 @@ public class ReferralManager {
      * @return The next referral ID in sequence
      */
     public String getNextReferralId() {
-        int maxId = 0;
-        for (Referral r : referralQueue) {
-            String id = r.getReferralId();
-            if (id != null && id.startsWith("R")) {
-                try {
-                    int num = Integer.parseInt(id.substring(1));
-                    if (num > maxId) {
-                        maxId = num;
-                    }
-                } catch (NumberFormatException e) {
-                    // Ignore invalid IDs
-                }
-            }
-        }
-        return String.format("R%03d", maxId + 1);
+        return idSequence.next();
+    }
+
+    /**
+     * Reserves a block of referral IDs, e.g. for a bulk import.
+     *
+     * @param count Number of IDs to reserve
+     * @return The reserved referral IDs in order
+     */
+    public List<String> reserveReferralIds(int count) {
+        return idSequence.reserve(count);
     }
 
     /**
      * Clears all referrals from the queue.
      */
     public void clearAllReferrals() {
-        referralQueue.clear();
+        for (Referral referral : referralQueue.findAll()) {
+            referralQueue.delete(referral.getReferralId());
+        }
+        triageQueue.clear();
         logAudit("All referrals cleared from queue");
     }
 
     /**
-     * Sets the referral queue (used when loading from CSV).
+     * Gets the most recent audit log entries.
      *
-     * @param referrals List of referrals to set
+     * @param count Maximum number of entries
+     * @return Audit log entries, oldest first
      */
-    public void setReferrals(List<Referral> referrals) {
-        this.referralQueue = new ArrayList<>(referrals);
-        logAudit("Referral queue loaded with " + referrals.size() + " referrals");
+    public List<String> getRecentAuditEntries(int count) {
+        return auditLog.tail(count);
     }
 
     /**
-     * Gets the audit log.
+     * Gets a page of recent audit log entries, counting back from the newest.
+     * The full trail is kept in the logs directory.
      *
-     * @return List of audit log entries
+     * @param offset Number of newest entries to skip
+     * @param limit  Maximum number of entries
+     * @return Audit log entries, oldest first
      */
-    public List<String> getAuditLog() {
-        return new ArrayList<>(auditLog);
+    public List<String> getAuditEntries(int offset, int limit) {
+        return auditLog.page(offset, limit);
     }
 
     /**
@@ -325,8 +369,7 @@ public class ReferralManager {
      * @param message The audit message
      */
     private void logAudit(String message) {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-        auditLog.add("[" + timestamp + "] " + message);
+        auditLog.log(message);
     }
 
     /**
@@ -335,6 +378,6 @@ public class ReferralManager {
      * @return Number of referrals
      */
     public int getReferralCount() {
-        return referralQueue.size();
+        return referralQueue.count();
     }
 }
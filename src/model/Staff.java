@@ -1,5 +1,7 @@
 package model;
 
+import util.StringPool;
+
 import java.time.LocalDate;
 
 /**
@@ -29,15 +31,15 @@ public class Staff {
         this.staffId = staffId;
         this.firstName = firstName;
         this.lastName = lastName;
-        this.role = role;
-        this.department = department;
-        this.facilityId = facilityId;
+        this.role = StringPool.intern(role);
+        this.department = StringPool.intern(department);
+        this.facilityId = StringPool.intern(facilityId);
         this.phoneNumber = phoneNumber;
         this.email = email;
-        this.employmentStatus = employmentStatus;
+        this.employmentStatus = StringPool.intern(employmentStatus);
         this.startDate = startDate;
-        this.lineManager = lineManager;
-        this.accessLevel = accessLevel;
+        this.lineManager = StringPool.intern(lineManager);
+        this.accessLevel = StringPool.intern(accessLevel);
     }
 
     // Getters and Setters
@@ -74,7 +76,7 @@ public class Staff {
     }
 
     public void setRole(String role) {
-        this.role = role;
+        this.role = StringPool.intern(role);
     }
 
     public String getDepartment() {
@@ -82,7 +84,7 @@ public class Staff {
     }
 
     public void setDepartment(String department) {
-        this.department = department;
+        this.department = StringPool.intern(department);
     }
 
     public String getFacilityId() {
@@ -90,7 +92,7 @@ public class Staff {
     }
 
     public void setFacilityId(String facilityId) {
-        this.facilityId = facilityId;
+        this.facilityId = StringPool.intern(facilityId);
     }
 
     public String getPhoneNumber() {
@@ -114,7 +116,7 @@ public class Staff {
     }
 
     public void setEmploymentStatus(String employmentStatus) {
-        this.employmentStatus = employmentStatus;
+        this.employmentStatus = StringPool.intern(employmentStatus);
     }
 
     public LocalDate getStartDate() {
@@ -130,7 +132,7 @@ public class Staff {
     }
 
     public void setLineManager(String lineManager) {
-        this.lineManager = lineManager;
+        this.lineManager = StringPool.intern(lineManager);
     }
 
     public String getAccessLevel() {
@@ -138,7 +140,7 @@ public class Staff {
     }
 
     public void setAccessLevel(String accessLevel) {
-        this.accessLevel = accessLevel;
+        this.accessLevel = StringPool.intern(accessLevel);
     }
 
     public boolean isManager() {
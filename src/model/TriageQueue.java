@@ -0,0 +1,152 @@
+package model;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Priority queue of referrals waiting for triage (status New or Pending).
+ * Urgent referrals come first, then Routine, then Non-urgent, and within an
+ * urgency level the oldest referral date comes first.
+ *
+ * The priority of each referral is captured when it is offered, so a referral
+ * whose urgency, date or status is edited must be offered again to move it.
+ * Offering, removing and polling take O(log n) and are safe to call from
+ * several threads, as long as the same referral is not offered from two
+ * threads at once.
+ */
+public class TriageQueue {
+
+    private static final Comparator<Entry> PRIORITY = Comparator
+            .comparingInt((Entry entry) -> entry.urgencyRank)
+            .thenComparing(entry -> entry.referralDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(entry -> entry.referralId);
+
+    private final ConcurrentSkipListSet<Entry> queue;
+    private final ConcurrentMap<String, Entry> entriesById;
+
+    /**
+     * Creates an empty queue.
+     */
+    public TriageQueue() {
+        this.queue = new ConcurrentSkipListSet<>(PRIORITY);
+        this.entriesById = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Adds a referral, or moves it to match its current urgency, date and status.
+     * Referrals that are no longer waiting for triage are removed instead.
+     *
+     * @param referral The referral
+     */
+    public void offer(Referral referral) {
+        String referralId = referral.getReferralId();
+        if (!awaitsTriage(referral)) {
+            remove(referralId);
+            return;
+        }
+        Entry entry = new Entry(referral);
+        Entry previous = entriesById.put(referralId, entry);
+        if (previous != null) {
+            queue.remove(previous);
+        }
+        queue.add(entry);
+    }
+
+    /**
+     * Removes a referral from the queue.
+     *
+     * @param referralId The referral ID
+     */
+    public void remove(String referralId) {
+        Entry entry = entriesById.remove(referralId);
+        if (entry != null) {
+            queue.remove(entry);
+        }
+    }
+
+    /**
+     * Gets the most urgent referral without removing it.
+     *
+     * @return The referral, or null if none is waiting
+     */
+    public Referral peek() {
+        try {
+            return queue.first().referral;
+        } catch (NoSuchElementException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Removes and returns the most urgent referral.
+     *
+     * @return The referral, or null if none is waiting
+     */
+    public Referral poll() {
+        Entry entry = queue.pollFirst();
+        if (entry == null) {
+            return null;
+        }
+        entriesById.remove(entry.referralId, entry);
+        return entry.referral;
+    }
+
+    /**
+     * Replaces the contents of the queue with the given referrals.
+     *
+     * @param referrals Every referral; those not waiting for triage are skipped
+     */
+    public void rebuild(Iterable<Referral> referrals) {
+        clear();
+        for (Referral referral : referrals) {
+            offer(referral);
+        }
+    }
+
+    /**
+     * Removes every referral from the queue.
+     */
+    public void clear() {
+        queue.clear();
+        entriesById.clear();
+    }
+
+    /**
+     * Gets the number of referrals waiting for triage.
+     *
+     * @return Number of referrals
+     */
+    public int size() {
+        return entriesById.size();
+    }
+
+    private static boolean awaitsTriage(Referral referral) {
+        return referral.isNew() || referral.isPending();
+    }
+
+    private static int urgencyRank(UrgencyLevel urgency) {
+        // Unknown urgency levels are triaged after every known one
+        return urgency != null ? urgency.ordinal() : UrgencyLevel.values().length;
+    }
+
+    /**
+     * A referral together with the priority it had when it was offered.
+     */
+    private static class Entry {
+        private final Referral referral;
+        private final String referralId;
+        private final int urgencyRank;
+        private final LocalDate referralDate;
+
+        Entry(Referral referral) {
+            this.referral = referral;
+            this.referralId = referral.getReferralId();
+            this.urgencyRank = urgencyRank(referral.getUrgency());
+            this.referralDate = referral.getReferralDate();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package repository;
+
+import util.BinarySnapshot;
+import util.SnapshotStore;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Describes how an entity type is stored: its CSV file and columns, how to
+ * convert it to and from a CSV row and a binary snapshot row, and which
+ * columns are queried often enough to be indexed.
+ * The first column always holds the entity ID.
+ *
+ * @param <T> Entity type
+ */
+public class EntityMapping<T> {
+
+    private final String csvPath;
+    private final String tableName;
+    private final String[] columns;
+    private final Function<T, String> idFunction;
+    private final Function<String[], T> fromRecord;
+    private final Function<T, String[]> toRecord;
+    private final BinarySnapshot.ColumnType[] binaryColumns;
+    private final BinarySnapshot.RowReader<T> fromSnapshot;
+    private final BinarySnapshot.RowWriter<T> toSnapshot;
+    private final Map<String, Function<T, String>> indexes;
+
+    /**
+     * Creates a mapping.
+     *
+     * @param csvPath       Path to the CSV file; its name without extension is the table name
+     * @param columns       CSV column headers, starting with the ID column
+     * @param idFunction    Returns the ID of an entity
+     * @param fromRecord    Converts a CSV row to an entity, or null to skip the row
+     * @param toRecord      Converts an entity to a CSV row
+     * @param binaryColumns Column types of the binary snapshot
+     * @param fromSnapshot  Creates an entity from a binary snapshot row
+     * @param toSnapshot    Writes an entity into a binary snapshot row
+     */
+    public EntityMapping(String csvPath, String[] columns, Function<T, String> idFunction,
+                         Function<String[], T> fromRecord, Function<T, String[]> toRecord,
+                         BinarySnapshot.ColumnType[] binaryColumns,
+                         BinarySnapshot.RowReader<T> fromSnapshot, BinarySnapshot.RowWriter<T> toSnapshot) {
+        this.csvPath = csvPath;
+        String fileName = new File(csvPath).getName();
+        int dot = fileName.lastIndexOf('.');
+        this.tableName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        this.columns = columns.clone();
+        this.idFunction = idFunction;
+        this.fromRecord = fromRecord;
+        this.toRecord = toRecord;
+        this.binaryColumns = binaryColumns;
+        this.fromSnapshot = fromSnapshot;
+        this.toSnapshot = toSnapshot;
+        this.indexes = new LinkedHashMap<>();
+    }
+
+    /**
+     * Registers a column for fast lookups through {@link Repository#findBy}.
+     *
+     * @param column      CSV column name
+     * @param keyFunction Returns the entity's value for the column, formatted as in the CSV file
+     */
+    public void addIndex(String column, Function<T, String> keyFunction) {
+        getColumnIndex(column);
+        indexes.put(column, keyFunction);
+    }
+
+    /**
+     * Creates the snapshot store for the entity's CSV and binary files.
+     *
+     * @return New snapshot store
+     */
+    public SnapshotStore<T> createSnapshotStore() {
+        return new SnapshotStore<>(csvPath, columns, fromRecord, toRecord, binaryColumns, fromSnapshot, toSnapshot);
+    }
+
+    public String getCsvPath() {
+        return csvPath;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String[] getColumns() {
+        return columns.clone();
+    }
+
+    /**
+     * Gets the position of a column.
+     *
+     * @param column CSV column name
+     * @return Zero-based column position
+     * @throws IllegalArgumentException if the entity has no such column
+     */
+    public int getColumnIndex(String column) {
+        int index = Arrays.asList(columns).indexOf(column);
+        if (index < 0) {
+            throw new IllegalArgumentException("No column " + column + " in " + tableName);
+        }
+        return index;
+    }
+
+    public Map<String, Function<T, String>> getIndexes() {
+        return Collections.unmodifiableMap(indexes);
+    }
+
+    public String getId(T entity) {
+        return idFunction.apply(entity);
+    }
+
+    public T fromRecord(String[] record) {
+        return fromRecord.apply(record);
+    }
+
+    public String[] toRecord(T entity) {
+        return toRecord.apply(entity);
+    }
+}
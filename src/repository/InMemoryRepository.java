@@ -0,0 +1,244 @@
+package repository;
+
+import util.ChangeJournal;
+import util.SecondaryIndex;
+import util.SnapshotStore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Repository that keeps the whole table in memory, keyed by ID, and persists
+ * it to the entity's CSV (or binary) snapshot plus an append-only change journal.
+ * Indexed columns are served from {@link SecondaryIndex} lookups.
+ *
+ * The repository is safe to use from several threads. Reads never lock. Rows
+ * keep the order they were loaded or inserted in: each ID is given a position
+ * when first added, and rows are held in a concurrent skip list by position.
+ * Writes to the same ID are serialized by one of a fixed set of striped locks,
+ * so writes to different IDs proceed in parallel.
+ *
+ * @param <T> Entity type
+ */
+public class InMemoryRepository<T> implements Repository<T> {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final EntityMapping<T> mapping;
+    private final ChangeJournal journal;
+    private final SnapshotStore<T> snapshots;
+    private final Object[] locks;
+    private volatile Table<T> table;
+    private volatile Map<String, SecondaryIndex<String, T>> indexes;
+
+    /**
+     * Rows in insertion order, plus the position of each ID's row.
+     */
+    private static class Table<T> {
+        final ConcurrentMap<String, Long> positions = new ConcurrentHashMap<>();
+        final ConcurrentNavigableMap<Long, T> rows = new ConcurrentSkipListMap<>();
+        final AtomicLong nextPosition = new AtomicLong();
+
+        T get(String id) {
+            Long position = positions.get(id);
+            return position != null ? rows.get(position) : null;
+        }
+
+        void put(String id, T entity) {
+            Long position = positions.computeIfAbsent(id, key -> nextPosition.getAndIncrement());
+            rows.put(position, entity);
+        }
+
+        boolean replace(String id, T entity) {
+            Long position = positions.get(id);
+            if (position == null) {
+                return false;
+            }
+            rows.put(position, entity);
+            return true;
+        }
+
+        boolean remove(String id) {
+            Long position = positions.remove(id);
+            if (position == null) {
+                return false;
+            }
+            rows.remove(position);
+            return true;
+        }
+    }
+
+    /**
+     * Creates an empty repository.
+     *
+     * @param mapping Storage mapping of the entity
+     */
+    public InMemoryRepository(EntityMapping<T> mapping) {
+        this.mapping = mapping;
+        this.journal = new ChangeJournal(mapping.getCsvPath(), mapping.getColumns().length);
+        this.snapshots = mapping.createSnapshotStore();
+        this.locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        this.table = new Table<>();
+        this.indexes = createIndexes();
+    }
+
+    /**
+     * Loads the snapshot and replays the change journal on top of it.
+     * The loaded table replaces the current one in a single step.
+     *
+     * @throws IOException if the snapshot or journal cannot be read
+     */
+    @Override
+    public void load() throws IOException {
+        journal.awaitCompaction();
+        Table<T> loaded = new Table<>();
+
+        for (T entity : snapshots.load()) {
+            loaded.put(mapping.getId(entity), entity);
+        }
+        journal.replay(record -> {
+            T entity = mapping.fromRecord(record);
+            if (entity != null) {
+                loaded.put(mapping.getId(entity), entity);
+            }
+        }, loaded::remove);
+
+        Map<String, SecondaryIndex<String, T>> loadedIndexes = createIndexes();
+        for (SecondaryIndex<String, T> index : loadedIndexes.values()) {
+            index.rebuild(loaded.rows.values());
+        }
+        table = loaded;
+        indexes = loadedIndexes;
+    }
+
+    /**
+     * Appends changes to the change journal, then folds the journal into a new
+     * snapshot in the background once it has grown large, or when the snapshot
+     * is not yet in the selected format.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    @Override
+    public void flush() throws IOException {
+        journal.flush(id -> {
+            T entity = table.get(id);
+            return entity != null ? mapping.toRecord(entity) : null;
+        });
+
+        if (journal.needsCompaction(table.positions.size()) || !snapshots.isCurrentFormat()) {
+            journal.compact(() -> snapshots.capture(table.rows.values()));
+        }
+    }
+
+    @Override
+    public boolean isDirty() {
+        // A snapshot in the other format still has to be rewritten by a save
+        return journal.hasPendingChanges() || !snapshots.isCurrentFormat();
+    }
+
+    @Override
+    public void exportCSV(String filePath) throws IOException {
+        snapshots.exportCSV(table.rows.values(), filePath);
+    }
+
+    @Override
+    public T findById(String id) {
+        return table.get(id);
+    }
+
+    @Override
+    public List<T> findAll() {
+        return new ArrayList<>(table.rows.values());
+    }
+
+    @Override
+    public List<T> findBy(String column, String value) {
+        SecondaryIndex<String, T> index = indexes.get(column);
+        if (index != null) {
+            return index.get(value);
+        }
+        int position = mapping.getColumnIndex(column);
+        return query(entity -> value.equals(mapping.toRecord(entity)[position]));
+    }
+
+    @Override
+    public List<T> query(Predicate<? super T> filter) {
+        return table.rows.values().stream()
+                .filter(filter)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public int count() {
+        return table.positions.size();
+    }
+
+    @Override
+    public void insert(T entity) {
+        String id = mapping.getId(entity);
+        synchronized (lockFor(id)) {
+            table.put(id, entity);
+            reindex(entity);
+            journal.recordInsert(id);
+        }
+    }
+
+    @Override
+    public boolean update(T entity) {
+        String id = mapping.getId(entity);
+        synchronized (lockFor(id)) {
+            if (!table.replace(id, entity)) {
+                return false;
+            }
+            reindex(entity);
+            journal.recordUpdate(id);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean delete(String id) {
+        synchronized (lockFor(id)) {
+            if (!table.remove(id)) {
+                return false;
+            }
+            for (SecondaryIndex<String, T> index : indexes.values()) {
+                index.remove(id);
+            }
+            journal.recordDelete(id);
+            return true;
+        }
+    }
+
+    private Object lockFor(String id) {
+        return locks[Math.floorMod(id.hashCode(), LOCK_STRIPES)];
+    }
+
+    private void reindex(T entity) {
+        for (SecondaryIndex<String, T> index : indexes.values()) {
+            index.put(entity);
+        }
+    }
+
+    private Map<String, SecondaryIndex<String, T>> createIndexes() {
+        Map<String, SecondaryIndex<String, T>> created = new LinkedHashMap<>();
+        for (Map.Entry<String, Function<T, String>> entry : mapping.getIndexes().entrySet()) {
+            created.put(entry.getKey(), new SecondaryIndex<>(entry.getValue(), mapping::getId));
+        }
+        return created;
+    }
+}
@@ -0,0 +1,328 @@
+package repository;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Repository that keeps a table in an embedded SQL database (for example an
+ * H2 or SQLite file) instead of in memory. Only JDBC is used, so the database
+ * driver just needs to be on the classpath at runtime.
+ *
+ * Every column is stored as text in the same format as the CSV file, with
+ * indexed columns backed by database indexes. Changes are made inside an open
+ * transaction: {@link #flush()} commits it and {@link #load()} rolls it back.
+ *
+ * The first time a table is loaded it is filled from the entity's existing
+ * CSV snapshot and change journal, and the import is recorded in the
+ * {@value #IMPORTS_TABLE} table, so a table that is later emptied stays empty.
+ * Each row also gets a number in the hidden {@value #ROW_COLUMN} column when
+ * it is first inserted; rows are returned in that order, which is the order
+ * the in-memory repository keeps.
+ *
+ * @param <T> Entity type
+ */
+public class JdbcRepository<T> implements Repository<T> {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final String IMPORTS_TABLE = "hms_imports";
+    private static final String ROW_COLUMN = "hms_row";
+
+    private final String jdbcUrl;
+    private final EntityMapping<T> mapping;
+    private final String[] columns;
+    private final String table;
+    private Connection connection;
+    private boolean dirty;
+    private long lastRow;
+
+    /**
+     * Creates a repository. The database is not opened until the table is first used.
+     *
+     * @param jdbcUrl JDBC URL of the database, e.g. {@code jdbc:h2:./data/healthcare}
+     * @param mapping Storage mapping of the entity
+     */
+    public JdbcRepository(String jdbcUrl, EntityMapping<T> mapping) {
+        this.jdbcUrl = jdbcUrl;
+        this.mapping = mapping;
+        this.columns = mapping.getColumns();
+        this.table = mapping.getTableName();
+    }
+
+    /**
+     * Discards unsaved changes and makes sure the table exists, importing the
+     * CSV data if it has never been imported.
+     *
+     * @throws IOException if the database or the CSV data cannot be read
+     */
+    @Override
+    public synchronized void load() throws IOException {
+        try {
+            Connection db = connection();
+            db.rollback();
+            dirty = false;
+            createTable(db);
+            if (!isImported(db)) {
+                // A table that already has rows was filled some other way; keep them
+                if (count() == 0) {
+                    importSnapshot(db);
+                }
+                markImported(db);
+            }
+            db.commit();
+            lastRow = readLastRow(db);
+        } catch (SQLException e) {
+            throw new IOException("Cannot load " + table + " from " + jdbcUrl + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Commits every change made since the last load or flush.
+     *
+     * @throws IOException if the commit fails
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        try {
+            connection().commit();
+            dirty = false;
+        } catch (SQLException e) {
+            throw new IOException("Cannot save " + table + " to " + jdbcUrl + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    @Override
+    public void exportCSV(String filePath) throws IOException {
+        mapping.createSnapshotStore().exportCSV(findAll(), filePath);
+    }
+
+    @Override
+    public synchronized T findById(String id) {
+        List<T> found = select("WHERE " + columns[0] + " = ?", id);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    @Override
+    public synchronized List<T> findAll() {
+        return select("ORDER BY " + ROW_COLUMN);
+    }
+
+    @Override
+    public synchronized List<T> findBy(String column, String value) {
+        String name = columns[mapping.getColumnIndex(column)];
+        return select("WHERE " + name + " = ? ORDER BY " + ROW_COLUMN, value);
+    }
+
+    /**
+     * Finds every entity matching a filter. Rows are converted and tested one
+     * at a time as they are read, so only the matches are kept in memory.
+     */
+    @Override
+    public synchronized List<T> query(Predicate<? super T> filter) {
+        return select(filter, "ORDER BY " + ROW_COLUMN);
+    }
+
+    @Override
+    public synchronized int count() {
+        try (Statement statement = connection().createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getInt(1);
+        } catch (SQLException e) {
+            throw new RepositoryException("Cannot count " + table, e);
+        }
+    }
+
+    @Override
+    public synchronized void insert(T entity) {
+        try {
+            if (!updateRow(entity)) {
+                try (PreparedStatement statement = connection().prepareStatement(insertSql())) {
+                    bind(statement, mapping.toRecord(entity), lastRow + 1);
+                    statement.executeUpdate();
+                }
+                lastRow++;
+            }
+            dirty = true;
+        } catch (SQLException e) {
+            throw new RepositoryException("Cannot insert into " + table, e);
+        }
+    }
+
+    @Override
+    public synchronized boolean update(T entity) {
+        try {
+            boolean updated = updateRow(entity);
+            dirty |= updated;
+            return updated;
+        } catch (SQLException e) {
+            throw new RepositoryException("Cannot update " + table, e);
+        }
+    }
+
+    @Override
+    public synchronized boolean delete(String id) {
+        String sql = "DELETE FROM " + table + " WHERE " + columns[0] + " = ?";
+        try (PreparedStatement statement = connection().prepareStatement(sql)) {
+            statement.setString(1, id);
+            boolean deleted = statement.executeUpdate() > 0;
+            dirty |= deleted;
+            return deleted;
+        } catch (SQLException e) {
+            throw new RepositoryException("Cannot delete from " + table, e);
+        }
+    }
+
+    private boolean updateRow(T entity) throws SQLException {
+        StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+        for (int i = 1; i < columns.length; i++) {
+            sql.append(i > 1 ? ", " : "").append(columns[i]).append(" = ?");
+        }
+        sql.append(" WHERE ").append(columns[0]).append(" = ?");
+
+        String[] record = mapping.toRecord(entity);
+        try (PreparedStatement statement = connection().prepareStatement(sql.toString())) {
+            for (int i = 1; i < columns.length; i++) {
+                statement.setString(i, record[i]);
+            }
+            statement.setString(columns.length, record[0]);
+            return statement.executeUpdate() > 0;
+        }
+    }
+
+    private List<T> select(String clause, String... parameters) {
+        return select(entity -> true, clause, parameters);
+    }
+
+    private List<T> select(Predicate<? super T> filter, String clause, String... parameters) {
+        String sql = "SELECT " + String.join(", ", columns) + " FROM " + table + " " + clause;
+        List<T> entities = new ArrayList<>();
+        try (PreparedStatement statement = connection().prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setString(i + 1, parameters[i]);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    String[] record = new String[columns.length];
+                    for (int i = 0; i < columns.length; i++) {
+                        String value = rs.getString(i + 1);
+                        record[i] = value != null ? value : "";
+                    }
+                    T entity = mapping.fromRecord(record);
+                    if (entity != null && filter.test(entity)) {
+                        entities.add(entity);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Cannot read " + table, e);
+        }
+        return entities;
+    }
+
+    private void createTable(Connection db) throws SQLException {
+        StringBuilder sql = new StringBuilder("CREATE TABLE IF NOT EXISTS ").append(table).append(" (");
+        for (int i = 0; i < columns.length; i++) {
+            sql.append(i > 0 ? ", " : "").append(columns[i]).append(" VARCHAR");
+            if (i == 0) {
+                sql.append(" PRIMARY KEY");
+            }
+        }
+        sql.append(", ").append(ROW_COLUMN).append(" BIGINT NOT NULL)");
+
+        try (Statement statement = db.createStatement()) {
+            statement.executeUpdate(sql.toString());
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + IMPORTS_TABLE
+                    + " (table_name VARCHAR PRIMARY KEY)");
+            for (String column : mapping.getIndexes().keySet()) {
+                statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_" + table + "_" + column
+                        + " ON " + table + " (" + column + ")");
+            }
+        }
+    }
+
+    private void importSnapshot(Connection db) throws IOException, SQLException {
+        InMemoryRepository<T> source = new InMemoryRepository<>(mapping);
+        try {
+            source.load();
+        } catch (NoSuchFileException e) {
+            return; // Nothing to import
+        }
+
+        try (PreparedStatement statement = db.prepareStatement(insertSql())) {
+            int batched = 0;
+            long row = 0;
+            for (T entity : source.findAll()) {
+                bind(statement, mapping.toRecord(entity), ++row);
+                statement.addBatch();
+                if (++batched == BATCH_SIZE) {
+                    statement.executeBatch();
+                    batched = 0;
+                }
+            }
+            if (batched > 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+
+    private boolean isImported(Connection db) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM " + IMPORTS_TABLE + " WHERE table_name = ?";
+        try (PreparedStatement statement = db.prepareStatement(sql)) {
+            statement.setString(1, table);
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getInt(1) > 0;
+            }
+        }
+    }
+
+    private void markImported(Connection db) throws SQLException {
+        String sql = "INSERT INTO " + IMPORTS_TABLE + " (table_name) VALUES (?)";
+        try (PreparedStatement statement = db.prepareStatement(sql)) {
+            statement.setString(1, table);
+            statement.executeUpdate();
+        }
+    }
+
+    private long readLastRow(Connection db) throws SQLException {
+        try (Statement statement = db.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT MAX(" + ROW_COLUMN + ") FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private String insertSql() {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ", " + ROW_COLUMN + ") VALUES ("
+                + "?, ".repeat(columns.length) + "?)";
+    }
+
+    private void bind(PreparedStatement statement, String[] record, long row) throws SQLException {
+        for (int i = 0; i < columns.length; i++) {
+            statement.setString(i + 1, i < record.length ? record[i] : "");
+        }
+        statement.setLong(columns.length + 1, row);
+    }
+
+    private Connection connection() throws SQLException {
+        if (connection == null || connection.isClosed()) {
+            connection = DriverManager.getConnection(jdbcUrl);
+            connection.setAutoCommit(false);
+        }
+        return connection;
+    }
+}
@@ -0,0 +1,114 @@
+package repository;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Storage for one entity table, independent of where the rows are kept.
+ * Controllers do all reads and writes through a repository, so a table can be
+ * held in memory and persisted to CSV, or kept in an embedded database, without
+ * changing the controllers or the panels that use them.
+ *
+ * Changes become durable when {@link #flush()} is called; {@link #load()}
+ * discards changes that were never flushed.
+ *
+ * @param <T> Entity type
+ */
+public interface Repository<T> {
+
+    /**
+     * Loads (or reloads) the table from its persistent store.
+     *
+     * @throws IOException if the store cannot be read
+     */
+    void load() throws IOException;
+
+    /**
+     * Makes every change since the last load or flush durable.
+     *
+     * @throws IOException if the store cannot be written
+     */
+    void flush() throws IOException;
+
+    /**
+     * Checks whether there are changes that have not been flushed.
+     *
+     * @return true if there are unsaved changes
+     */
+    boolean isDirty();
+
+    /**
+     * Writes every entity to a plain CSV file in the table's CSV format,
+     * whatever form the persistent store keeps them in.
+     *
+     * @param filePath Path of the CSV file to write
+     * @throws IOException if the file cannot be written
+     */
+    void exportCSV(String filePath) throws IOException;
+
+    /**
+     * Finds an entity by its ID.
+     *
+     * @param id The entity ID
+     * @return The entity, or null if not found
+     */
+    T findById(String id);
+
+    /**
+     * Gets every entity.
+     *
+     * @return List of all entities
+     */
+    List<T> findAll();
+
+    /**
+     * Finds every entity whose column has the given value, as it appears in the CSV file.
+     * Columns registered with {@link EntityMapping#addIndex} are looked up without a scan;
+     * other columns may convert every row to CSV form, so register any column queried often.
+     *
+     * @param column CSV column name
+     * @param value  Value to match
+     * @return List of matching entities
+     */
+    List<T> findBy(String column, String value);
+
+    /**
+     * Finds every entity matching a filter.
+     *
+     * @param filter The filter to apply
+     * @return List of matching entities
+     */
+    List<T> query(Predicate<? super T> filter);
+
+    /**
+     * Gets the number of entities.
+     *
+     * @return Entity count
+     */
+    int count();
+
+    /**
+     * Adds an entity, replacing any entity with the same ID.
+     *
+     * @param entity The entity to add
+     */
+    void insert(T entity);
+
+    /**
+     * Stores the current state of an existing entity.
+     * Call after changing an entity in place.
+     *
+     * @param entity The entity with updated data
+     * @return true if updated, false if not found
+     */
+    boolean update(T entity);
+
+    /**
+     * Deletes an entity by ID.
+     *
+     * @param id The entity ID
+     * @return true if deleted, false if not found
+     */
+    boolean delete(String id);
+}
@@ -0,0 +1,14 @@
+package repository;
+
+/**
+ * Thrown when a repository cannot read or write its backing store
+ * outside of an explicit load or flush.
+ */
+public class RepositoryException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RepositoryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,39 @@
+package repository;
+
+import java.util.Arrays;
+
+/**
+ * Chooses the repository implementation for each table.
+ *
+ * Tables are kept in memory and persisted to CSV unless the
+ * {@code hms.jdbcUrl} system property names a database. In that case every
+ * table is kept in the database, or only those listed in the comma-separated
+ * {@code hms.jdbcTables} property (e.g. {@code appointments,referrals}).
+ */
+public class RepositoryFactory {
+
+    /**
+     * Creates the repository for an entity.
+     *
+     * @param mapping Storage mapping of the entity
+     * @param <T>     Entity type
+     * @return New, empty repository; call {@link Repository#load()} to fill it
+     */
+    public static <T> Repository<T> create(EntityMapping<T> mapping) {
+        String jdbcUrl = System.getProperty("hms.jdbcUrl");
+        if (jdbcUrl != null && !jdbcUrl.isEmpty() && usesDatabase(mapping.getTableName())) {
+            return new JdbcRepository<>(jdbcUrl, mapping);
+        }
+        return new InMemoryRepository<>(mapping);
+    }
+
+    private static boolean usesDatabase(String tableName) {
+        String tables = System.getProperty("hms.jdbcTables");
+        if (tables == null || tables.isEmpty()) {
+            return true;
+        }
+        return Arrays.stream(tables.split(","))
+                .map(String::trim)
+                .anyMatch(tableName::equalsIgnoreCase);
+    }
+}
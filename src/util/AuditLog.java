@@ -0,0 +1,263 @@
+package util;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Append-only audit trail written to rotating files in the logs directory.
+ *
+ * Logging only timestamps the entry and hands it to a bounded ring buffer, so
+ * callers never wait for the disk unless the buffer is full. A background
+ * thread writes the entries in batches. When the current file reaches its size
+ * limit it is renamed to {@code name.1}, older files shift up, and the oldest
+ * is deleted. The most recent entries are also kept in a fixed-size in-memory
+ * ring so they can be read back without touching the files. Memory use stays
+ * the same however long the session runs.
+ *
+ * Logging never fails, because entries are logged after the change they
+ * describe has been made. If a batch cannot be written, the writer keeps it
+ * and retries, so no entry is dropped; {@link #flush} reports the failure.
+ */
+public class AuditLog {
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int BUFFER_CAPACITY = 8192;
+    private static final int RECENT_CAPACITY = 1000;
+    private static final int WRITE_BATCH_SIZE = 512;
+    private static final long MAX_FILE_BYTES = 1024 * 1024;
+    private static final int MAX_ROTATED_FILES = 5;
+    private static final long SHUTDOWN_TIMEOUT_MS = 2000;
+    private static final long RETRY_DELAY_MS = 1000;
+
+    private final String fileName;
+    private final BlockingQueue<String> buffer;
+    private final AtomicReferenceArray<String> recent;
+    private final AtomicLong logged;
+    private long written;
+    private volatile IOException failure;
+
+    // Only touched by the writer thread
+    private Path path;
+    private OutputStream out;
+    private long fileBytes;
+
+    /**
+     * Creates an audit log and starts its writer thread.
+     *
+     * @param fileName Name of the current log file, e.g. {@code referral-audit.log}
+     */
+    public AuditLog(String fileName) {
+        this.fileName = fileName;
+        this.buffer = new ArrayBlockingQueue<>(BUFFER_CAPACITY);
+        this.recent = new AtomicReferenceArray<>(RECENT_CAPACITY);
+        this.logged = new AtomicLong();
+
+        Thread writer = new Thread(this::writeLoop, "audit-writer-" + fileName);
+        writer.setDaemon(true);
+        writer.start();
+        // Give entries logged just before exit a chance to reach the file
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> awaitWritten(SHUTDOWN_TIMEOUT_MS)));
+    }
+
+    /**
+     * Records an entry with the current timestamp.
+     *
+     * @param message The audit message
+     */
+    public void log(String message) {
+        String entry = "[" + LocalDateTime.now().format(TIMESTAMP_FORMAT) + "] " + message;
+        boolean interrupted = false;
+        // Queued and counted together, so the count always matches the writer's order
+        synchronized (buffer) {
+            while (true) {
+                try {
+                    buffer.put(entry);
+                    break;
+                } catch (InterruptedException e) {
+                    // The change is already made, so its entry must not be dropped
+                    interrupted = true;
+                }
+            }
+            long sequence = logged.getAndIncrement();
+            recent.set((int) (sequence % RECENT_CAPACITY), entry);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the most recent entries.
+     *
+     * @param count Maximum number of entries
+     * @return Entries, oldest first
+     */
+    public List<String> tail(int count) {
+        return page(0, count);
+    }
+
+    /**
+     * Gets a page of recent entries, counting back from the newest. Only the
+     * last {@value #RECENT_CAPACITY} entries are kept in memory; older ones are
+     * in the log files.
+     *
+     * @param offset Number of newest entries to skip
+     * @param limit  Maximum number of entries
+     * @return Entries, oldest first
+     */
+    public List<String> page(int offset, int limit) {
+        long newest = logged.get();
+        long end = Math.max(newest - offset, 0);
+        long start = Math.max(Math.max(end - limit, newest - RECENT_CAPACITY), 0);
+
+        List<String> entries = new ArrayList<>((int) Math.max(end - start, 0));
+        for (long sequence = start; sequence < end; sequence++) {
+            String entry = recent.get((int) (sequence % RECENT_CAPACITY));
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Waits until every entry logged so far has been written to disk.
+     *
+     * @param timeoutMillis Maximum time to wait
+     * @return true if everything was written in time
+     */
+    public boolean awaitWritten(long timeoutMillis) {
+        long target = logged.get();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (this) {
+            while (written < target) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits until every entry logged so far has been written to disk.
+     *
+     * @param timeoutMillis Maximum time to wait
+     * @throws IOException if the log file cannot be written, or the entries were not written in time
+     */
+    public void flush(long timeoutMillis) throws IOException {
+        if (!awaitWritten(timeoutMillis)) {
+            IOException current = failure;
+            if (current != null) {
+                throw current;
+            }
+            throw new IOException("Timed out writing audit log " + fileName);
+        }
+    }
+
+    private void writeLoop() {
+        List<String> batch = new ArrayList<>(WRITE_BATCH_SIZE);
+        while (true) {
+            try {
+                batch.add(buffer.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            buffer.drainTo(batch, WRITE_BATCH_SIZE - 1);
+
+            while (true) {
+                try {
+                    write(batch);
+                    failure = null;
+                    break;
+                } catch (IOException e) {
+                    // Retrying may repeat entries written before the failure, but never loses any
+                    failure = new IOException("Could not write audit log " + fileName + ": " + e.getMessage(), e);
+                    close();
+                }
+                try {
+                    Thread.sleep(RETRY_DELAY_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            synchronized (this) {
+                written += batch.size();
+                notifyAll();
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(List<String> batch) throws IOException {
+        if (out == null) {
+            open();
+        }
+        for (String entry : batch) {
+            byte[] line = (entry + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+            if (fileBytes > 0 && fileBytes + line.length > MAX_FILE_BYTES) {
+                rotate();
+            }
+            out.write(line);
+            fileBytes += line.length;
+        }
+        out.flush();
+    }
+
+    private void open() throws IOException {
+        path = Paths.get(FilePathManager.getLogFilePath(fileName));
+        out = new BufferedOutputStream(Files.newOutputStream(path,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+        fileBytes = Files.size(path);
+    }
+
+    private void rotate() throws IOException {
+        close();
+        Files.deleteIfExists(rotatedPath(MAX_ROTATED_FILES));
+        for (int i = MAX_ROTATED_FILES - 1; i >= 1; i--) {
+            Path older = rotatedPath(i);
+            if (Files.exists(older)) {
+                Files.move(older, rotatedPath(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(path, rotatedPath(1), StandardCopyOption.REPLACE_EXISTING);
+        open();
+    }
+
+    private Path rotatedPath(int index) {
+        return path.resolveSibling(path.getFileName() + "." + index);
+    }
+
+    private void close() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // Nothing more can be done with a broken log file
+            }
+            out = null;
+        }
+    }
+}
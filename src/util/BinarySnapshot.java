@@ -0,0 +1,399 @@
+package util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact binary, column-oriented snapshot of an entity table.
+ *
+ * Every column is stored as one packed array of 32-bit ints: strings as codes
+ * into a dictionary shared by all string columns (so repeated IDs, statuses and
+ * names are stored once), dates as epoch days, times as seconds of the day and
+ * integers as themselves. Reading a snapshot decodes each distinct string once
+ * and reads every other value directly, with no text parsing.
+ *
+ * Layout (big-endian): magic, version, row count, column count, one type byte
+ * per column, dictionary size followed by length-prefixed UTF-8 strings, the
+ * column arrays one after another, and a CRC-32 of everything before it.
+ */
+public class BinarySnapshot {
+
+    /**
+     * Storage type of a snapshot column.
+     */
+    public enum ColumnType {
+        STRING, DATE, TIME, INT
+    }
+
+    /**
+     * Creates an entity from one row of a snapshot.
+     *
+     * @param <T> Entity type
+     */
+    public interface RowReader<T> {
+        T read(BinarySnapshot snapshot, int row);
+    }
+
+    /**
+     * Writes an entity's column values, in column order, into a snapshot builder.
+     *
+     * @param <T> Entity type
+     */
+    public interface RowWriter<T> {
+        void write(Builder row, T entity);
+    }
+
+    private static final int MAGIC = 0x484D5342; // "HMSB"
+    private static final int VERSION = 1;
+    private static final int NULL_STRING = -1;
+    private static final int NULL_VALUE = Integer.MIN_VALUE;
+
+    private static volatile boolean enabled = Boolean.getBoolean("hms.binarySnapshots");
+
+    private final ColumnType[] columnTypes;
+    private final int rowCount;
+    private final String[] dictionary;
+    private final IntBuffer[] columns;
+
+    private BinarySnapshot(ColumnType[] columnTypes, int rowCount, String[] dictionary, IntBuffer[] columns) {
+        this.columnTypes = columnTypes;
+        this.rowCount = rowCount;
+        this.dictionary = dictionary;
+        this.columns = columns;
+    }
+
+    /**
+     * Checks whether snapshots are written in binary form instead of CSV.
+     * Defaults to the {@code hms.binarySnapshots} system property.
+     *
+     * @return true if binary snapshots are enabled
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Selects binary or CSV snapshots for subsequent saves.
+     *
+     * @param binary true to write binary snapshots
+     */
+    public static void setEnabled(boolean binary) {
+        enabled = binary;
+    }
+
+    /**
+     * Reads a snapshot file and converts every row to an entity.
+     *
+     * @param filePath Path to the snapshot
+     * @param reader   Creates an entity from a row
+     * @param <T>      Entity type
+     * @return Entities in snapshot order
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static <T> List<T> load(String filePath, RowReader<T> reader) throws IOException {
+        BinarySnapshot snapshot = read(filePath);
+        List<T> entities = new ArrayList<>(snapshot.getRowCount());
+        for (int row = 0; row < snapshot.getRowCount(); row++) {
+            T entity = reader.read(snapshot, row);
+            if (entity != null) {
+                entities.add(entity);
+            }
+        }
+        return entities;
+    }
+
+    /**
+     * Reads a snapshot file.
+     *
+     * @param filePath Path to the snapshot
+     * @return The snapshot
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static BinarySnapshot read(String filePath) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large: " + filePath);
+            }
+            buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+        }
+
+        if (buffer.remaining() < 24 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary snapshot: " + filePath);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported snapshot version " + buffer.getInt(4) + " in " + filePath);
+        }
+
+        int dataLength = buffer.limit() - Long.BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, dataLength);
+        if (crc.getValue() != buffer.getLong(dataLength)) {
+            throw new IOException("Checksum mismatch in " + filePath);
+        }
+
+        try {
+            buffer.position(8);
+            int rowCount = buffer.getInt();
+            ColumnType[] types = new ColumnType[buffer.getInt()];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = ColumnType.values()[buffer.get()];
+            }
+
+            String[] dictionary = new String[buffer.getInt()];
+            for (int i = 0; i < dictionary.length; i++) {
+                int length = buffer.getInt();
+                dictionary[i] = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+            }
+
+            IntBuffer[] columns = new IntBuffer[types.length];
+            for (int i = 0; i < types.length; i++) {
+                columns[i] = buffer.slice(buffer.position(), rowCount * Integer.BYTES).asIntBuffer();
+                buffer.position(buffer.position() + rowCount * Integer.BYTES);
+            }
+            return new BinarySnapshot(types, rowCount, dictionary, columns);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt binary snapshot: " + filePath, e);
+        }
+    }
+
+    /**
+     * Gets the number of rows.
+     *
+     * @return Row count
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Gets the number of columns.
+     *
+     * @return Column count
+     */
+    public int getColumnCount() {
+        return columnTypes.length;
+    }
+
+    /**
+     * Gets a string value.
+     *
+     * @param row    Row index
+     * @param column Column index
+     * @return The value, or null if none was stored
+     */
+    public String getString(int row, int column) {
+        int code = value(row, column, ColumnType.STRING);
+        return code == NULL_STRING ? null : dictionary[code];
+    }
+
+    /**
+     * Gets a date value.
+     *
+     * @param row    Row index
+     * @param column Column index
+     * @return The date, or null if none was stored
+     */
+    public LocalDate getDate(int row, int column) {
+        int epochDay = value(row, column, ColumnType.DATE);
+        return epochDay == NULL_VALUE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * Gets a time value.
+     *
+     * @param row    Row index
+     * @param column Column index
+     * @return The time, or null if none was stored
+     */
+    public LocalTime getTime(int row, int column) {
+        int secondOfDay = value(row, column, ColumnType.TIME);
+        return secondOfDay == NULL_VALUE ? null : LocalTime.ofSecondOfDay(secondOfDay);
+    }
+
+    /**
+     * Gets an integer value.
+     *
+     * @param row    Row index
+     * @param column Column index
+     * @return The value
+     */
+    public int getInt(int row, int column) {
+        return value(row, column, ColumnType.INT);
+    }
+
+    private int value(int row, int column, ColumnType expected) {
+        if (columnTypes[column] != expected) {
+            throw new IllegalArgumentException("Column " + column + " is " + columnTypes[column] + ", not " + expected);
+        }
+        return columns[column].get(row);
+    }
+
+    /**
+     * Collects rows column by column and writes them as a snapshot.
+     * Values are added one row at a time, in column order.
+     */
+    public static class Builder {
+
+        private final ColumnType[] columnTypes;
+        private final int[][] columns;
+        private final Map<String, Integer> codes;
+        private final List<String> dictionary;
+        private int rowCount;
+        private int column;
+
+        /**
+         * Creates an empty builder.
+         *
+         * @param columnTypes  Type of each column
+         * @param expectedRows Number of rows expected, used to size the column arrays
+         */
+        public Builder(ColumnType[] columnTypes, int expectedRows) {
+            this.columnTypes = columnTypes.clone();
+            this.columns = new int[columnTypes.length][Math.max(expectedRows, 16)];
+            this.codes = new HashMap<>();
+            this.dictionary = new ArrayList<>();
+        }
+
+        /**
+         * Adds a string value.
+         *
+         * @param value The value (may be null)
+         * @return This builder
+         */
+        public Builder putString(String value) {
+            int code = NULL_STRING;
+            if (value != null) {
+                code = codes.computeIfAbsent(value, v -> {
+                    dictionary.add(v);
+                    return dictionary.size() - 1;
+                });
+            }
+            return put(ColumnType.STRING, code);
+        }
+
+        /**
+         * Adds a date value.
+         *
+         * @param value The date (may be null)
+         * @return This builder
+         */
+        public Builder putDate(LocalDate value) {
+            return put(ColumnType.DATE, value == null ? NULL_VALUE : (int) value.toEpochDay());
+        }
+
+        /**
+         * Adds a time value.
+         *
+         * @param value The time (may be null)
+         * @return This builder
+         */
+        public Builder putTime(LocalTime value) {
+            return put(ColumnType.TIME, value == null ? NULL_VALUE : value.toSecondOfDay());
+        }
+
+        /**
+         * Adds an integer value.
+         *
+         * @param value The value
+         * @return This builder
+         */
+        public Builder putInt(int value) {
+            return put(ColumnType.INT, value);
+        }
+
+        private Builder put(ColumnType type, int value) {
+            if (columnTypes[column] != type) {
+                throw new IllegalStateException("Column " + column + " is " + columnTypes[column] + ", not " + type);
+            }
+            int[] values = columns[column];
+            if (rowCount == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+                columns[column] = values;
+            }
+            values[rowCount] = value;
+
+            if (++column == columnTypes.length) {
+                column = 0;
+                rowCount++;
+            }
+            return this;
+        }
+
+        /**
+         * Writes the collected rows to a snapshot file, replacing it atomically.
+         *
+         * @param filePath Path to the snapshot
+         * @throws IOException if the file cannot be written
+         */
+        public void write(String filePath) throws IOException {
+            if (column != 0) {
+                throw new IllegalStateException("Last row is incomplete");
+            }
+
+            Path target = Paths.get(filePath).toAbsolutePath();
+            Path temp = CSVWriter.createTempFor(target);
+            try {
+                try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+                    CheckedOutputStream checked = new CheckedOutputStream(file, new CRC32());
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(checked, 64 * 1024));
+
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeInt(rowCount);
+                    out.writeInt(columnTypes.length);
+                    for (ColumnType type : columnTypes) {
+                        out.writeByte(type.ordinal());
+                    }
+
+                    out.writeInt(dictionary.size());
+                    for (String value : dictionary) {
+                        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                        out.writeInt(bytes.length);
+                        out.write(bytes);
+                    }
+
+                    for (int[] values : columns) {
+                        for (int row = 0; row < rowCount; row++) {
+                            out.writeInt(values[row]);
+                        }
+                    }
+                    out.flush();
+
+                    new DataOutputStream(file).writeLong(checked.getChecksum().getValue());
+                    file.getFD().sync();
+                }
+                CSVWriter.replaceAtomically(temp, target);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+}
@@ -1,43 +1,65 @@
 package util;
 
-import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Utility class for reading CSV files.
- * Handles proper CSV parsing including quoted fields with commas.
+ * Handles proper CSV parsing including quoted fields with commas and line breaks.
  */
 public class CSVReader {
 
     /**
-     * Reads all lines from a CSV file and returns them as a list of string arrays.
-     * Skips the header row.
+     * Streams every data row of a CSV file to a handler, one row at a time.
+     * Skips the header row and any {@link SnapshotChecksum} footer. Rows are
+     * never collected into a list, so memory use stays constant regardless of file size.
      *
      * @param filePath Path to the CSV file
-     * @return List of string arrays, each representing a row
+     * @param handler  Callback invoked with each row's field values
      * @throws IOException if file cannot be read
      */
-    public static List<String[]> readCSV(String filePath) throws IOException {
-        List<String[]> records = new ArrayList<>();
-
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            boolean isFirstLine = true;
+    public static void forEachRecord(String filePath, Consumer<String[]> handler) throws IOException {
+        try (CSVStreamReader reader = openStream(filePath)) {
+            if (reader.readRecord() == null) {
+                return; // Empty file
+            }
 
-            while ((line = br.readLine()) != null) {
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue; // Skip header row
+            String[] record;
+            while ((record = reader.readRecord()) != null) {
+                if (!SnapshotChecksum.isFooter(record)) {
+                    handler.accept(record);
                 }
-
-                String[] values = parseCSVLine(line);
-                records.add(values);
             }
         }
+    }
+
+    /**
+     * Opens a streaming reader positioned at the start of a CSV file (before the header).
+     * The caller is responsible for closing it.
+     *
+     * @param filePath Path to the CSV file
+     * @return Streaming reader over the file
+     * @throws IOException if file cannot be opened
+     */
+    public static CSVStreamReader openStream(String filePath) throws IOException {
+        return new CSVStreamReader(new FileReader(filePath, StandardCharsets.UTF_8));
+    }
 
+    /**
+     * Reads all lines from a CSV file and returns them as a list of string arrays.
+     * Skips the header row.
+     *
+     * @param filePath Path to the CSV file
+     * @return List of string arrays, each representing a row
+     * @throws IOException if file cannot be read
+     */
+    public static List<String[]> readCSV(String filePath) throws IOException {
+        List<String[]> records = new ArrayList<>();
+        forEachRecord(filePath, records::add);
         return records;
     }
 
@@ -51,12 +73,12 @@ public class CSVReader {
     public static List<String[]> readCSVWithHeader(String filePath) throws IOException {
         List<String[]> records = new ArrayList<>();
 
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
-
-            while ((line = br.readLine()) != null) {
-                String[] values = parseCSVLine(line);
-                records.add(values);
+        try (CSVStreamReader reader = openStream(filePath)) {
+            String[] record;
+            while ((record = reader.readRecord()) != null) {
+                if (!SnapshotChecksum.isFooter(record)) {
+                    records.add(record);
+                }
             }
         }
 
@@ -71,50 +93,12 @@ public class CSVReader {
      * @throws IOException if file cannot be read
      */
     public static String[] readHeader(String filePath) throws IOException {
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line = br.readLine();
-            if (line != null) {
-                return parseCSVLine(line);
+        try (CSVStreamReader reader = openStream(filePath)) {
+            String[] header = reader.readRecord();
+            if (header != null) {
+                return header;
             }
         }
         return new String[0];
     }
-
-    /**
-     * Parses a single CSV line, handling quoted fields that may contain commas.
-     *
-     * @param line The CSV line to parse
-     * @return Array of field values
-     */
-    private static String[] parseCSVLine(String line) {
-        List<String> result = new ArrayList<>();
-        StringBuilder currentField = new StringBuilder();
-        boolean inQuotes = false;
-
-        for (int i = 0; i < line.length(); i++) {
-            char c = line.charAt(i);
-
-            if (c == '"') {
-                if (inQuotes && i + 1 < line.length() && line.charAt(i + 1) == '"') {
-                    // Escaped quote
-                    currentField.append('"');
-                    i++;
-                } else {
-                    // Toggle quote mode
-                    inQuotes = !inQuotes;
-                }
-            } else if (c == ',' && !inQuotes) {
-                // End of field
-                result.add(currentField.toString().trim());
-                currentField = new StringBuilder();
-            } else {
-                currentField.append(c);
-            }
-        }
-
-        // Add the last field
-        result.add(currentField.toString().trim());
-
-        return result.toArray(new String[0]);
-    }
 }
@@ -0,0 +1,213 @@
+package util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Streaming CSV parser that reads one record at a time from a {@link Reader}.
+ * Quoted fields may contain commas, doubled quotes and line breaks, matching
+ * what {@link CSVWriter} produces. The read buffer, field buffer and field
+ * slots are reused between records, so memory use does not grow with the file.
+ * Unquoted fields are trimmed; quoted fields are returned exactly as written.
+ */
+public class CSVStreamReader implements Closeable, Iterable<String[]> {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+
+    private final StringBuilder field;
+    private String[] fields;
+    private int fieldCount;
+    private long recordNumber;
+
+    /**
+     * Creates a stream reader over the given character source.
+     *
+     * @param reader The source to read from; closed when this reader is closed
+     */
+    public CSVStreamReader(Reader reader) {
+        this.reader = reader;
+        this.buffer = new char[BUFFER_SIZE];
+        this.field = new StringBuilder(64);
+        this.fields = new String[16];
+    }
+
+    /**
+     * Creates a stream reader that parses characters already held in memory, without copying them.
+     *
+     * @param data   Character array holding the CSV text
+     * @param offset Index of the first character to parse
+     * @param length Number of characters to parse
+     */
+    public CSVStreamReader(char[] data, int offset, int length) {
+        this.reader = null;
+        this.buffer = data;
+        this.position = offset;
+        this.limit = offset + length;
+        this.field = new StringBuilder(64);
+        this.fields = new String[16];
+    }
+
+    /**
+     * Reads the next record.
+     * Blank lines are skipped.
+     *
+     * @return Array of field values, or null at end of input
+     * @throws IOException if the source cannot be read
+     */
+    public String[] readRecord() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            if (c == '\n' || c == '\r') {
+                continue; // Blank line (or the \n of a \r\n pair)
+            }
+            parseRecord(c);
+            recordNumber++;
+            return Arrays.copyOf(fields, fieldCount);
+        }
+    }
+
+    /**
+     * Gets the number of records returned so far.
+     *
+     * @return Record count
+     */
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    /**
+     * Parses one record starting with the given (non line-break) character.
+     */
+    private void parseRecord(int c) throws IOException {
+        fieldCount = 0;
+        field.setLength(0);
+        boolean inQuotes = false;
+        boolean quoted = false;
+
+        while (c != -1) {
+            if (inQuotes) {
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"'); // Escaped quote
+                    } else {
+                        inQuotes = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+                quoted = true;
+            } else if (c == ',') {
+                endField(quoted);
+                quoted = false;
+            } else if (c == '\n') {
+                break;
+            } else if (c == '\r') {
+                int next = read();
+                if (next != '\n' && next != -1) {
+                    position--; // Lone \r: leave the next character for the following record
+                }
+                break;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+
+        endField(quoted);
+    }
+
+    private void endField(boolean quoted) {
+        if (fieldCount == fields.length) {
+            fields = Arrays.copyOf(fields, fieldCount * 2);
+        }
+        fields[fieldCount++] = quoted ? field.toString() : trimmed(field);
+        field.setLength(0);
+    }
+
+    private static String trimmed(StringBuilder sb) {
+        int start = 0;
+        int end = sb.length();
+        while (start < end && sb.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && sb.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return start == end ? "" : sb.substring(start, end);
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            if (reader == null) {
+                return -1;
+            }
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (reader != null) {
+            reader.close();
+        }
+    }
+
+    /**
+     * Returns an iterator over the remaining records.
+     * Read errors are rethrown as {@link UncheckedIOException}.
+     *
+     * @return Record iterator
+     */
+    @Override
+    public Iterator<String[]> iterator() {
+        return new Iterator<String[]>() {
+            private String[] next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = readRecord();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public String[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String[] record = next;
+                next = null;
+                return record;
+            }
+        };
+    }
+}
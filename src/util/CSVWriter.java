@@ -1,9 +1,21 @@
 package util;
 
 import java.io.BufferedWriter;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 
 /**
  * Utility class for writing CSV files.
@@ -11,8 +23,10 @@ import java.util.List;
  */
 public class CSVWriter {
 
+    private static final String TEMP_SUFFIX = ".tmp";
+
     /**
-     * Writes data to a CSV file, overwriting existing content.
+     * Writes data to a CSV file, replacing existing content atomically.
      *
      * @param filePath Path to the CSV file
      * @param header   Column headers
@@ -20,16 +34,99 @@ public class CSVWriter {
      * @throws IOException if file cannot be written
      */
     public static void writeCSV(String filePath, String[] header, List<String[]> data) throws IOException {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filePath))) {
-            // Write header
-            bw.write(formatCSVLine(header));
-            bw.newLine();
+        writeCSV(filePath, header, data, false);
+    }
 
-            // Write data rows
-            for (String[] row : data) {
-                bw.write(formatCSVLine(row));
+    /**
+     * Writes data to a CSV file, replacing existing content atomically.
+     * The rows are written to a temporary file in the same directory, forced
+     * to disk, and then renamed over the original, so a crash mid-save leaves
+     * either the old file or the new one, never a partial file.
+     *
+     * @param filePath     Path to the CSV file
+     * @param header       Column headers
+     * @param data         List of string arrays representing rows
+     * @param withChecksum Whether to end the file with a {@link SnapshotChecksum} footer;
+     *                     leave it off for files meant for other programs
+     * @throws IOException if file cannot be written
+     */
+    public static void writeCSV(String filePath, String[] header, List<String[]> data,
+                                boolean withChecksum) throws IOException {
+        Path target = Paths.get(filePath).toAbsolutePath();
+        Path temp = createTempFor(target);
+
+        try {
+            try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+                CheckedOutputStream checked = new CheckedOutputStream(out, new CRC32());
+                BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(checked, StandardCharsets.UTF_8));
+
+                // Write header
+                bw.write(formatCSVLine(header));
                 bw.newLine();
+
+                // Write data rows
+                for (String[] row : data) {
+                    bw.write(formatCSVLine(row));
+                    bw.newLine();
+                }
+                bw.flush();
+
+                if (withChecksum) {
+                    String footer = SnapshotChecksum.formatFooter(checked.getChecksum().getValue(), data.size());
+                    out.write((footer + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+                }
+                out.getFD().sync();
+            }
+
+            replaceAtomically(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Creates a uniquely named temporary file next to the target, for a snapshot
+     * to be written to before it replaces the target. Concurrent saves of the
+     * same file each get their own temporary file. The target's permissions are
+     * copied where the platform supports it.
+     */
+    static Path createTempFor(Path target) throws IOException {
+        target = target.toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName() + ".", TEMP_SUFFIX);
+        try {
+            if (Files.exists(target)) {
+                Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
             }
+        } catch (UnsupportedOperationException | IOException e) {
+            // Keep the default permissions of temporary files
+        }
+        return temp;
+    }
+
+    /**
+     * Renames a fully written, synced temporary file over its target and syncs the directory.
+     */
+    static void replaceAtomically(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(target.getParent());
+    }
+
+    /**
+     * Forces a directory entry change (such as a rename) to disk.
+     * Not every platform allows opening a directory, so failures are ignored.
+     */
+    private static void syncDirectory(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Best effort only
         }
     }
 
@@ -41,7 +138,7 @@ public class CSVWriter {
      * @throws IOException if file cannot be written
      */
     public static void appendRow(String filePath, String[] row) throws IOException {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filePath, true))) {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filePath, StandardCharsets.UTF_8, true))) {
             bw.write(formatCSVLine(row));
             bw.newLine();
         }
@@ -55,11 +152,28 @@ public class CSVWriter {
      * @throws IOException if file cannot be written
      */
     public static void appendRows(String filePath, List<String[]> rows) throws IOException {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filePath, true))) {
+        appendRows(filePath, rows, false);
+    }
+
+    /**
+     * Appends multiple rows to a CSV file, creating it if needed.
+     *
+     * @param filePath Path to the CSV file
+     * @param rows     List of string arrays representing rows to append
+     * @param sync     Whether to force the appended rows to disk before returning
+     * @throws IOException if file cannot be written
+     */
+    public static void appendRows(String filePath, List<String[]> rows, boolean sync) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(filePath, true)) {
+            BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
             for (String[] row : rows) {
                 bw.write(formatCSVLine(row));
                 bw.newLine();
             }
+            bw.flush();
+            if (sync) {
+                out.getFD().sync();
+            }
         }
     }
 
@@ -0,0 +1,380 @@
+package util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only change journal kept next to an entity's CSV snapshot.
+ *
+ * Controllers record which IDs were inserted, updated or deleted; saving
+ * appends one journal row per changed ID instead of rewriting the snapshot.
+ * Loading replays the journal on top of the snapshot. Once the journal grows
+ * large relative to the table, it is folded into a fresh snapshot on a
+ * background thread. A failed compaction is reported by the next
+ * {@link #flush} or {@link #awaitAllCompactions} call.
+ *
+ * Journal rows are CSV: the operation code followed by the entity's full CSV
+ * row for inserts and updates, or by just the ID for deletes, and ending with
+ * a CRC-32 of the preceding fields. Every append is forced to disk before
+ * {@link #flush} returns. On replay, a last row with the wrong field count or
+ * checksum is a torn write from a crash mid-append and is cut off the file;
+ * a bad row anywhere else means the journal is corrupt.
+ */
+public class ChangeJournal {
+
+    public static final String INSERT = "I";
+    public static final String UPDATE = "U";
+    public static final String DELETE = "D";
+
+    /**
+     * Writes a new snapshot of the table.
+     */
+    public interface SnapshotWriter {
+        void write() throws IOException;
+    }
+
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String COMPACTING_SUFFIX = ".compacting";
+    private static final int MIN_COMPACTION_ENTRIES = 1000;
+
+    private static final ExecutorService compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "journal-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Set<ChangeJournal> compactingJournals = new LinkedHashSet<>();
+
+    private final String snapshotPath;
+    private final int fieldCount;
+    private final Path journalPath;
+    private final Path compactingPath;
+    private final Map<String, String> pending;
+    private long journalEntries;
+    private CompletableFuture<Void> compaction;
+    private IOException compactionFailure;
+
+    /**
+     * Creates the journal for a snapshot file.
+     *
+     * @param snapshotPath Path to the entity's CSV snapshot
+     * @param fieldCount   Number of columns in the entity's CSV rows
+     */
+    public ChangeJournal(String snapshotPath, int fieldCount) {
+        this.snapshotPath = snapshotPath;
+        this.fieldCount = fieldCount;
+        this.journalPath = Paths.get(snapshotPath + JOURNAL_SUFFIX);
+        this.compactingPath = Paths.get(snapshotPath + JOURNAL_SUFFIX + COMPACTING_SUFFIX);
+        this.pending = new LinkedHashMap<>();
+        this.compaction = CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Records that an entity was inserted.
+     *
+     * @param id The entity ID
+     */
+    public synchronized void recordInsert(String id) {
+        pending.put(id, INSERT);
+    }
+
+    /**
+     * Records that an entity was updated.
+     *
+     * @param id The entity ID
+     */
+    public synchronized void recordUpdate(String id) {
+        // An insert that has not been flushed yet already carries the latest state
+        if (!INSERT.equals(pending.get(id))) {
+            pending.put(id, UPDATE);
+        }
+    }
+
+    /**
+     * Records that an entity was deleted.
+     *
+     * @param id The entity ID
+     */
+    public synchronized void recordDelete(String id) {
+        pending.put(id, DELETE);
+    }
+
+    /**
+     * Checks whether there are changes that have not been flushed to the journal.
+     *
+     * @return true if there are unsaved changes
+     */
+    public synchronized boolean hasPendingChanges() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Appends all pending changes to the journal file.
+     *
+     * @param recordLookup Returns the current CSV row for an ID, or null if it no longer exists
+     * @return Number of journal rows written
+     * @throws IOException if the journal cannot be written, or if the last compaction failed
+     */
+    public synchronized int flush(Function<String, String[]> recordLookup) throws IOException {
+        throwCompactionFailure();
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        List<String[]> rows = new ArrayList<>(pending.size());
+        for (Map.Entry<String, String> change : pending.entrySet()) {
+            String id = change.getKey();
+            String[] record = DELETE.equals(change.getValue()) ? null : recordLookup.apply(id);
+            if (record == null) {
+                rows.add(withChecksum(new String[]{DELETE, id, null}));
+            } else {
+                String[] row = new String[record.length + 2];
+                row[0] = change.getValue();
+                System.arraycopy(record, 0, row, 1, record.length);
+                rows.add(withChecksum(row));
+            }
+        }
+
+        CSVWriter.appendRows(journalPath.toString(), rows, true);
+        pending.clear();
+        journalEntries += rows.size();
+        return rows.size();
+    }
+
+    /**
+     * Replays the journal on top of a freshly loaded snapshot and discards unsaved changes.
+     * Rows left over from an unfinished compaction are replayed first.
+     *
+     * @param upsert Called with the CSV row of every inserted or updated entity
+     * @param delete Called with the ID of every deleted entity
+     * @throws IOException if the journal cannot be read
+     */
+    public synchronized void replay(Consumer<String[]> upsert, Consumer<String> delete) throws IOException {
+        pending.clear();
+        journalEntries = 0;
+        journalEntries += replayFile(compactingPath, upsert, delete);
+        journalEntries += replayFile(journalPath, upsert, delete);
+    }
+
+    private long replayFile(Path path, Consumer<String[]> upsert, Consumer<String> delete) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+
+        List<String[]> rows = new ArrayList<>();
+        boolean tornTail = false;
+        try (CSVStreamReader reader = CSVReader.openStream(path.toString())) {
+            String[] row;
+            while ((row = reader.readRecord()) != null) {
+                if (tornTail) {
+                    throw new IOException("Corrupt journal row " + (reader.getRecordNumber() - 1) + " in " + path);
+                }
+                if (isValid(row)) {
+                    rows.add(row);
+                } else {
+                    tornTail = true; // Only acceptable as the last row
+                }
+            }
+        }
+
+        if (tornTail) {
+            truncate(path, rows);
+        }
+
+        for (String[] row : rows) {
+            if (DELETE.equals(row[0])) {
+                delete.accept(row[1]);
+            } else {
+                upsert.accept(Arrays.copyOfRange(row, 1, row.length - 1));
+            }
+        }
+        return rows.size();
+    }
+
+    private boolean isValid(String[] row) {
+        int expected;
+        if (row.length > 0 && DELETE.equals(row[0])) {
+            expected = 3;
+        } else if (row.length > 0 && (INSERT.equals(row[0]) || UPDATE.equals(row[0]))) {
+            expected = fieldCount + 2;
+        } else {
+            return false;
+        }
+        return row.length == expected && checksum(row).equals(row[row.length - 1]);
+    }
+
+    /**
+     * Rewrites a journal without its torn last row, so later appends do not follow a partial line.
+     */
+    private static void truncate(Path path, List<String[]> validRows) throws IOException {
+        Path temp = CSVWriter.createTempFor(path);
+        try {
+            CSVWriter.appendRows(temp.toString(), validRows, true);
+            CSVWriter.replaceAtomically(temp, path.toAbsolutePath());
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Fills the last slot of a journal row with the checksum of the fields before it.
+     */
+    private static String[] withChecksum(String[] row) {
+        row[row.length - 1] = checksum(row);
+        return row;
+    }
+
+    /**
+     * Computes the CRC-32 of every field but the last. Fields are trimmed first,
+     * because the CSV reader trims unquoted fields.
+     */
+    private static String checksum(String[] row) {
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < row.length - 1; i++) {
+            String value = row[i] == null ? "" : row[i].trim();
+            crc.update(value.getBytes(StandardCharsets.UTF_8));
+            crc.update(0);
+        }
+        return String.format("%08x", crc.getValue());
+    }
+
+    /**
+     * Checks whether the journal has grown large enough to be folded into a new snapshot.
+     * The threshold scales with the table so compaction cost stays proportional to edits.
+     *
+     * @param rowCount Current number of rows in the table
+     * @return true if a compaction should be started
+     */
+    public synchronized boolean needsCompaction(int rowCount) {
+        return compaction.isDone() && journalEntries >= Math.max(MIN_COMPACTION_ENTRIES, rowCount / 2);
+    }
+
+    /**
+     * Folds the journal into a new snapshot on a background thread.
+     * The current journal is set aside first, so changes saved while the
+     * snapshot is being written go to a fresh journal and are not lost.
+     * The rows are captured after the set-aside and under this journal's lock:
+     * no change can be journaled in between, so every change in the set-aside
+     * journal is already in the captured rows. Call after {@link #flush} so the
+     * snapshot includes every journaled change.
+     *
+     * @param capture Captures the current rows on the calling thread and returns
+     *                the writer that stores them
+     * @throws IOException if the journal cannot be set aside
+     */
+    public synchronized void compact(Supplier<SnapshotWriter> capture) throws IOException {
+        if (!compaction.isDone()) {
+            return;
+        }
+
+        if (Files.exists(journalPath)) {
+            if (Files.exists(compactingPath)) {
+                // A previous compaction never finished: keep its rows until this one completes
+                Files.write(compactingPath, Files.readAllBytes(journalPath), StandardOpenOption.APPEND);
+                Files.delete(journalPath);
+            } else {
+                Files.move(journalPath, compactingPath, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        journalEntries = 0;
+
+        SnapshotWriter snapshot = capture.get();
+        compaction = CompletableFuture.runAsync(() -> {
+            try {
+                snapshot.write();
+                Files.deleteIfExists(compactingPath);
+            } catch (IOException e) {
+                // The set-aside journal is still replayed on load, so nothing is lost
+                synchronized (this) {
+                    compactionFailure = new IOException(
+                            "Journal compaction failed for " + snapshotPath + ": " + e.getMessage(), e);
+                }
+            }
+        }, compactionExecutor);
+
+        synchronized (compactingJournals) {
+            compactingJournals.add(this);
+        }
+    }
+
+    /**
+     * Throws the failure of the last background compaction, once.
+     */
+    private synchronized void throwCompactionFailure() throws IOException {
+        IOException failure = compactionFailure;
+        if (failure != null) {
+            compactionFailure = null;
+            throw failure;
+        }
+    }
+
+    /**
+     * Waits for this journal's background compaction, if any, to finish writing the snapshot.
+     */
+    public void awaitCompaction() {
+        CompletableFuture<Void> running;
+        synchronized (this) {
+            running = compaction;
+        }
+        waitFor(running);
+    }
+
+    /**
+     * Waits for every background compaction to finish. Call before exiting the application.
+     *
+     * @throws IOException if a compaction failed and has not been reported yet
+     */
+    public static void awaitAllCompactions() throws IOException {
+        List<ChangeJournal> journals;
+        synchronized (compactingJournals) {
+            journals = new ArrayList<>(compactingJournals);
+            compactingJournals.clear();
+        }
+
+        IOException failure = null;
+        for (ChangeJournal journal : journals) {
+            journal.awaitCompaction();
+            try {
+                journal.throwCompactionFailure();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static void waitFor(CompletableFuture<Void> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Failures are reported by the compaction task itself
+        }
+    }
+}
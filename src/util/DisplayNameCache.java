@@ -0,0 +1,65 @@
+package util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Caches a display name per entity ID, such as a patient's full name shown
+ * in other entities' tables, so it is built once per entity change rather
+ * than once per table row. The owner must invalidate an ID whenever that
+ * entity is added, updated or deleted, and clear the cache when reloading.
+ *
+ * @param <T> Entity type
+ */
+public class DisplayNameCache<T> {
+
+    private final Function<String, T> lookup;
+    private final Function<T, String> format;
+    private final ConcurrentHashMap<String, String> names;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param lookup Finds an entity by ID, returning null if it does not exist
+     * @param format Builds the display name of an entity
+     */
+    public DisplayNameCache(Function<String, T> lookup, Function<T, String> format) {
+        this.lookup = lookup;
+        this.format = format;
+        this.names = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Gets the display name of an entity.
+     *
+     * @param id Entity ID, may be null
+     * @return The display name, or an empty string if there is no such entity
+     */
+    public String get(String id) {
+        if (id == null) {
+            return "";
+        }
+        return names.computeIfAbsent(id, key -> {
+            T entity = lookup.apply(key);
+            return entity != null ? format.apply(entity) : "";
+        });
+    }
+
+    /**
+     * Drops the cached name of one entity.
+     *
+     * @param id Entity ID
+     */
+    public void invalidate(String id) {
+        if (id != null) {
+            names.remove(id);
+        }
+    }
+
+    /**
+     * Drops every cached name.
+     */
+    public void clear() {
+        names.clear();
+    }
+}
@@ -109,6 +109,37 @@ public class FilePathManager {
         return getDataFilePath("staff.csv");
     }
 
+    /**
+     * Gets the full path to the sequences.properties file.
+     *
+     * @return Full path to sequences.properties
+     */
+    public static String getSequencesFilePath() {
+        return getDataFilePath("sequences.properties");
+    }
+
+    /**
+     * Gets the path of the binary snapshot stored alongside a CSV file.
+     *
+     * @param csvPath Path to the CSV file
+     * @return Path with the .csv extension replaced by .bin
+     */
+    public static String getBinarySnapshotPath(String csvPath) {
+        String base = csvPath.endsWith(".csv") ? csvPath.substring(0, csvPath.length() - 4) : csvPath;
+        return base + ".bin";
+    }
+
+    /**
+     * Gets the path of the marker naming which snapshot of a table is current.
+     *
+     * @param csvPath Path to the CSV file
+     * @return Path with the .csv extension replaced by .snapshot
+     */
+    public static String getSnapshotMarkerPath(String csvPath) {
+        String base = csvPath.endsWith(".csv") ? csvPath.substring(0, csvPath.length() - 4) : csvPath;
+        return base + ".snapshot";
+    }
+
     /**
      * Gets the full path for output files (like referral emails).
      *
@@ -124,6 +155,31 @@ public class FilePathManager {
         return Paths.get(outputDir, filename).toString();
     }
 
+    /**
+     * Gets the path in the output folder for a plain CSV copy of a data file.
+     *
+     * @param csvPath Path to the data file
+     * @return Full path to the exported file, named like the data file
+     */
+    public static String getExportFilePath(String csvPath) {
+        return getOutputFilePath(Paths.get(csvPath).getFileName().toString());
+    }
+
+    /**
+     * Gets the full path for log files (like the referral audit trail).
+     *
+     * @param filename Name of the log file
+     * @return Full path to the log file
+     */
+    public static String getLogFilePath(String filename) {
+        String logDir = Paths.get(basePath, "logs").toString();
+        File dir = new File(logDir);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        return Paths.get(logDir, filename).toString();
+    }
+
     /**
      * Ensures the data directory exists.
      *
@@ -0,0 +1,155 @@
+package util;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Allocates sequential entity IDs such as P001, P002, ... without scanning existing IDs.
+ *
+ * The sequence is seeded once after a table is loaded, from the highest existing
+ * ID and the high-water mark saved in {@code data/sequences.properties}, so IDs
+ * of deleted entities are never handed out again. Allocation is a single atomic
+ * increment, so concurrent callers always receive distinct IDs.
+ */
+public class IdSequence {
+
+    private static final Object fileLock = new Object();
+
+    private final String name;
+    private final String prefix;
+    private final AtomicLong last;
+
+    /**
+     * Creates a sequence.
+     *
+     * @param name   Key under which the high-water mark is saved
+     * @param prefix Prefix of every ID, e.g. "P" or "RX"
+     */
+    public IdSequence(String name, String prefix) {
+        this.name = name;
+        this.prefix = prefix;
+        this.last = new AtomicLong();
+    }
+
+    /**
+     * Seeds the sequence after loading, so the next ID follows both the highest
+     * existing ID and the saved high-water mark. The sequence never moves backwards.
+     *
+     * @param entities   Every entity in the table
+     * @param idFunction Extracts the ID of an entity
+     * @param <T>        Entity type
+     * @throws IOException if the saved high-water mark cannot be read
+     */
+    public <T> void seed(Collection<T> entities, Function<T, String> idFunction) throws IOException {
+        long max = readSaved();
+        for (T entity : entities) {
+            max = Math.max(max, parse(idFunction.apply(entity)));
+        }
+        last.accumulateAndGet(max, Math::max);
+    }
+
+    /**
+     * Allocates the next ID.
+     *
+     * @return The new ID
+     */
+    public String next() {
+        return format(last.incrementAndGet());
+    }
+
+    /**
+     * Reserves a block of consecutive IDs in one step, e.g. for a bulk import.
+     *
+     * @param count Number of IDs to reserve
+     * @return The reserved IDs in order
+     */
+    public List<String> reserve(int count) {
+        long end = last.addAndGet(count);
+        List<String> ids = new ArrayList<>(count);
+        for (long n = end - count + 1; n <= end; n++) {
+            ids.add(format(n));
+        }
+        return ids;
+    }
+
+    /**
+     * Saves the high-water mark so allocated IDs are not reused after a restart.
+     *
+     * @throws IOException if the sequences file cannot be written
+     */
+    public void save() throws IOException {
+        synchronized (fileLock) {
+            Path path = sequencesPath();
+            Properties properties = readProperties(path);
+            long saved = parseLong(properties.getProperty(name));
+            if (saved >= last.get()) {
+                return;
+            }
+            properties.setProperty(name, Long.toString(last.get()));
+
+            Path temp = CSVWriter.createTempFor(path);
+            try {
+                try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+                    properties.store(out, "Highest allocated ID number per entity");
+                    out.getFD().sync();
+                }
+                CSVWriter.replaceAtomically(temp, path);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    private String format(long number) {
+        return String.format("%s%03d", prefix, number);
+    }
+
+    private long parse(String id) {
+        if (id == null || !id.startsWith(prefix)) {
+            return 0;
+        }
+        return parseLong(id.substring(prefix.length()));
+    }
+
+    private long readSaved() throws IOException {
+        synchronized (fileLock) {
+            return parseLong(readProperties(sequencesPath()).getProperty(name));
+        }
+    }
+
+    private static long parseLong(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static Properties readProperties(Path path) throws IOException {
+        Properties properties = new Properties();
+        if (Files.exists(path)) {
+            try (InputStream in = new FileInputStream(path.toFile())) {
+                properties.load(in);
+            }
+        }
+        return properties;
+    }
+
+    private static Path sequencesPath() {
+        return Paths.get(FilePathManager.getSequencesFilePath());
+    }
+}
@@ -0,0 +1,283 @@
+package util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * Loads large CSV files by memory-mapping them and parsing chunks in parallel.
+ *
+ * The file is split at record boundaries: a single byte-level pass tracks
+ * quote parity so a split never lands on a line break inside a quoted field.
+ * Each chunk is then decoded and parsed on the fork-join pool, and its rows
+ * are converted to typed records by the caller's mapper. Results keep file order.
+ * Files below the parallel threshold are streamed on the calling thread instead.
+ * If the file ends with a {@link SnapshotChecksum} footer, the CRC-32 is computed
+ * during the same pass that reads the bytes and checked before any rows are returned.
+ */
+public class MappedCSVLoader {
+
+    private static final long DEFAULT_PARALLEL_THRESHOLD = 4L * 1024 * 1024;
+    private static final long CHUNK_SIZE = 8L * 1024 * 1024;
+    private static final long SCAN_WINDOW = 256L * 1024 * 1024;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private static volatile long parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    /**
+     * Sets the file size (in bytes) from which files are mapped and parsed in parallel.
+     *
+     * @param bytes Minimum file size for parallel loading
+     */
+    public static void setParallelThreshold(long bytes) {
+        parallelThreshold = bytes;
+    }
+
+    /**
+     * Loads every data row of a CSV file (skipping the header) and maps it to a typed record.
+     * Rows for which the mapper returns null are dropped.
+     * The mapper may be called from several threads at once.
+     *
+     * @param filePath Path to the CSV file
+     * @param mapper   Converts a row's field values into a record, or null to skip the row;
+     *                 throws IllegalArgumentException to reject the file
+     * @param <T>      Record type
+     * @return Records in file order
+     * @throws IOException if file cannot be read, or the mapper rejects a row
+     */
+    public static <T> List<T> load(String filePath, Function<String[], T> mapper) throws IOException {
+        try {
+            return loadRecords(filePath, mapper);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid row in " + filePath + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static <T> List<T> loadRecords(String filePath, Function<String[], T> mapper) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            SnapshotChecksum footer = SnapshotChecksum.readFooter(channel);
+
+            if (size < parallelThreshold) {
+                if (footer != null) {
+                    return loadVerified(filePath, channel, footer, mapper);
+                }
+                List<T> records = new ArrayList<>();
+                CSVReader.forEachRecord(filePath, record -> {
+                    T mapped = mapper.apply(record);
+                    if (mapped != null) {
+                        records.add(mapped);
+                    }
+                });
+                return records;
+            }
+
+            long dataEnd = footer != null ? footer.getOffset() : size;
+            CRC32 crc = footer != null ? new CRC32() : null;
+            long[] boundaries = findChunkBoundaries(channel, dataEnd, crc);
+            int chunkCount = boundaries.length - 1;
+
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            List<T>[] results = new List[chunkCount];
+            long[] rowCounts = new long[chunkCount];
+            try {
+                ForkJoinPool.commonPool().invoke(
+                        new ParseTask<>(channel, boundaries, 0, chunkCount, mapper, results, rowCounts));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            if (footer != null) {
+                long rows = 0;
+                for (long count : rowCounts) {
+                    rows += count;
+                }
+                footer.verify(filePath, crc.getValue(), rows);
+            }
+
+            int total = 0;
+            for (List<T> chunk : results) {
+                total += chunk.size();
+            }
+            List<T> records = new ArrayList<>(total);
+            for (List<T> chunk : results) {
+                records.addAll(chunk);
+            }
+            return records;
+        }
+    }
+
+    /**
+     * Reads a small file that carries a checksum footer into memory, verifies it and maps its rows.
+     */
+    private static <T> List<T> loadVerified(String filePath, FileChannel channel, SnapshotChecksum footer,
+                                            Function<String[], T> mapper) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate((int) footer.getOffset());
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, bytes.position()) < 0) {
+                break;
+            }
+        }
+        bytes.flip();
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.array(), 0, bytes.limit());
+        CharBuffer chars = StandardCharsets.UTF_8.decode(bytes);
+
+        List<T> records = new ArrayList<>();
+        long rows = 0;
+        try (CSVStreamReader reader = new CSVStreamReader(
+                chars.array(), chars.arrayOffset() + chars.position(), chars.remaining())) {
+            if (reader.readRecord() != null) { // Skip the header
+                String[] record;
+                while ((record = reader.readRecord()) != null) {
+                    rows++;
+                    T mapped = mapper.apply(record);
+                    if (mapped != null) {
+                        records.add(mapped);
+                    }
+                }
+            }
+        }
+
+        footer.verify(filePath, crc.getValue(), rows);
+        return records;
+    }
+
+    /**
+     * Finds chunk start offsets. The first boundary is the start of the first
+     * data row (just after the header) and the last is the end of the file.
+     * Every other boundary is the byte after a line break that is outside quotes.
+     * If a CRC is given, every scanned byte is added to it.
+     */
+    private static long[] findChunkBoundaries(FileChannel channel, long size, CRC32 crc) throws IOException {
+        List<Long> boundaries = new ArrayList<>();
+        boolean inQuotes = false;
+        boolean headerDone = false;
+        long nextTarget = 0;
+
+        byte[] scratch = new byte[SCAN_BUFFER_SIZE];
+
+        for (long windowStart = 0; windowStart < size; windowStart += SCAN_WINDOW) {
+            long windowSize = Math.min(SCAN_WINDOW, size - windowStart);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+
+            // Bulk-copy out of the mapping; per-byte get() on a MappedByteBuffer is far slower
+            while (window.hasRemaining()) {
+                long base = windowStart + window.position();
+                int length = Math.min(scratch.length, window.remaining());
+                window.get(scratch, 0, length);
+                if (crc != null) {
+                    crc.update(scratch, 0, length);
+                }
+
+                for (int i = 0; i < length; i++) {
+                    byte b = scratch[i];
+                    if (b == '"') {
+                        inQuotes = !inQuotes;
+                    } else if (b == '\n' && !inQuotes) {
+                        long offset = base + i;
+                        if (!headerDone) {
+                            headerDone = true;
+                            boundaries.add(offset + 1);
+                            nextTarget = offset + 1 + CHUNK_SIZE;
+                        } else if (offset >= nextTarget && offset + 1 < size) {
+                            boundaries.add(offset + 1);
+                            nextTarget = offset + 1 + CHUNK_SIZE;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (!headerDone) {
+            boundaries.add(size); // Header only, no data rows
+        }
+        boundaries.add(size);
+
+        long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = boundaries.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Fork-join task parsing a range of chunks, splitting in half until a single chunk remains.
+     */
+    private static class ParseTask<T> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long[] boundaries;
+        private final int from;
+        private final int to;
+        private final Function<String[], T> mapper;
+        private final List<T>[] results;
+        private final long[] rowCounts;
+
+        ParseTask(FileChannel channel, long[] boundaries, int from, int to,
+                  Function<String[], T> mapper, List<T>[] results, long[] rowCounts) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.from = from;
+            this.to = to;
+            this.mapper = mapper;
+            this.results = results;
+            this.rowCounts = rowCounts;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ParseTask<>(channel, boundaries, from, mid, mapper, results, rowCounts),
+                          new ParseTask<>(channel, boundaries, mid, to, mapper, results, rowCounts));
+                return;
+            }
+
+            try {
+                results[from] = parseChunk(boundaries[from], boundaries[from + 1]);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private List<T> parseChunk(long start, long end) throws IOException {
+            List<T> records = new ArrayList<>();
+            if (end <= start) {
+                return records;
+            }
+
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            // Chunks end on '\n', which never occurs inside a multi-byte UTF-8 sequence
+            CharBuffer chars = StandardCharsets.UTF_8.decode(bytes);
+
+            try (CSVStreamReader reader = new CSVStreamReader(
+                    chars.array(), chars.arrayOffset() + chars.position(), chars.remaining())) {
+                String[] record;
+                while ((record = reader.readRecord()) != null) {
+                    T mapped = mapper.apply(record);
+                    if (mapped != null) {
+                        records.add(mapped);
+                    }
+                }
+                rowCounts[from] = reader.getRecordNumber();
+            }
+            return records;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Multi-valued secondary index mapping a key (such as a patient ID or a date)
+ * to every entity that carries that key.
+ * Remembers the key each entity was filed under, so an entity that was edited
+ * in place is still moved out of its old bucket when it is re-indexed.
+ * Lookups return entities in the order they were first indexed; re-indexing
+ * an entity keeps its place.
+ *
+ * The index may be read and updated from several threads. Each bucket is
+ * changed atomically, but callers must not re-index the same entity from two
+ * threads at once.
+ *
+ * @param <K> Type of the indexed key
+ * @param <T> Type of the indexed entity
+ */
+public class SecondaryIndex<K, T> {
+
+    private final Function<T, K> keyExtractor;
+    private final Function<T, String> idExtractor;
+    private final ConcurrentMap<K, ConcurrentSkipListMap<Long, T>> buckets;
+    private final ConcurrentMap<String, Filing<K>> filingsById;
+    private final AtomicLong nextPosition;
+
+    /**
+     * Where an entity is filed: its key and its position within the key's bucket.
+     */
+    private static class Filing<K> {
+        final K key;
+        final long position;
+
+        Filing(K key, long position) {
+            this.key = key;
+            this.position = position;
+        }
+    }
+
+    /**
+     * Creates an empty index.
+     *
+     * @param keyExtractor Function returning the indexed key of an entity (null keys are not indexed)
+     * @param idExtractor  Function returning the primary ID of an entity
+     */
+    public SecondaryIndex(Function<T, K> keyExtractor, Function<T, String> idExtractor) {
+        this.keyExtractor = keyExtractor;
+        this.idExtractor = idExtractor;
+        this.buckets = new ConcurrentHashMap<>();
+        this.filingsById = new ConcurrentHashMap<>();
+        this.nextPosition = new AtomicLong();
+    }
+
+    /**
+     * Adds an entity to the index, or re-files it if it is already indexed.
+     *
+     * @param entity The entity to index
+     */
+    public void put(T entity) {
+        String id = idExtractor.apply(entity);
+        Filing<K> old = filingsById.remove(id);
+        long position;
+        if (old != null) {
+            position = old.position;
+            removeFromBucket(old);
+        } else {
+            position = nextPosition.getAndIncrement();
+        }
+
+        K key = keyExtractor.apply(entity);
+        if (key == null) {
+            return;
+        }
+        buckets.compute(key, (k, bucket) -> {
+            if (bucket == null) {
+                bucket = new ConcurrentSkipListMap<>();
+            }
+            bucket.put(position, entity);
+            return bucket;
+        });
+        filingsById.put(id, new Filing<>(key, position));
+    }
+
+    /**
+     * Removes an entity from the index.
+     *
+     * @param id The primary ID of the entity
+     */
+    public void remove(String id) {
+        Filing<K> filing = filingsById.remove(id);
+        if (filing != null) {
+            removeFromBucket(filing);
+        }
+    }
+
+    private void removeFromBucket(Filing<K> filing) {
+        // Dropping an emptied bucket inside compute keeps it from racing a concurrent put
+        buckets.computeIfPresent(filing.key, (k, bucket) -> {
+            bucket.remove(filing.position);
+            return bucket.isEmpty() ? null : bucket;
+        });
+    }
+
+    /**
+     * Gets every entity filed under a key, in the order they were first indexed.
+     *
+     * @param key The key to look up
+     * @return List of matching entities (empty if none)
+     */
+    public List<T> get(K key) {
+        ConcurrentSkipListMap<Long, T> bucket = buckets.get(key);
+        if (bucket == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(bucket.values());
+    }
+
+    /**
+     * Clears the index and re-indexes the given entities.
+     *
+     * @param entities The entities to index
+     */
+    public void rebuild(Collection<T> entities) {
+        clear();
+        for (T entity : entities) {
+            put(entity);
+        }
+    }
+
+    /**
+     * Removes all entries from the index.
+     */
+    public void clear() {
+        buckets.clear();
+        filingsById.clear();
+    }
+}
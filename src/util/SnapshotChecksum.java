@@ -0,0 +1,134 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Optional checksum footer written as the last line of a CSV snapshot.
+ *
+ * The footer has the form {@code #checksum,crc32=<hex>,rows=<count>}, where the
+ * CRC-32 covers every byte before the footer (header and data rows) and the
+ * count is the number of data rows. Files without a footer are accepted as-is.
+ */
+public class SnapshotChecksum {
+
+    public static final String FOOTER_MARKER = "#checksum";
+
+    private static final int MAX_FOOTER_LENGTH = 128;
+
+    private final long offset;
+    private final long crc;
+    private final long rows;
+
+    private SnapshotChecksum(long offset, long crc, long rows) {
+        this.offset = offset;
+        this.crc = crc;
+        this.rows = rows;
+    }
+
+    /**
+     * Formats a footer line (without a line break).
+     *
+     * @param crc  CRC-32 of the bytes before the footer
+     * @param rows Number of data rows
+     * @return Footer line
+     */
+    public static String formatFooter(long crc, long rows) {
+        return String.format("%s,crc32=%08x,rows=%d", FOOTER_MARKER, crc, rows);
+    }
+
+    /**
+     * Checks whether a parsed CSV record is a checksum footer.
+     *
+     * @param record Field values of the record
+     * @return true if the record is a footer
+     */
+    public static boolean isFooter(String[] record) {
+        return record.length > 0 && record[0].equals(FOOTER_MARKER);
+    }
+
+    /**
+     * Reads the footer from the end of a file.
+     *
+     * @param channel Open channel on the CSV file
+     * @return The footer, or null if the file does not end with one
+     * @throws IOException if the file cannot be read
+     */
+    public static SnapshotChecksum readFooter(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int tailLength = (int) Math.min(size, MAX_FOOTER_LENGTH);
+        ByteBuffer tail = ByteBuffer.allocate(tailLength);
+        long tailStart = size - tailLength;
+        while (tail.hasRemaining()) {
+            if (channel.read(tail, tailStart + tail.position()) < 0) {
+                break;
+            }
+        }
+
+        byte[] bytes = tail.array();
+        int end = tail.position();
+        while (end > 0 && (bytes[end - 1] == '\n' || bytes[end - 1] == '\r')) {
+            end--;
+        }
+        int start = end;
+        while (start > 0 && bytes[start - 1] != '\n') {
+            start--;
+        }
+        if (start == 0 && tailStart > 0) {
+            return null; // Last line is longer than any footer
+        }
+
+        String line = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+        if (!line.startsWith(FOOTER_MARKER + ",")) {
+            return null;
+        }
+
+        long crc = -1;
+        long rows = -1;
+        for (String part : line.substring(FOOTER_MARKER.length() + 1).split(",")) {
+            try {
+                if (part.startsWith("crc32=")) {
+                    crc = Long.parseLong(part.substring(6), 16);
+                } else if (part.startsWith("rows=")) {
+                    rows = Long.parseLong(part.substring(5));
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed checksum footer: " + line);
+            }
+        }
+        if (crc < 0 || rows < 0) {
+            throw new IOException("Malformed checksum footer: " + line);
+        }
+        return new SnapshotChecksum(tailStart + start, crc, rows);
+    }
+
+    /**
+     * Gets the byte offset at which the footer starts, which is also the end of the data.
+     *
+     * @return Footer offset
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Verifies the checksum and row count computed while loading against the footer.
+     *
+     * @param filePath    Path of the file, used in the error message
+     * @param computedCrc CRC-32 of the bytes before the footer
+     * @param rowCount    Number of data rows read
+     * @throws IOException if either value does not match
+     */
+    public void verify(String filePath, long computedCrc, long rowCount) throws IOException {
+        if (computedCrc != crc) {
+            throw new IOException(String.format("Checksum mismatch in %s (expected %08x, found %08x)",
+                    filePath, crc, computedCrc));
+        }
+        if (rowCount != rows) {
+            throw new IOException("Row count mismatch in " + filePath
+                    + " (expected " + rows + ", found " + rowCount + ")");
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Reads and writes the snapshot of one entity table in either CSV or
+ * {@link BinarySnapshot} form.
+ *
+ * Saving writes the format selected by {@link BinarySnapshot#isEnabled()} and
+ * then records it in a {@code <name>.snapshot} marker. Loading reads the format
+ * named by the marker, so touching or copying the other file never changes
+ * which one is loaded. Without a marker, an existing {@code .bin} file wins.
+ * To import a replacement CSV file, delete the marker and the {@code .bin} file.
+ * While the binary snapshot is current the CSV file is not kept up to date;
+ * use {@link #exportCSV} to get a readable copy.
+ *
+ * @param <T> Entity type
+ */
+public class SnapshotStore<T> {
+
+    private static final String CSV = "csv";
+    private static final String BINARY = "bin";
+
+    private final String csvPath;
+    private final String binaryPath;
+    private final String markerPath;
+    private final String[] csvHeader;
+    private final Function<String[], T> fromRecord;
+    private final Function<T, String[]> toRecord;
+    private final BinarySnapshot.ColumnType[] binaryColumns;
+    private final BinarySnapshot.RowReader<T> fromSnapshot;
+    private final BinarySnapshot.RowWriter<T> toSnapshot;
+    private volatile boolean binaryCurrent;
+
+    /**
+     * Creates a store for one entity table.
+     *
+     * @param csvPath       Path to the CSV snapshot
+     * @param csvHeader     CSV column headers
+     * @param fromRecord    Converts a CSV row to an entity, or null to skip the row
+     * @param toRecord      Converts an entity to a CSV row
+     * @param binaryColumns Column types of the binary snapshot
+     * @param fromSnapshot  Creates an entity from a binary snapshot row
+     * @param toSnapshot    Writes an entity into a binary snapshot row
+     */
+    public SnapshotStore(String csvPath, String[] csvHeader,
+                         Function<String[], T> fromRecord, Function<T, String[]> toRecord,
+                         BinarySnapshot.ColumnType[] binaryColumns,
+                         BinarySnapshot.RowReader<T> fromSnapshot, BinarySnapshot.RowWriter<T> toSnapshot) {
+        this.csvPath = csvPath;
+        this.binaryPath = FilePathManager.getBinarySnapshotPath(csvPath);
+        this.markerPath = FilePathManager.getSnapshotMarkerPath(csvPath);
+        this.csvHeader = csvHeader;
+        this.fromRecord = fromRecord;
+        this.toRecord = toRecord;
+        this.binaryColumns = binaryColumns;
+        this.fromSnapshot = fromSnapshot;
+        this.toSnapshot = toSnapshot;
+    }
+
+    /**
+     * Loads every entity from the current snapshot.
+     *
+     * @return Entities in snapshot order
+     * @throws IOException if the snapshot cannot be read
+     */
+    public List<T> load() throws IOException {
+        String current = readMarker();
+        boolean binary = current != null ? current.equals(BINARY) : new File(binaryPath).exists();
+        binaryCurrent = binary;
+        if (binary) {
+            return BinarySnapshot.load(binaryPath, fromSnapshot);
+        }
+        return MappedCSVLoader.load(csvPath, fromRecord);
+    }
+
+    /**
+     * Checks whether the current snapshot is in the format selected by
+     * {@link BinarySnapshot#isEnabled()}, so the next save need not rewrite it.
+     *
+     * @return true if the snapshot last loaded or written is in the selected format
+     */
+    public boolean isCurrentFormat() {
+        return binaryCurrent == BinarySnapshot.isEnabled();
+    }
+
+    /**
+     * Captures the current entities for a snapshot. The entities are converted
+     * on the calling thread; the returned writer only does file I/O and can run
+     * on a background thread while the entities keep changing.
+     *
+     * @param entities Every current entity of the table
+     * @return Writer that stores the captured snapshot
+     */
+    public ChangeJournal.SnapshotWriter capture(Collection<T> entities) {
+        if (BinarySnapshot.isEnabled()) {
+            BinarySnapshot.Builder builder = new BinarySnapshot.Builder(binaryColumns, entities.size());
+            for (T entity : entities) {
+                toSnapshot.write(builder, entity);
+            }
+            return () -> {
+                builder.write(binaryPath);
+                writeMarker(BINARY);
+                binaryCurrent = true;
+            };
+        }
+
+        List<String[]> rows = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            rows.add(toRecord.apply(entity));
+        }
+        return () -> {
+            CSVWriter.writeCSV(csvPath, csvHeader, rows, true);
+            writeMarker(CSV);
+            binaryCurrent = false;
+            Files.deleteIfExists(Paths.get(binaryPath));
+        };
+    }
+
+    /**
+     * Writes entities to a plain CSV file with this table's header and no
+     * checksum footer. The snapshot itself is left alone.
+     *
+     * @param entities Entities to export
+     * @param filePath Path of the CSV file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void exportCSV(Collection<T> entities, String filePath) throws IOException {
+        List<String[]> rows = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            rows.add(toRecord.apply(entity));
+        }
+        CSVWriter.writeCSV(filePath, csvHeader, rows);
+    }
+
+    private String readMarker() throws IOException {
+        Path marker = Paths.get(markerPath);
+        if (!Files.exists(marker)) {
+            return null;
+        }
+        String format = new String(Files.readAllBytes(marker), StandardCharsets.UTF_8).trim();
+        if (!format.equals(CSV) && !format.equals(BINARY)) {
+            throw new IOException("Unknown snapshot format '" + format + "' in " + markerPath);
+        }
+        return format;
+    }
+
+    /**
+     * Records the snapshot format just written. Written only after the snapshot
+     * itself, so a crash in between leaves the marker naming the previous,
+     * still complete snapshot.
+     */
+    private void writeMarker(String format) throws IOException {
+        if (format.equals(readMarker())) {
+            return;
+        }
+        Path target = Paths.get(markerPath).toAbsolutePath();
+        Path temp = CSVWriter.createTempFor(target);
+        try {
+            try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+                out.write((format + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+                out.getFD().sync();
+            }
+            CSVWriter.replaceAtomically(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package util;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared dictionary of repeated string values, such as statuses, types and
+ * the IDs one entity uses to refer to another.
+ *
+ * Loading a CSV file creates a new String for every cell, so a million
+ * appointments hold a million separate copies of "Scheduled". Passing such
+ * values through {@link #intern(String)} makes every row share one instance.
+ * Entries are never removed, so only use the pool for values drawn from a
+ * small set or naming another entity, not for free text or unique row IDs.
+ */
+public final class StringPool {
+
+    private static final ConcurrentHashMap<String, String> POOL = new ConcurrentHashMap<>();
+
+    private StringPool() {
+    }
+
+    /**
+     * Gets the shared instance of a value.
+     *
+     * @param value The value, may be null
+     * @return An equal string shared by every caller, or null if the value is null
+     */
+    public static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String shared = POOL.get(value);
+        if (shared != null) {
+            return shared;
+        }
+        shared = POOL.putIfAbsent(value, value);
+        return shared != null ? shared : value;
+    }
+
+    /**
+     * Gets the number of distinct values in the pool.
+     *
+     * @return Number of values
+     */
+    public static int size() {
+        return POOL.size();
+    }
+}
@@ -0,0 +1,126 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Case-insensitive substring index over the text of a list of entities.
+ *
+ * Every three-character sequence (trigram) of each entity's text maps to the
+ * positions of the entities containing it. A search intersects the position
+ * lists of the search term's trigrams, starting with the shortest, and only
+ * checks the remaining candidates against the full text. Terms shorter than
+ * three characters fall back to scanning the lower-cased texts.
+ *
+ * @param <T> Entity type
+ */
+public class TextSearchIndex<T> {
+
+    private final String[] texts;
+    private final Map<Long, Postings> postings;
+
+    /**
+     * Builds the index.
+     *
+     * @param entities     Entities to index; search results are positions in this list
+     * @param textFunction Produces the searchable text of an entity
+     */
+    public TextSearchIndex(List<T> entities, Function<T, String> textFunction) {
+        this.texts = new String[entities.size()];
+        this.postings = new HashMap<>();
+
+        for (int position = 0; position < texts.length; position++) {
+            String text = textFunction.apply(entities.get(position));
+            text = text != null ? text.toLowerCase() : "";
+            texts[position] = text;
+            for (int i = 0; i + 3 <= text.length(); i++) {
+                postings.computeIfAbsent(trigram(text, i), key -> new Postings()).add(position);
+            }
+        }
+    }
+
+    /**
+     * Finds the entities whose text contains the term, ignoring case.
+     *
+     * @param term Search term
+     * @return Positions of the matching entities
+     */
+    public BitSet search(String term) {
+        String needle = term.toLowerCase();
+        BitSet matches = new BitSet(texts.length);
+        if (needle.length() < 3) {
+            for (int position = 0; position < texts.length; position++) {
+                if (texts[position].contains(needle)) {
+                    matches.set(position);
+                }
+            }
+            return matches;
+        }
+
+        List<Postings> lists = new ArrayList<>();
+        for (int i = 0; i + 3 <= needle.length(); i++) {
+            Postings list = postings.get(trigram(needle, i));
+            if (list == null) {
+                return matches;
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+
+        Postings shortest = lists.get(0);
+        candidates:
+        for (int c = 0; c < shortest.size; c++) {
+            int position = shortest.positions[c];
+            for (int l = 1; l < lists.size(); l++) {
+                if (!lists.get(l).contains(position)) {
+                    continue candidates;
+                }
+            }
+            if (texts[position].contains(needle)) {
+                matches.set(position);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Gets the number of indexed entities.
+     *
+     * @return Number of entities
+     */
+    public int size() {
+        return texts.length;
+    }
+
+    private static long trigram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    /**
+     * Ascending, duplicate-free list of entity positions.
+     */
+    private static class Postings {
+        private int[] positions = new int[4];
+        private int size;
+
+        void add(int position) {
+            if (size > 0 && positions[size - 1] == position) {
+                return;
+            }
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+
+        boolean contains(int position) {
+            return Arrays.binarySearch(positions, 0, size, position) >= 0;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Plain-text template that is compiled once and rendered many times.
+ *
+ * Templates contain {@code {{name}}} placeholders, replaced by the value of a
+ * named field, and {@code {{#name}}...{{/name}}} sections, rendered only when
+ * the field's value is present (not null, not an empty string and not
+ * {@code false}). Sections may be nested. Compiling checks the template and
+ * turns it into a flat plan of literal text and field accessors, so rendering
+ * does no parsing or lookups by name. Each thread renders into its own reused
+ * buffer, so a compiled template may be shared between threads.
+ *
+ * @param <C> Type of the object a template is rendered from
+ */
+public class TextTemplate<C> {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(4096));
+
+    private final Segment<C>[] plan;
+
+    private TextTemplate(Segment<C>[] plan) {
+        this.plan = plan;
+    }
+
+    /**
+     * Compiles a template.
+     *
+     * @param source Template text
+     * @param fields Accessor for each field the template may use, by name
+     * @param <C>    Type of the object the template is rendered from
+     * @return The compiled template
+     * @throws IllegalArgumentException if the template uses an unknown field or its sections do not match
+     */
+    public static <C> TextTemplate<C> compile(String source, Map<String, Function<C, ?>> fields) {
+        Deque<List<Segment<C>>> open = new ArrayDeque<>();
+        Deque<String> openNames = new ArrayDeque<>();
+        List<Segment<C>> current = new ArrayList<>();
+
+        int position = 0;
+        while (position < source.length()) {
+            int start = source.indexOf(OPEN, position);
+            if (start < 0) {
+                current.add(new Literal<>(source.substring(position)));
+                break;
+            }
+            if (start > position) {
+                current.add(new Literal<>(source.substring(position, start)));
+            }
+            int end = source.indexOf(CLOSE, start + OPEN.length());
+            if (end < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at offset " + start);
+            }
+            String tag = source.substring(start + OPEN.length(), end).trim();
+            position = end + CLOSE.length();
+
+            if (tag.startsWith("#")) {
+                String name = tag.substring(1).trim();
+                accessor(fields, name);
+                open.push(current);
+                openNames.push(name);
+                current = new ArrayList<>();
+            } else if (tag.startsWith("/")) {
+                String name = tag.substring(1).trim();
+                if (openNames.isEmpty() || !openNames.peek().equals(name)) {
+                    throw new IllegalArgumentException("Unexpected end of section '" + name + "' at offset " + start);
+                }
+                openNames.pop();
+                Section<C> section = new Section<>(accessor(fields, name), toArray(current));
+                current = open.pop();
+                current.add(section);
+            } else {
+                current.add(new Field<>(accessor(fields, tag)));
+            }
+        }
+        if (!openNames.isEmpty()) {
+            throw new IllegalArgumentException("Section '" + openNames.peek() + "' is not closed");
+        }
+        return new TextTemplate<>(toArray(current));
+    }
+
+    /**
+     * Renders the template.
+     *
+     * @param context The object to take field values from
+     * @return The rendered text
+     */
+    public String render(C context) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        renderTo(context, buffer);
+        String text = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+            // Don't keep one unusually large render's buffer alive for the life of the thread
+            BUFFER.remove();
+        }
+        return text;
+    }
+
+    /**
+     * Renders the template, appending to an existing buffer.
+     *
+     * @param context The object to take field values from
+     * @param out     Buffer to append to
+     */
+    public void renderTo(C context, StringBuilder out) {
+        for (Segment<C> segment : plan) {
+            segment.render(context, out);
+        }
+    }
+
+    private static <C> Function<C, ?> accessor(Map<String, Function<C, ?>> fields, String name) {
+        Function<C, ?> accessor = fields.get(name);
+        if (accessor == null) {
+            throw new IllegalArgumentException("Unknown template field '" + name + "'");
+        }
+        return accessor;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <C> Segment<C>[] toArray(List<Segment<C>> segments) {
+        // Generic arrays cannot be created directly; every element is a Segment<C>
+        return (Segment<C>[]) segments.toArray(new Segment<?>[0]);
+    }
+
+    /**
+     * One step of a compiled template.
+     */
+    private interface Segment<C> {
+        void render(C context, StringBuilder out);
+    }
+
+    private static class Literal<C> implements Segment<C> {
+        private final String text;
+
+        Literal(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public void render(C context, StringBuilder out) {
+            out.append(text);
+        }
+    }
+
+    private static class Field<C> implements Segment<C> {
+        private final Function<C, ?> accessor;
+
+        Field(Function<C, ?> accessor) {
+            this.accessor = accessor;
+        }
+
+        @Override
+        public void render(C context, StringBuilder out) {
+            Object value = accessor.apply(context);
+            if (value instanceof String) {
+                out.append((String) value);
+            } else if (value != null) {
+                out.append(value);
+            }
+        }
+    }
+
+    private static class Section<C> implements Segment<C> {
+        private final Function<C, ?> condition;
+        private final Segment<C>[] body;
+
+        Section(Function<C, ?> condition, Segment<C>[] body) {
+            this.condition = condition;
+            this.body = body;
+        }
+
+        @Override
+        public void render(C context, StringBuilder out) {
+            Object value = condition.apply(context);
+            if (value == null || Boolean.FALSE.equals(value) || "".equals(value)) {
+                return;
+            }
+            for (Segment<C> segment : body) {
+                segment.render(context, out);
+            }
+        }
+    }
+}
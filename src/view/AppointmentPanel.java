@@ -5,16 +5,12 @@ import controller.ClinicianController;
 import controller.FacilityController;
 import controller.PatientController;
 import model.Appointment;
-import model.Clinician;
-import model.Facility;
-import model.Patient;
 import view.dialogs.AppointmentDialog;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
-import java.util.List;
+import java.io.IOException;
 
 /**
  * Panel for displaying and managing appointments.
@@ -27,10 +23,13 @@ public class AppointmentPanel extends JPanel {
     private ClinicianController clinicianController;
     private FacilityController facilityController;
     private JTable appointmentTable;
-    private DefaultTableModel tableModel;
+    private EntityTableModel<Appointment> tableModel;
     private JTextField searchField;
+    private Timer searchTimer;
     private JComboBox<String> statusFilterCombo;
-    private TableRowSorter<DefaultTableModel> sorter;
+    private TableRowSorter<EntityTableModel<Appointment>> sorter;
+
+    private static final int SEARCH_DELAY_MS = 250;
 
     private static final String[] COLUMN_NAMES = {
             "ID", "Date", "Time", "Patient", "Clinician",
@@ -56,6 +55,10 @@ public class AppointmentPanel extends JPanel {
     private void createTopPanel() {
         JPanel topPanel = new JPanel(new BorderLayout(10, 0));
 
+        // Search once typing pauses rather than on every keystroke
+        searchTimer = new Timer(SEARCH_DELAY_MS, e -> applyFilter());
+        searchTimer.setRepeats(false);
+
         JLabel titleLabel = new JLabel("Appointment Management");
         titleLabel.setFont(new Font("Arial", Font.BOLD, 18));
         topPanel.add(titleLabel, BorderLayout.WEST);
@@ -75,7 +78,7 @@ public class AppointmentPanel extends JPanel {
         searchField = new JTextField(15);
         searchField.addKeyListener(new java.awt.event.KeyAdapter() {
             public void keyReleased(java.awt.event.KeyEvent evt) {
-                applyFilter();
+                searchTimer.restart();
             }
         });
         filterPanel.add(searchField);
@@ -83,6 +86,7 @@ public class AppointmentPanel extends JPanel {
         JButton clearButton = new JButton("Clear");
         clearButton.addActionListener(e -> {
             searchField.setText("");
+            searchTimer.stop();
             statusFilterCombo.setSelectedIndex(0);
             applyFilter();
         });
@@ -93,12 +97,7 @@ public class AppointmentPanel extends JPanel {
     }
 
     private void createTablePanel() {
-        tableModel = new DefaultTableModel(COLUMN_NAMES, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        tableModel = new EntityTableModel<>(COLUMN_NAMES, this::getCellValue);
 
         appointmentTable = new JTable(tableModel);
         appointmentTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -133,6 +132,9 @@ public class AppointmentPanel extends JPanel {
         JButton cancelButton = new JButton("Cancel Appointment");
         cancelButton.addActionListener(e -> cancelAppointment());
 
+        JButton reminderButton = new JButton("Reminder Letter");
+        reminderButton.addActionListener(e -> generateReminderLetter());
+
         JButton deleteButton = new JButton("Delete");
         deleteButton.addActionListener(e -> deleteAppointment());
 
@@ -142,6 +144,7 @@ public class AppointmentPanel extends JPanel {
         buttonPanel.add(addButton);
         buttonPanel.add(editButton);
         buttonPanel.add(cancelButton);
+        buttonPanel.add(reminderButton);
         buttonPanel.add(deleteButton);
         buttonPanel.add(Box.createHorizontalStrut(20));
         buttonPanel.add(refreshButton);
@@ -150,20 +153,20 @@ public class AppointmentPanel extends JPanel {
     }
 
     private void applyFilter() {
-        String searchText = searchField.getText().trim().toLowerCase();
+        String searchText = searchField.getText().trim();
         String statusFilter = (String) statusFilterCombo.getSelectedItem();
 
-        RowFilter<DefaultTableModel, Object> searchFilter = null;
-        RowFilter<DefaultTableModel, Object> statusRowFilter = null;
+        RowFilter<EntityTableModel<Appointment>, Integer> searchFilter = null;
+        RowFilter<EntityTableModel<Appointment>, Integer> statusRowFilter = null;
 
         if (!searchText.isEmpty()) {
-            searchFilter = RowFilter.regexFilter("(?i)" + searchText);
+            searchFilter = tableModel.createSearchFilter(searchText);
         }
 
         if (!"All".equals(statusFilter)) {
-            statusRowFilter = new RowFilter<DefaultTableModel, Object>() {
+            statusRowFilter = new RowFilter<EntityTableModel<Appointment>, Integer>() {
                 @Override
-                public boolean include(Entry<? extends DefaultTableModel, ? extends Object> entry) {
+                public boolean include(Entry<? extends EntityTableModel<Appointment>, ? extends Integer> entry) {
                     String status = entry.getStringValue(7);
                     return status.equalsIgnoreCase(statusFilter);
                 }
@@ -182,46 +185,31 @@ public class AppointmentPanel extends JPanel {
     }
 
     public void refreshData() {
-        tableModel.setRowCount(0);
-        List<Appointment> appointments = appointmentController.getAllAppointments();
-
-        for (Appointment appointment : appointments) {
-            String patientName = "";
-            if (appointment.getPatientId() != null) {
-                Patient patient = patientController.getPatientById(appointment.getPatientId());
-                if (patient != null) {
-                    patientName = patient.getFullName();
-                }
-            }
-
-            String clinicianName = "";
-            if (appointment.getClinicianId() != null) {
-                Clinician clinician = clinicianController.getClinicianById(appointment.getClinicianId());
-                if (clinician != null) {
-                    clinicianName = clinician.getTitle() + " " + clinician.getFullName();
-                }
-            }
-
-            String facilityName = "";
-            if (appointment.getFacilityId() != null) {
-                Facility facility = facilityController.getFacilityById(appointment.getFacilityId());
-                if (facility != null) {
-                    facilityName = facility.getFacilityName();
-                }
-            }
+        tableModel.reload(appointmentController::getAllAppointments, this::applyFilter);
+    }
 
-            Object[] row = {
-                    appointment.getAppointmentId(),
-                    appointment.getAppointmentDate() != null ? appointment.getAppointmentDate().toString() : "",
-                    appointment.getAppointmentTime() != null ? appointment.getAppointmentTime().toString() : "",
-                    patientName,
-                    clinicianName,
-                    facilityName,
-                    appointment.getAppointmentType(),
-                    appointment.getStatus(),
-                    appointment.getReasonForVisit()
-            };
-            tableModel.addRow(row);
+    private Object getCellValue(Appointment appointment, int column) {
+        switch (column) {
+            case 0:
+                return appointment.getAppointmentId();
+            case 1:
+                return appointment.getAppointmentDate() != null ? appointment.getAppointmentDate().toString() : "";
+            case 2:
+                return appointment.getAppointmentTime() != null ? appointment.getAppointmentTime().toString() : "";
+            case 3:
+                return patientController.getPatientName(appointment.getPatientId());
+            case 4:
+                return clinicianController.getClinicianName(appointment.getClinicianId());
+            case 5:
+                return facilityController.getFacilityName(appointment.getFacilityId());
+            case 6:
+                return appointment.getAppointmentType();
+            case 7:
+                return appointment.getStatus();
+            case 8:
+                return appointment.getReasonForVisit();
+            default:
+                return "";
         }
     }
 
@@ -274,6 +262,37 @@ public class AppointmentPanel extends JPanel {
         }
     }
 
+    private void generateReminderLetter() {
+        int selectedRow = appointmentTable.getSelectedRow();
+        if (selectedRow < 0) {
+            JOptionPane.showMessageDialog(this,
+                    "Please select an appointment to generate a reminder.",
+                    "No Selection",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        int modelRow = appointmentTable.convertRowIndexToModel(selectedRow);
+        Appointment appointment = tableModel.getEntityAt(modelRow);
+
+        try {
+            String filePath = appointmentController.generateAppointmentReminder(appointment,
+                    patientController.getPatientById(appointment.getPatientId()),
+                    clinicianController.getClinicianById(appointment.getClinicianId()),
+                    facilityController.getFacilityById(appointment.getFacilityId()));
+
+            JOptionPane.showMessageDialog(this,
+                    "Appointment reminder generated successfully!\n\nSaved to:\n" + filePath,
+                    "Letter Generated",
+                    JOptionPane.INFORMATION_MESSAGE);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this,
+                    "Error generating appointment reminder: " + e.getMessage(),
+                    "Error",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     private void cancelAppointment() {
         int selectedRow = appointmentTable.getSelectedRow();
         if (selectedRow < 0) {
@@ -3,14 +3,11 @@ package view;
 import controller.ClinicianController;
 import controller.FacilityController;
 import model.Clinician;
-import model.Facility;
 import view.dialogs.ClinicianDialog;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
-import java.util.List;
 
 /**
  * Panel for displaying and managing clinicians.
@@ -21,10 +18,13 @@ public class ClinicianPanel extends JPanel {
     private ClinicianController clinicianController;
     private FacilityController facilityController;
     private JTable clinicianTable;
-    private DefaultTableModel tableModel;
+    private EntityTableModel<Clinician> tableModel;
     private JTextField searchField;
+    private Timer searchTimer;
     private JComboBox<String> filterCombo;
-    private TableRowSorter<DefaultTableModel> sorter;
+    private TableRowSorter<EntityTableModel<Clinician>> sorter;
+
+    private static final int SEARCH_DELAY_MS = 250;
 
     private static final String[] COLUMN_NAMES = {
             "ID", "Title", "First Name", "Last Name", "Speciality",
@@ -45,6 +45,10 @@ public class ClinicianPanel extends JPanel {
     private void createTopPanel() {
         JPanel topPanel = new JPanel(new BorderLayout(10, 0));
 
+        // Search once typing pauses rather than on every keystroke
+        searchTimer = new Timer(SEARCH_DELAY_MS, e -> applyFilter());
+        searchTimer.setRepeats(false);
+
         JLabel titleLabel = new JLabel("Clinician Management");
         titleLabel.setFont(new Font("Arial", Font.BOLD, 18));
         topPanel.add(titleLabel, BorderLayout.WEST);
@@ -64,7 +68,7 @@ public class ClinicianPanel extends JPanel {
         searchField = new JTextField(15);
         searchField.addKeyListener(new java.awt.event.KeyAdapter() {
             public void keyReleased(java.awt.event.KeyEvent evt) {
-                applyFilter();
+                searchTimer.restart();
             }
         });
         filterPanel.add(searchField);
@@ -72,6 +76,7 @@ public class ClinicianPanel extends JPanel {
         JButton clearButton = new JButton("Clear");
         clearButton.addActionListener(e -> {
             searchField.setText("");
+            searchTimer.stop();
             filterCombo.setSelectedIndex(0);
             applyFilter();
         });
@@ -82,12 +87,7 @@ public class ClinicianPanel extends JPanel {
     }
 
     private void createTablePanel() {
-        tableModel = new DefaultTableModel(COLUMN_NAMES, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        tableModel = new EntityTableModel<>(COLUMN_NAMES, this::getCellValue);
 
         clinicianTable = new JTable(tableModel);
         clinicianTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -147,14 +147,14 @@ public class ClinicianPanel extends JPanel {
     }
 
     private void applyFilter() {
-        String searchText = searchField.getText().trim().toLowerCase();
+        String searchText = searchField.getText().trim();
         String filterType = (String) filterCombo.getSelectedItem();
 
-        RowFilter<DefaultTableModel, Object> searchFilter = null;
-        RowFilter<DefaultTableModel, Object> typeFilter = null;
+        RowFilter<EntityTableModel<Clinician>, Integer> searchFilter = null;
+        RowFilter<EntityTableModel<Clinician>, Integer> typeFilter = null;
 
         if (!searchText.isEmpty()) {
-            searchFilter = RowFilter.regexFilter("(?i)" + searchText);
+            searchFilter = tableModel.createSearchFilter(searchText);
         }
 
         if (!"All".equals(filterType)) {
@@ -174,9 +174,9 @@ public class ClinicianPanel extends JPanel {
             }
 
             if (titleFilter != null) {
-                typeFilter = new RowFilter<DefaultTableModel, Object>() {
+                typeFilter = new RowFilter<EntityTableModel<Clinician>, Integer>() {
                     @Override
-                    public boolean include(Entry<? extends DefaultTableModel, ? extends Object> entry) {
+                    public boolean include(Entry<? extends EntityTableModel<Clinician>, ? extends Integer> entry) {
                         String title = entry.getStringValue(1).toLowerCase();
                         return title.contains(titleFilter.toLowerCase());
                     }
@@ -196,31 +196,33 @@ public class ClinicianPanel extends JPanel {
     }
 
     public void refreshData() {
-        tableModel.setRowCount(0);
-        List<Clinician> clinicians = clinicianController.getAllClinicians();
-
-        for (Clinician clinician : clinicians) {
-            String workplaceName = "";
-            if (clinician.getWorkplaceId() != null) {
-                Facility facility = facilityController.getFacilityById(clinician.getWorkplaceId());
-                if (facility != null) {
-                    workplaceName = facility.getFacilityName();
-                }
-            }
+        tableModel.reload(clinicianController::getAllClinicians, this::applyFilter);
+    }
 
-            Object[] row = {
-                    clinician.getClinicianId(),
-                    clinician.getTitle(),
-                    clinician.getFirstName(),
-                    clinician.getLastName(),
-                    clinician.getSpeciality(),
-                    clinician.getGmcNumber(),
-                    clinician.getPhoneNumber(),
-                    clinician.getEmail(),
-                    workplaceName,
-                    clinician.getEmploymentStatus()
-            };
-            tableModel.addRow(row);
+    private Object getCellValue(Clinician clinician, int column) {
+        switch (column) {
+            case 0:
+                return clinician.getClinicianId();
+            case 1:
+                return clinician.getTitle();
+            case 2:
+                return clinician.getFirstName();
+            case 3:
+                return clinician.getLastName();
+            case 4:
+                return clinician.getSpeciality();
+            case 5:
+                return clinician.getGmcNumber();
+            case 6:
+                return clinician.getPhoneNumber();
+            case 7:
+                return clinician.getEmail();
+            case 8:
+                return facilityController.getFacilityName(clinician.getWorkplaceId());
+            case 9:
+                return clinician.getEmploymentStatus();
+            default:
+                return "";
         }
     }
 
@@ -0,0 +1,238 @@
+package view;
+
+import util.TextSearchIndex;
+
+import javax.swing.JOptionPane;
+import javax.swing.RowFilter;
+import javax.swing.SwingWorker;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Read-only table model backed directly by a list of entities.
+ *
+ * Rows are not copied into cell arrays. Each cell value is resolved from its
+ * entity only when the table asks for it, which for a scrolled table is just
+ * the visible rows. Replacing the entities fires a single data-changed event.
+ * Searches use a text index over the displayed cell values, built on the
+ * first search after the rows change.
+ *
+ * {@link #reload} fetches the entities and builds the search index on a
+ * background worker, adding rows to the table in batches as they are ready.
+ * Starting a reload cancels the one still in progress. If fetching fails,
+ * the previous rows stay in place and the error is shown in a dialog.
+ *
+ * @param <T> Entity type shown in each row
+ */
+public class EntityTableModel<T> extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int RELOAD_BATCH_SIZE = 5000;
+
+    /**
+     * Resolves the value of one cell from the entity shown in its row.
+     *
+     * @param <T> Entity type
+     */
+    @FunctionalInterface
+    public interface CellValues<T> {
+        Object valueAt(T entity, int column);
+    }
+
+    private final String[] columnNames;
+    private final CellValues<T> cellValues;
+    private List<T> entities;
+    private int rowCount;
+    private TextSearchIndex<?> searchIndex;
+    private ReloadWorker reloadWorker;
+
+    /**
+     * Creates an empty model.
+     *
+     * @param columnNames Column headers
+     * @param cellValues  Resolves cell values from an entity
+     */
+    public EntityTableModel(String[] columnNames, CellValues<T> cellValues) {
+        this.columnNames = columnNames;
+        this.cellValues = cellValues;
+        this.entities = new ArrayList<>();
+    }
+
+    /**
+     * Replaces every row with the given entities.
+     *
+     * @param entities Entities to show, in row order; the list is not copied
+     */
+    public void setEntities(List<T> entities) {
+        cancelReload();
+        this.entities = entities;
+        this.rowCount = entities.size();
+        this.searchIndex = null;
+        fireTableDataChanged();
+    }
+
+    /**
+     * Replaces every row with entities fetched on a background thread.
+     * The current rows stay visible until the first batch of new rows arrives.
+     * Must be called on the event dispatch thread.
+     *
+     * @param source   Fetches the entities; called on a background thread
+     * @param onLoaded Run on the event dispatch thread once every row has been added
+     */
+    public void reload(Supplier<List<T>> source, Runnable onLoaded) {
+        cancelReload();
+        reloadWorker = new ReloadWorker(source, onLoaded);
+        reloadWorker.execute();
+    }
+
+    /**
+     * Gets the entity shown in a model row.
+     *
+     * @param row Model row index
+     * @return The entity
+     */
+    public T getEntityAt(int row) {
+        return entities.get(row);
+    }
+
+    /**
+     * Creates a row filter that keeps rows with a cell containing the term, ignoring case.
+     *
+     * @param term Search term
+     * @return Row filter for the table's row sorter
+     */
+    public RowFilter<EntityTableModel<T>, Integer> createSearchFilter(String term) {
+        if (searchIndex == null) {
+            searchIndex = new TextSearchIndex<>(entities.subList(0, rowCount), this::getRowText);
+        }
+        BitSet matches = searchIndex.search(term);
+        return new RowFilter<EntityTableModel<T>, Integer>() {
+            @Override
+            public boolean include(Entry<? extends EntityTableModel<T>, ? extends Integer> entry) {
+                return matches.get(entry.getIdentifier());
+            }
+        };
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Object value = cellValues.valueAt(entities.get(row), column);
+        return value != null ? value : "";
+    }
+
+    private String getRowText(T entity) {
+        StringBuilder text = new StringBuilder();
+        for (int column = 0; column < columnNames.length; column++) {
+            Object value = cellValues.valueAt(entity, column);
+            // Separate cells so a search cannot match across a cell boundary
+            text.append(value != null ? value : "").append('\n');
+        }
+        return text.toString();
+    }
+
+    private void cancelReload() {
+        if (reloadWorker != null) {
+            reloadWorker.cancel(true);
+            reloadWorker = null;
+        }
+    }
+
+    /**
+     * Fetches the entities and resolves their searchable text in batches,
+     * publishing how many rows are ready after each batch.
+     */
+    private class ReloadWorker extends SwingWorker<TextSearchIndex<String>, Integer> {
+
+        private final Supplier<List<T>> source;
+        private final Runnable onLoaded;
+        private volatile List<T> loaded;
+        private boolean shown;
+
+        ReloadWorker(Supplier<List<T>> source, Runnable onLoaded) {
+            this.source = source;
+            this.onLoaded = onLoaded;
+        }
+
+        @Override
+        protected TextSearchIndex<String> doInBackground() {
+            loaded = source.get();
+            String[] texts = new String[loaded.size()];
+            for (int start = 0; start < texts.length; start += RELOAD_BATCH_SIZE) {
+                if (isCancelled()) {
+                    return null;
+                }
+                int end = Math.min(start + RELOAD_BATCH_SIZE, texts.length);
+                for (int i = start; i < end; i++) {
+                    texts[i] = getRowText(loaded.get(i));
+                }
+                publish(end);
+            }
+            return new TextSearchIndex<>(Arrays.asList(texts), Function.identity());
+        }
+
+        @Override
+        protected void process(List<Integer> readyCounts) {
+            if (!isCancelled()) {
+                showRows(readyCounts.get(readyCounts.size() - 1));
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                return;
+            }
+            reloadWorker = null;
+            try {
+                TextSearchIndex<String> index = get();
+                showRows(loaded.size());
+                searchIndex = index;
+                onLoaded.run();
+            } catch (InterruptedException | CancellationException e) {
+                // Superseded by a newer reload
+            } catch (ExecutionException e) {
+                JOptionPane.showMessageDialog(null,
+                        "Could not refresh table: " + e.getCause().getMessage(),
+                        "Refresh Error",
+                        JOptionPane.ERROR_MESSAGE);
+            }
+        }
+
+        private void showRows(int count) {
+            if (!shown) {
+                shown = true;
+                entities = loaded;
+                rowCount = count;
+                searchIndex = null;
+                fireTableDataChanged();
+            } else if (count > rowCount) {
+                int firstNew = rowCount;
+                rowCount = count;
+                fireTableRowsInserted(firstNew, count - 1);
+            }
+        }
+    }
+}
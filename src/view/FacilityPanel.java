@@ -4,10 +4,8 @@ import controller.FacilityController;
 import model.Facility;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
-import java.util.List;
 
 /**
  * Panel for displaying and managing facilities (GP Surgeries and Hospitals).
@@ -17,10 +15,13 @@ public class FacilityPanel extends JPanel {
 
     private FacilityController facilityController;
     private JTable facilityTable;
-    private DefaultTableModel tableModel;
+    private EntityTableModel<Facility> tableModel;
     private JTextField searchField;
+    private Timer searchTimer;
     private JComboBox<String> filterCombo;
-    private TableRowSorter<DefaultTableModel> sorter;
+    private TableRowSorter<EntityTableModel<Facility>> sorter;
+
+    private static final int SEARCH_DELAY_MS = 250;
 
     private static final String[] COLUMN_NAMES = {
             "ID", "Name", "Type", "Address", "Postcode",
@@ -40,6 +41,10 @@ public class FacilityPanel extends JPanel {
     private void createTopPanel() {
         JPanel topPanel = new JPanel(new BorderLayout(10, 0));
 
+        // Search once typing pauses rather than on every keystroke
+        searchTimer = new Timer(SEARCH_DELAY_MS, e -> applyFilter());
+        searchTimer.setRepeats(false);
+
         JLabel titleLabel = new JLabel("Facility Management");
         titleLabel.setFont(new Font("Arial", Font.BOLD, 18));
         topPanel.add(titleLabel, BorderLayout.WEST);
@@ -59,7 +64,7 @@ public class FacilityPanel extends JPanel {
         searchField = new JTextField(15);
         searchField.addKeyListener(new java.awt.event.KeyAdapter() {
             public void keyReleased(java.awt.event.KeyEvent evt) {
-                applyFilter();
+                searchTimer.restart();
             }
         });
         filterPanel.add(searchField);
@@ -67,6 +72,7 @@ public class FacilityPanel extends JPanel {
         JButton clearButton = new JButton("Clear");
         clearButton.addActionListener(e -> {
             searchField.setText("");
+            searchTimer.stop();
             filterCombo.setSelectedIndex(0);
             applyFilter();
         });
@@ -77,12 +83,7 @@ public class FacilityPanel extends JPanel {
     }
 
     private void createTablePanel() {
-        tableModel = new DefaultTableModel(COLUMN_NAMES, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        tableModel = new EntityTableModel<>(COLUMN_NAMES, this::getCellValue);
 
         facilityTable = new JTable(tableModel);
         facilityTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -133,14 +134,14 @@ public class FacilityPanel extends JPanel {
     }
 
     private void applyFilter() {
-        String searchText = searchField.getText().trim().toLowerCase();
+        String searchText = searchField.getText().trim();
         String filterType = (String) filterCombo.getSelectedItem();
 
-        RowFilter<DefaultTableModel, Object> searchFilter = null;
-        RowFilter<DefaultTableModel, Object> typeFilter = null;
+        RowFilter<EntityTableModel<Facility>, Integer> searchFilter = null;
+        RowFilter<EntityTableModel<Facility>, Integer> typeFilter = null;
 
         if (!searchText.isEmpty()) {
-            searchFilter = RowFilter.regexFilter("(?i)" + searchText);
+            searchFilter = tableModel.createSearchFilter(searchText);
         }
 
         if (!"All".equals(filterType)) {
@@ -157,9 +158,9 @@ public class FacilityPanel extends JPanel {
             }
 
             if (facilityType != null) {
-                typeFilter = new RowFilter<DefaultTableModel, Object>() {
+                typeFilter = new RowFilter<EntityTableModel<Facility>, Integer>() {
                     @Override
-                    public boolean include(Entry<? extends DefaultTableModel, ? extends Object> entry) {
+                    public boolean include(Entry<? extends EntityTableModel<Facility>, ? extends Integer> entry) {
                         String type = entry.getStringValue(2);
                         return type.equalsIgnoreCase(facilityType);
                     }
@@ -179,22 +180,31 @@ public class FacilityPanel extends JPanel {
     }
 
     public void refreshData() {
-        tableModel.setRowCount(0);
-        List<Facility> facilities = facilityController.getAllFacilities();
-
-        for (Facility facility : facilities) {
-            Object[] row = {
-                    facility.getFacilityId(),
-                    facility.getFacilityName(),
-                    facility.getFacilityType(),
-                    facility.getAddress(),
-                    facility.getPostcode(),
-                    facility.getPhoneNumber(),
-                    facility.getEmail(),
-                    facility.getManagerName(),
-                    facility.getCapacity()
-            };
-            tableModel.addRow(row);
+        tableModel.reload(facilityController::getAllFacilities, this::applyFilter);
+    }
+
+    private Object getCellValue(Facility facility, int column) {
+        switch (column) {
+            case 0:
+                return facility.getFacilityId();
+            case 1:
+                return facility.getFacilityName();
+            case 2:
+                return facility.getFacilityType();
+            case 3:
+                return facility.getAddress();
+            case 4:
+                return facility.getPostcode();
+            case 5:
+                return facility.getPhoneNumber();
+            case 6:
+                return facility.getEmail();
+            case 7:
+                return facility.getManagerName();
+            case 8:
+                return facility.getCapacity();
+            default:
+                return "";
         }
     }
 
@@ -1,10 +1,19 @@
 package view;
 
 import controller.*;
+import util.ChangeJournal;
 
 import javax.swing.*;
 import java.awt.*;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Main application frame for the Healthcare Management System.
@@ -15,6 +24,22 @@ public class MainFrame extends JFrame {
 
     private JTabbedPane tabbedPane;
     private JLabel statusLabel;
+    private JProgressBar loadProgressBar;
+    private JMenuItem loadDataItem;
+    private JMenuItem saveDataItem;
+    private JMenuItem exportDataItem;
+
+    // Number of CSV files loaded at startup, one per controller
+    private static final int DATA_FILE_COUNT = 7;
+
+    // Background threads for loading and saving CSV files, one per file
+    private final ExecutorService ioExecutor = Executors.newFixedThreadPool(DATA_FILE_COUNT, runnable -> {
+        Thread thread = new Thread(runnable, "data-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private int filesLoaded;
+    private boolean loading;
 
     // Controllers
     private PatientController patientController;
@@ -67,16 +92,19 @@ public class MainFrame extends JFrame {
 
         // File Menu
         JMenu fileMenu = new JMenu("File");
-        JMenuItem loadDataItem = new JMenuItem("Reload Data");
-        JMenuItem saveDataItem = new JMenuItem("Save All Data");
+        loadDataItem = new JMenuItem("Reload Data");
+        saveDataItem = new JMenuItem("Save All Data");
+        exportDataItem = new JMenuItem("Export CSV Copies");
         JMenuItem exitItem = new JMenuItem("Exit");
 
         loadDataItem.addActionListener(e -> loadAllData());
-        saveDataItem.addActionListener(e -> saveAllData());
+        saveDataItem.addActionListener(e -> saveAllData(null));
+        exportDataItem.addActionListener(e -> exportAllData());
         exitItem.addActionListener(e -> exitApplication());
 
         fileMenu.add(loadDataItem);
         fileMenu.add(saveDataItem);
+        fileMenu.add(exportDataItem);
         fileMenu.addSeparator();
         fileMenu.add(exitItem);
 
@@ -123,68 +151,271 @@ public class MainFrame extends JFrame {
         statusBar.setBorder(BorderFactory.createEtchedBorder());
         statusLabel = new JLabel(" Ready");
         statusBar.add(statusLabel, BorderLayout.WEST);
+
+        loadProgressBar = new JProgressBar(0, DATA_FILE_COUNT);
+        loadProgressBar.setStringPainted(true);
+        loadProgressBar.setVisible(false);
+        statusBar.add(loadProgressBar, BorderLayout.EAST);
         add(statusBar, BorderLayout.SOUTH);
     }
 
+    /**
+     * Loads all seven CSV files concurrently on background threads.
+     * Each panel is refreshed on the EDT as soon as its own data and the
+     * data it looks up names from have arrived, so the window stays responsive
+     * and the slowest file alone bounds the total load time.
+     */
     private void loadAllData() {
         setStatus("Loading data...");
-        try {
-            patientController.loadFromCSV();
-            clinicianController.loadFromCSV();
-            facilityController.loadFromCSV();
-            appointmentController.loadFromCSV();
-            prescriptionController.loadFromCSV();
-            referralController.loadFromCSV();
-            staffController.loadFromCSV();
+        setLoading(true);
+
+        CompletableFuture<Void> patients = loadAsync("patients", patientController::loadFromCSV);
+        CompletableFuture<Void> clinicians = loadAsync("clinicians", clinicianController::loadFromCSV);
+        CompletableFuture<Void> facilities = loadAsync("facilities", facilityController::loadFromCSV);
+        CompletableFuture<Void> appointments = loadAsync("appointments", appointmentController::loadFromCSV);
+        CompletableFuture<Void> prescriptions = loadAsync("prescriptions", prescriptionController::loadFromCSV);
+        CompletableFuture<Void> referrals = loadAsync("referrals", referralController::loadFromCSV);
+        CompletableFuture<Void> staff = loadAsync("staff", staffController::loadFromCSV);
+
+        refreshWhenLoaded(patientPanel, patientPanel::refreshData, patients, facilities);
+        refreshWhenLoaded(clinicianPanel, clinicianPanel::refreshData, clinicians, facilities);
+        refreshWhenLoaded(facilityPanel, facilityPanel::refreshData, facilities);
+        refreshWhenLoaded(appointmentPanel, appointmentPanel::refreshData, appointments, patients, clinicians, facilities);
+        refreshWhenLoaded(prescriptionPanel, prescriptionPanel::refreshData, prescriptions, patients, clinicians);
+        refreshWhenLoaded(referralPanel, referralPanel::refreshData, referrals, patients, clinicians);
+        refreshWhenLoaded(staffPanel, staffPanel::refreshData, staff, facilities);
+
+        CompletableFuture.allOf(patients, clinicians, facilities, appointments, prescriptions, referrals, staff)
+                .whenComplete((result, error) -> SwingUtilities.invokeLater(() -> finishLoading(error)));
+    }
+
+    private CompletableFuture<Void> loadAsync(String name, DataTask loader) {
+        return runAsync(loader).whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            filesLoaded++;
+            loadProgressBar.setValue(filesLoaded);
+            if (error == null) {
+                setStatus("Loaded " + name + " (" + filesLoaded + " of " + DATA_FILE_COUNT + ")...");
+            }
+        }));
+    }
+
+    private CompletableFuture<Void> runAsync(DataTask task) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                task.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, ioExecutor);
+    }
+
+    private void refreshWhenLoaded(JComponent panel, Runnable refresh, CompletableFuture<?>... dependencies) {
+        CompletableFuture.allOf(dependencies)
+                .thenRun(() -> SwingUtilities.invokeLater(() -> {
+                    setEnabledDeep(panel, true);
+                    refresh.run();
+                }));
+    }
 
-            // Refresh all panels
-            refreshAllPanels();
+    private void finishLoading(Throwable error) {
+        setLoading(false);
+        // Panels whose data failed to load are usable again with whatever they showed before
+        for (Component panel : tabbedPane.getComponents()) {
+            setEnabledDeep(panel, true);
+        }
 
+        if (error == null) {
             setStatus("Data loaded successfully. Patients: " + patientController.getPatientCount() +
                     ", Clinicians: " + clinicianController.getClinicianCount() +
                     ", Appointments: " + appointmentController.getAppointmentCount());
-        } catch (IOException e) {
-            setStatus("Error loading data: " + e.getMessage());
-            JOptionPane.showMessageDialog(this,
-                    "Error loading data: " + e.getMessage(),
-                    "Load Error",
-                    JOptionPane.ERROR_MESSAGE);
+            return;
         }
+
+        Throwable cause = rootCause(error);
+        setStatus("Error loading data: " + cause.getMessage());
+        JOptionPane.showMessageDialog(this,
+                "Error loading data: " + cause.getMessage(),
+                "Load Error",
+                JOptionPane.ERROR_MESSAGE);
     }
 
-    private void saveAllData() {
-        setStatus("Saving data...");
-        try {
-            patientController.saveToCSV();
-            clinicianController.saveToCSV();
-            facilityController.saveToCSV();
-            appointmentController.saveToCSV();
-            prescriptionController.saveToCSV();
-            referralController.saveToCSV();
-            staffController.saveToCSV();
-
-            setStatus("All data saved successfully.");
+    private static Throwable rootCause(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof UncheckedIOException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private void setLoading(boolean loading) {
+        this.loading = loading;
+        // Edits made before a table finishes loading would be replaced by the loaded rows,
+        // so each panel stays disabled until its own data has arrived
+        if (loading) {
+            for (Component panel : tabbedPane.getComponents()) {
+                setEnabledDeep(panel, false);
+            }
+        }
+        filesLoaded = 0;
+        loadProgressBar.setValue(0);
+        loadProgressBar.setVisible(loading);
+        loadDataItem.setEnabled(!loading);
+        saveDataItem.setEnabled(!loading);
+        exportDataItem.setEnabled(!loading);
+    }
+
+    /**
+     * Saves every entity file that has changed since it was last loaded or saved.
+     * Unchanged files are skipped and the changed ones are written concurrently.
+     * A SwingWorker waits for the writes, so the window stays responsive, and
+     * reports the result on the EDT.
+     *
+     * @param onSaved Run on the EDT once everything is saved, or null
+     */
+    private void saveAllData(Runnable onSaved) {
+        if (loading) {
+            // Saving now would overwrite files with partially loaded data
+            setStatus("Cannot save while data is still loading.");
+            return;
+        }
+
+        List<String> changed = new ArrayList<>();
+        List<CompletableFuture<Void>> saves = new ArrayList<>();
+        saveIfDirty("patients", patientController.isDirty(), patientController::saveToCSV, changed, saves);
+        saveIfDirty("clinicians", clinicianController.isDirty(), clinicianController::saveToCSV, changed, saves);
+        saveIfDirty("facilities", facilityController.isDirty(), facilityController::saveToCSV, changed, saves);
+        saveIfDirty("appointments", appointmentController.isDirty(), appointmentController::saveToCSV, changed, saves);
+        saveIfDirty("prescriptions", prescriptionController.isDirty(), prescriptionController::saveToCSV, changed, saves);
+        saveIfDirty("referrals", referralController.isDirty(), referralController::saveToCSV, changed, saves);
+        saveIfDirty("staff", staffController.isDirty(), staffController::saveToCSV, changed, saves);
+
+        if (saves.isEmpty()) {
+            setStatus("No changes to save.");
             JOptionPane.showMessageDialog(this,
-                    "All data saved successfully.",
+                    "No changes to save.",
                     "Save Complete",
                     JOptionPane.INFORMATION_MESSAGE);
-        } catch (IOException e) {
-            setStatus("Error saving data: " + e.getMessage());
-            JOptionPane.showMessageDialog(this,
-                    "Error saving data: " + e.getMessage(),
-                    "Save Error",
-                    JOptionPane.ERROR_MESSAGE);
+            if (onSaved != null) {
+                onSaved.run();
+            }
+            return;
+        }
+
+        setStatus("Saving " + String.join(", ", changed) + "...");
+        setSaving(true);
+
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() {
+                CompletableFuture.allOf(saves.toArray(CompletableFuture<?>[]::new)).join();
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                setSaving(false);
+                try {
+                    get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    Throwable cause = rootCause(e.getCause());
+                    setStatus("Error saving data: " + cause.getMessage());
+                    JOptionPane.showMessageDialog(MainFrame.this,
+                            "Error saving data: " + cause.getMessage(),
+                            "Save Error",
+                            JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+
+                setStatus("Saved " + String.join(", ", changed) + ".");
+                JOptionPane.showMessageDialog(MainFrame.this,
+                        "Saved changes to " + String.join(", ", changed) + ".",
+                        "Save Complete",
+                        JOptionPane.INFORMATION_MESSAGE);
+                if (onSaved != null) {
+                    onSaved.run();
+                }
+            }
+        }.execute();
+    }
+
+    private void setSaving(boolean saving) {
+        // Reloading mid-save would replace the tables being written
+        loadDataItem.setEnabled(!saving);
+        saveDataItem.setEnabled(!saving);
+        exportDataItem.setEnabled(!saving);
+    }
+
+    /**
+     * Writes a plain CSV copy of every table, including unsaved changes, to the
+     * output folder. The data files are not touched, so this is how to get
+     * readable CSV files while binary snapshots are in use.
+     */
+    private void exportAllData() {
+        List<CompletableFuture<Void>> exports = new ArrayList<>();
+        exports.add(runAsync(patientController::exportToCSV));
+        exports.add(runAsync(clinicianController::exportToCSV));
+        exports.add(runAsync(facilityController::exportToCSV));
+        exports.add(runAsync(appointmentController::exportToCSV));
+        exports.add(runAsync(prescriptionController::exportToCSV));
+        exports.add(runAsync(referralController::exportToCSV));
+        exports.add(runAsync(staffController::exportToCSV));
+
+        setStatus("Exporting CSV copies...");
+        exportDataItem.setEnabled(false);
+
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() {
+                CompletableFuture.allOf(exports.toArray(CompletableFuture<?>[]::new)).join();
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                exportDataItem.setEnabled(!loading);
+                try {
+                    get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    Throwable cause = rootCause(e.getCause());
+                    setStatus("Error exporting data: " + cause.getMessage());
+                    JOptionPane.showMessageDialog(MainFrame.this,
+                            "Error exporting data: " + cause.getMessage(),
+                            "Export Error",
+                            JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+
+                setStatus("Exported CSV copies to the output folder.");
+                JOptionPane.showMessageDialog(MainFrame.this,
+                        "Exported a CSV copy of every table to the output folder.",
+                        "Export Complete",
+                        JOptionPane.INFORMATION_MESSAGE);
+            }
+        }.execute();
+    }
+
+    private void saveIfDirty(String name, boolean dirty, DataTask saver,
+                             List<String> changed, List<CompletableFuture<Void>> saves) {
+        if (dirty) {
+            changed.add(name);
+            saves.add(runAsync(saver));
         }
     }
 
-    private void refreshAllPanels() {
-        patientPanel.refreshData();
-        clinicianPanel.refreshData();
-        facilityPanel.refreshData();
-        appointmentPanel.refreshData();
-        prescriptionPanel.refreshData();
-        referralPanel.refreshData();
-        staffPanel.refreshData();
+    private static void setEnabledDeep(Component component, boolean enabled) {
+        component.setEnabled(enabled);
+        if (component instanceof Container) {
+            for (Component child : ((Container) component).getComponents()) {
+                setEnabledDeep(child, enabled);
+            }
+        }
     }
 
     public void setStatus(String message) {
@@ -198,14 +429,30 @@ public class MainFrame extends JFrame {
                 JOptionPane.YES_NO_CANCEL_OPTION);
 
         if (choice == JOptionPane.YES_OPTION) {
-            saveAllData();
-            System.exit(0);
+            // Exit only once every write has finished; stay open if the save failed
+            saveAllData(() -> {
+                awaitCompactions();
+                System.exit(0);
+            });
         } else if (choice == JOptionPane.NO_OPTION) {
+            // Let snapshots being rewritten from earlier saves finish
+            awaitCompactions();
             System.exit(0);
         }
         // Cancel - do nothing
     }
 
+    private void awaitCompactions() {
+        try {
+            ChangeJournal.awaitAllCompactions();
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this,
+                    e.getMessage() + "\nSaved changes are kept in the journal.",
+                    "Save Error",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     private void showAboutDialog() {
         JOptionPane.showMessageDialog(this,
                 "Healthcare Management System\n" +
@@ -224,6 +471,13 @@ public class MainFrame extends JFrame {
                 JOptionPane.INFORMATION_MESSAGE);
     }
 
+    /**
+     * A controller's CSV load or save operation.
+     */
+    private interface DataTask {
+        void run() throws IOException;
+    }
+
     // Getter methods for controllers (used by panels if needed)
     public PatientController getPatientController() {
         return patientController;
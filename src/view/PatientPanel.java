@@ -2,15 +2,12 @@ package view;
 
 import controller.FacilityController;
 import controller.PatientController;
-import model.Facility;
 import model.Patient;
 import view.dialogs.PatientDialog;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
-import java.util.List;
 
 /**
  * Panel for displaying and managing patients.
@@ -21,9 +18,12 @@ public class PatientPanel extends JPanel {
     private PatientController patientController;
     private FacilityController facilityController;
     private JTable patientTable;
-    private DefaultTableModel tableModel;
+    private EntityTableModel<Patient> tableModel;
     private JTextField searchField;
-    private TableRowSorter<DefaultTableModel> sorter;
+    private Timer searchTimer;
+    private TableRowSorter<EntityTableModel<Patient>> sorter;
+
+    private static final int SEARCH_DELAY_MS = 250;
 
     private static final String[] COLUMN_NAMES = {
             "ID", "First Name", "Last Name", "DOB", "NHS Number",
@@ -44,6 +44,10 @@ public class PatientPanel extends JPanel {
     private void createTopPanel() {
         JPanel topPanel = new JPanel(new BorderLayout(10, 0));
 
+        // Search once typing pauses rather than on every keystroke
+        searchTimer = new Timer(SEARCH_DELAY_MS, e -> filterTable());
+        searchTimer.setRepeats(false);
+
         JLabel titleLabel = new JLabel("Patient Management");
         titleLabel.setFont(new Font("Arial", Font.BOLD, 18));
         topPanel.add(titleLabel, BorderLayout.WEST);
@@ -53,7 +57,7 @@ public class PatientPanel extends JPanel {
         searchField = new JTextField(20);
         searchField.addKeyListener(new java.awt.event.KeyAdapter() {
             public void keyReleased(java.awt.event.KeyEvent evt) {
-                filterTable();
+                searchTimer.restart();
             }
         });
         searchPanel.add(searchField);
@@ -61,6 +65,7 @@ public class PatientPanel extends JPanel {
         JButton clearButton = new JButton("Clear");
         clearButton.addActionListener(e -> {
             searchField.setText("");
+            searchTimer.stop();
             filterTable();
         });
         searchPanel.add(clearButton);
@@ -70,12 +75,7 @@ public class PatientPanel extends JPanel {
     }
 
     private void createTablePanel() {
-        tableModel = new DefaultTableModel(COLUMN_NAMES, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        tableModel = new EntityTableModel<>(COLUMN_NAMES, this::getCellValue);
 
         patientTable = new JTable(tableModel);
         patientTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -139,36 +139,38 @@ public class PatientPanel extends JPanel {
         if (text.isEmpty()) {
             sorter.setRowFilter(null);
         } else {
-            sorter.setRowFilter(RowFilter.regexFilter("(?i)" + text));
+            sorter.setRowFilter(tableModel.createSearchFilter(text));
         }
     }
 
     public void refreshData() {
-        tableModel.setRowCount(0);
-        List<Patient> patients = patientController.getAllPatients();
-
-        for (Patient patient : patients) {
-            String gpSurgeryName = "";
-            if (patient.getGpSurgeryId() != null) {
-                Facility facility = facilityController.getFacilityById(patient.getGpSurgeryId());
-                if (facility != null) {
-                    gpSurgeryName = facility.getFacilityName();
-                }
-            }
+        tableModel.reload(patientController::getAllPatients, this::filterTable);
+    }
 
-            Object[] row = {
-                    patient.getPatientId(),
-                    patient.getFirstName(),
-                    patient.getLastName(),
-                    patient.getDateOfBirth() != null ? patient.getDateOfBirth().toString() : "",
-                    patient.getNhsNumber(),
-                    patient.getGender(),
-                    patient.getPhoneNumber(),
-                    patient.getEmail(),
-                    patient.getPostcode(),
-                    gpSurgeryName
-            };
-            tableModel.addRow(row);
+    private Object getCellValue(Patient patient, int column) {
+        switch (column) {
+            case 0:
+                return patient.getPatientId();
+            case 1:
+                return patient.getFirstName();
+            case 2:
+                return patient.getLastName();
+            case 3:
+                return patient.getDateOfBirth() != null ? patient.getDateOfBirth().toString() : "";
+            case 4:
+                return patient.getNhsNumber();
+            case 5:
+                return patient.getGender();
+            case 6:
+                return patient.getPhoneNumber();
+            case 7:
+                return patient.getEmail();
+            case 8:
+                return patient.getPostcode();
+            case 9:
+                return facilityController.getFacilityName(patient.getGpSurgeryId());
+            default:
+                return "";
         }
     }
 
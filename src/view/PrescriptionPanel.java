@@ -3,16 +3,13 @@ package view;
 import controller.ClinicianController;
 import controller.PatientController;
 import controller.PrescriptionController;
-import model.Clinician;
-import model.Patient;
 import model.Prescription;
 import view.dialogs.PrescriptionDialog;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
-import java.util.List;
+import java.io.IOException;
 
 /**
  * Panel for displaying and managing prescriptions.
@@ -24,10 +21,13 @@ public class PrescriptionPanel extends JPanel {
     private PatientController patientController;
     private ClinicianController clinicianController;
     private JTable prescriptionTable;
-    private DefaultTableModel tableModel;
+    private EntityTableModel<Prescription> tableModel;
     private JTextField searchField;
+    private Timer searchTimer;
     private JComboBox<String> statusFilterCombo;
-    private TableRowSorter<DefaultTableModel> sorter;
+    private TableRowSorter<EntityTableModel<Prescription>> sorter;
+
+    private static final int SEARCH_DELAY_MS = 250;
 
     private static final String[] COLUMN_NAMES = {
             "ID", "Date", "Patient", "Clinician", "Medication",
@@ -51,6 +51,10 @@ public class PrescriptionPanel extends JPanel {
     private void createTopPanel() {
         JPanel topPanel = new JPanel(new BorderLayout(10, 0));
 
+        // Search once typing pauses rather than on every keystroke
+        searchTimer = new Timer(SEARCH_DELAY_MS, e -> applyFilter());
+        searchTimer.setRepeats(false);
+
         JLabel titleLabel = new JLabel("Prescription Management");
         titleLabel.setFont(new Font("Arial", Font.BOLD, 18));
         topPanel.add(titleLabel, BorderLayout.WEST);
@@ -68,7 +72,7 @@ public class PrescriptionPanel extends JPanel {
         searchField = new JTextField(15);
         searchField.addKeyListener(new java.awt.event.KeyAdapter() {
             public void keyReleased(java.awt.event.KeyEvent evt) {
-                applyFilter();
+                searchTimer.restart();
             }
         });
         filterPanel.add(searchField);
@@ -76,6 +80,7 @@ public class PrescriptionPanel extends JPanel {
         JButton clearButton = new JButton("Clear");
         clearButton.addActionListener(e -> {
             searchField.setText("");
+            searchTimer.stop();
             statusFilterCombo.setSelectedIndex(0);
             applyFilter();
         });
@@ -86,12 +91,7 @@ public class PrescriptionPanel extends JPanel {
     }
 
     private void createTablePanel() {
-        tableModel = new DefaultTableModel(COLUMN_NAMES, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        tableModel = new EntityTableModel<>(COLUMN_NAMES, this::getCellValue);
 
         prescriptionTable = new JTable(tableModel);
         prescriptionTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -125,6 +125,9 @@ public class PrescriptionPanel extends JPanel {
         JButton collectButton = new JButton("Mark Collected");
         collectButton.addActionListener(e -> markCollected());
 
+        JButton noticeButton = new JButton("Notice Letter");
+        noticeButton.addActionListener(e -> generateNoticeLetter());
+
         JButton deleteButton = new JButton("Delete");
         deleteButton.addActionListener(e -> deletePrescription());
 
@@ -134,6 +137,7 @@ public class PrescriptionPanel extends JPanel {
         buttonPanel.add(addButton);
         buttonPanel.add(editButton);
         buttonPanel.add(collectButton);
+        buttonPanel.add(noticeButton);
         buttonPanel.add(deleteButton);
         buttonPanel.add(Box.createHorizontalStrut(20));
         buttonPanel.add(refreshButton);
@@ -142,20 +146,20 @@ public class PrescriptionPanel extends JPanel {
     }
 
     private void applyFilter() {
-        String searchText = searchField.getText().trim().toLowerCase();
+        String searchText = searchField.getText().trim();
         String statusFilter = (String) statusFilterCombo.getSelectedItem();
 
-        RowFilter<DefaultTableModel, Object> searchFilter = null;
-        RowFilter<DefaultTableModel, Object> statusRowFilter = null;
+        RowFilter<EntityTableModel<Prescription>, Integer> searchFilter = null;
+        RowFilter<EntityTableModel<Prescription>, Integer> statusRowFilter = null;
 
         if (!searchText.isEmpty()) {
-            searchFilter = RowFilter.regexFilter("(?i)" + searchText);
+            searchFilter = tableModel.createSearchFilter(searchText);
         }
 
         if (!"All".equals(statusFilter)) {
-            statusRowFilter = new RowFilter<DefaultTableModel, Object>() {
+            statusRowFilter = new RowFilter<EntityTableModel<Prescription>, Integer>() {
                 @Override
-                public boolean include(Entry<? extends DefaultTableModel, ? extends Object> entry) {
+                public boolean include(Entry<? extends EntityTableModel<Prescription>, ? extends Integer> entry) {
                     String status = entry.getStringValue(8);
                     return status.equalsIgnoreCase(statusFilter);
                 }
@@ -174,38 +178,31 @@ public class PrescriptionPanel extends JPanel {
     }
 
     public void refreshData() {
-        tableModel.setRowCount(0);
-        List<Prescription> prescriptions = prescriptionController.getAllPrescriptions();
-
-        for (Prescription prescription : prescriptions) {
-            String patientName = "";
-            if (prescription.getPatientId() != null) {
-                Patient patient = patientController.getPatientById(prescription.getPatientId());
-                if (patient != null) {
-                    patientName = patient.getFullName();
-                }
-            }
-
-            String clinicianName = "";
-            if (prescription.getClinicianId() != null) {
-                Clinician clinician = clinicianController.getClinicianById(prescription.getClinicianId());
-                if (clinician != null) {
-                    clinicianName = clinician.getTitle() + " " + clinician.getFullName();
-                }
-            }
+        tableModel.reload(prescriptionController::getAllPrescriptions, this::applyFilter);
+    }
 
-            Object[] row = {
-                    prescription.getPrescriptionId(),
-                    prescription.getPrescriptionDate() != null ? prescription.getPrescriptionDate().toString() : "",
-                    patientName,
-                    clinicianName,
-                    prescription.getMedicationName(),
-                    prescription.getDosage(),
-                    prescription.getFrequency(),
-                    prescription.getPharmacyName(),
-                    prescription.getStatus()
-            };
-            tableModel.addRow(row);
+    private Object getCellValue(Prescription prescription, int column) {
+        switch (column) {
+            case 0:
+                return prescription.getPrescriptionId();
+            case 1:
+                return prescription.getPrescriptionDate() != null ? prescription.getPrescriptionDate().toString() : "";
+            case 2:
+                return patientController.getPatientName(prescription.getPatientId());
+            case 3:
+                return clinicianController.getClinicianName(prescription.getClinicianId());
+            case 4:
+                return prescription.getMedicationName();
+            case 5:
+                return prescription.getDosage();
+            case 6:
+                return prescription.getFrequency();
+            case 7:
+                return prescription.getPharmacyName();
+            case 8:
+                return prescription.getStatus();
+            default:
+                return "";
         }
     }
 
@@ -278,6 +275,36 @@ public class PrescriptionPanel extends JPanel {
         }
     }
 
+    private void generateNoticeLetter() {
+        int selectedRow = prescriptionTable.getSelectedRow();
+        if (selectedRow < 0) {
+            JOptionPane.showMessageDialog(this,
+                    "Please select a prescription to generate a notice.",
+                    "No Selection",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        int modelRow = prescriptionTable.convertRowIndexToModel(selectedRow);
+        Prescription prescription = tableModel.getEntityAt(modelRow);
+
+        try {
+            String filePath = prescriptionController.generatePrescriptionNotice(prescription,
+                    patientController.getPatientById(prescription.getPatientId()),
+                    clinicianController.getClinicianById(prescription.getClinicianId()));
+
+            JOptionPane.showMessageDialog(this,
+                    "Prescription notice generated successfully!\n\nSaved to:\n" + filePath,
+                    "Letter Generated",
+                    JOptionPane.INFORMATION_MESSAGE);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this,
+                    "Error generating prescription notice: " + e.getMessage(),
+                    "Error",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     private void deletePrescription() {
         int selectedRow = prescriptionTable.getSelectedRow();
         if (selectedRow < 0) {
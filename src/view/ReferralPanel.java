@@ -8,14 +8,17 @@ import model.Clinician;
 import model.Facility;
 import model.Patient;
 import model.Referral;
+import model.ReferralLetterBatch;
 import view.dialogs.ReferralDialog;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.io.IOException;
-import java.util.List;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Panel for displaying and managing referrals.
@@ -28,11 +31,15 @@ public class ReferralPanel extends JPanel {
     private ClinicianController clinicianController;
     private FacilityController facilityController;
     private JTable referralTable;
-    private DefaultTableModel tableModel;
+    private EntityTableModel<Referral> tableModel;
     private JTextField searchField;
+    private Timer searchTimer;
     private JComboBox<String> statusFilterCombo;
     private JComboBox<String> urgencyFilterCombo;
-    private TableRowSorter<DefaultTableModel> sorter;
+    private TableRowSorter<EntityTableModel<Referral>> sorter;
+
+    private static final int SEARCH_DELAY_MS = 250;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
     private static final String[] COLUMN_NAMES = {
             "ID", "Date", "Patient", "From Clinician", "To Clinician",
@@ -58,6 +65,10 @@ public class ReferralPanel extends JPanel {
     private void createTopPanel() {
         JPanel topPanel = new JPanel(new BorderLayout(10, 0));
 
+        // Search once typing pauses rather than on every keystroke
+        searchTimer = new Timer(SEARCH_DELAY_MS, e -> applyFilter());
+        searchTimer.setRepeats(false);
+
         JLabel titleLabel = new JLabel("Referral Management (Singleton Pattern)");
         titleLabel.setFont(new Font("Arial", Font.BOLD, 18));
         topPanel.add(titleLabel, BorderLayout.WEST);
@@ -80,7 +91,7 @@ public class ReferralPanel extends JPanel {
         searchField = new JTextField(12);
         searchField.addKeyListener(new java.awt.event.KeyAdapter() {
             public void keyReleased(java.awt.event.KeyEvent evt) {
-                applyFilter();
+                searchTimer.restart();
             }
         });
         filterPanel.add(searchField);
@@ -88,6 +99,7 @@ public class ReferralPanel extends JPanel {
         JButton clearButton = new JButton("Clear");
         clearButton.addActionListener(e -> {
             searchField.setText("");
+            searchTimer.stop();
             statusFilterCombo.setSelectedIndex(0);
             urgencyFilterCombo.setSelectedIndex(0);
             applyFilter();
@@ -99,12 +111,7 @@ public class ReferralPanel extends JPanel {
     }
 
     private void createTablePanel() {
-        tableModel = new DefaultTableModel(COLUMN_NAMES, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        tableModel = new EntityTableModel<>(COLUMN_NAMES, this::getCellValue);
 
         referralTable = new JTable(tableModel);
         referralTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -135,9 +142,15 @@ public class ReferralPanel extends JPanel {
         JButton viewButton = new JButton("View Details");
         viewButton.addActionListener(e -> viewReferralDetails());
 
+        JButton triageButton = new JButton("Triage Next");
+        triageButton.addActionListener(e -> triageNextReferral());
+
         JButton generateEmailButton = new JButton("Generate Referral Letter");
         generateEmailButton.addActionListener(e -> generateReferralLetter());
 
+        JButton batchLettersButton = new JButton("Batch Letters");
+        batchLettersButton.addActionListener(e -> generateBatchLetters());
+
         JButton updateStatusButton = new JButton("Update Status");
         updateStatusButton.addActionListener(e -> updateStatus());
 
@@ -149,7 +162,9 @@ public class ReferralPanel extends JPanel {
 
         buttonPanel.add(addButton);
         buttonPanel.add(viewButton);
+        buttonPanel.add(triageButton);
         buttonPanel.add(generateEmailButton);
+        buttonPanel.add(batchLettersButton);
         buttonPanel.add(updateStatusButton);
         buttonPanel.add(deleteButton);
         buttonPanel.add(Box.createHorizontalStrut(20));
@@ -159,25 +174,21 @@ public class ReferralPanel extends JPanel {
     }
 
     private void applyFilter() {
-        String searchText = searchField.getText().trim().toLowerCase();
+        String searchText = searchField.getText().trim();
         String statusFilter = (String) statusFilterCombo.getSelectedItem();
         String urgencyFilter = (String) urgencyFilterCombo.getSelectedItem();
+        RowFilter<EntityTableModel<Referral>, Integer> searchFilter =
+                searchText.isEmpty() ? null : tableModel.createSearchFilter(searchText);
 
-        RowFilter<DefaultTableModel, Object> combinedFilter = new RowFilter<DefaultTableModel, Object>() {
+        RowFilter<EntityTableModel<Referral>, Integer> combinedFilter = new RowFilter<EntityTableModel<Referral>, Integer>() {
             @Override
-            public boolean include(Entry<? extends DefaultTableModel, ? extends Object> entry) {
+            public boolean include(Entry<? extends EntityTableModel<Referral>, ? extends Integer> entry) {
                 boolean matchesSearch = true;
                 boolean matchesStatus = true;
                 boolean matchesUrgency = true;
 
-                if (!searchText.isEmpty()) {
-                    matchesSearch = false;
-                    for (int i = 0; i < entry.getValueCount(); i++) {
-                        if (entry.getStringValue(i).toLowerCase().contains(searchText)) {
-                            matchesSearch = true;
-                            break;
-                        }
-                    }
+                if (searchFilter != null) {
+                    matchesSearch = searchFilter.include(entry);
                 }
 
                 if (!"All".equals(statusFilter)) {
@@ -196,45 +207,29 @@ public class ReferralPanel extends JPanel {
     }
 
     public void refreshData() {
-        tableModel.setRowCount(0);
-        List<Referral> referrals = referralController.getAllReferrals();
-
-        for (Referral referral : referrals) {
-            String patientName = "";
-            if (referral.getPatientId() != null) {
-                Patient patient = patientController.getPatientById(referral.getPatientId());
-                if (patient != null) {
-                    patientName = patient.getFullName();
-                }
-            }
-
-            String fromClinician = "";
-            if (referral.getReferringClinicianId() != null) {
-                Clinician clinician = clinicianController.getClinicianById(referral.getReferringClinicianId());
-                if (clinician != null) {
-                    fromClinician = clinician.getTitle() + " " + clinician.getLastName();
-                }
-            }
-
-            String toClinician = "";
-            if (referral.getReferredToClinicianId() != null) {
-                Clinician clinician = clinicianController.getClinicianById(referral.getReferredToClinicianId());
-                if (clinician != null) {
-                    toClinician = clinician.getTitle() + " " + clinician.getLastName();
-                }
-            }
+        tableModel.reload(referralController::getAllReferrals, this::applyFilter);
+    }
 
-            Object[] row = {
-                    referral.getReferralId(),
-                    referral.getReferralDate() != null ? referral.getReferralDate().toString() : "",
-                    patientName,
-                    fromClinician,
-                    toClinician,
-                    referral.getUrgencyLevel(),
-                    referral.getReferralReason(),
-                    referral.getStatus()
-            };
-            tableModel.addRow(row);
+    private Object getCellValue(Referral referral, int column) {
+        switch (column) {
+            case 0:
+                return referral.getReferralId();
+            case 1:
+                return referral.getReferralDate() != null ? referral.getReferralDate().toString() : "";
+            case 2:
+                return patientController.getPatientName(referral.getPatientId());
+            case 3:
+                return clinicianController.getClinicianShortName(referral.getReferringClinicianId());
+            case 4:
+                return clinicianController.getClinicianShortName(referral.getReferredToClinicianId());
+            case 5:
+                return referral.getUrgencyLevel();
+            case 6:
+                return referral.getReferralReason();
+            case 7:
+                return referral.getStatus();
+            default:
+                return "";
         }
     }
 
@@ -270,70 +265,89 @@ public class ReferralPanel extends JPanel {
         Referral referral = referralController.getReferralById(referralId);
 
         if (referral != null) {
-            Patient patient = patientController.getPatientById(referral.getPatientId());
-            Clinician fromClinician = clinicianController.getClinicianById(referral.getReferringClinicianId());
-            Clinician toClinician = clinicianController.getClinicianById(referral.getReferredToClinicianId());
-            Facility fromFacility = facilityController.getFacilityById(referral.getReferringFacilityId());
-            Facility toFacility = facilityController.getFacilityById(referral.getReferredToFacilityId());
-
-            StringBuilder details = new StringBuilder();
-            details.append("REFERRAL DETAILS\n");
-            details.append("================\n\n");
-            details.append("Referral ID: ").append(referral.getReferralId()).append("\n");
-            details.append("Date: ").append(referral.getReferralDate()).append("\n");
-            details.append("Urgency: ").append(referral.getUrgencyLevel()).append("\n");
-            details.append("Status: ").append(referral.getStatus()).append("\n\n");
-
-            details.append("PATIENT\n");
-            details.append("-------\n");
-            if (patient != null) {
-                details.append("Name: ").append(patient.getFullName()).append("\n");
-                details.append("NHS Number: ").append(patient.getNhsNumber()).append("\n");
-            }
-            details.append("\n");
+            showReferralDetails(referral, "Referral Details - " + referral.getReferralId());
+        }
+    }
 
-            details.append("REFERRING CLINICIAN\n");
-            details.append("-------------------\n");
-            if (fromClinician != null) {
-                details.append("Name: ").append(fromClinician.getFullName()).append("\n");
-            }
-            if (fromFacility != null) {
-                details.append("Facility: ").append(fromFacility.getFacilityName()).append("\n");
-            }
-            details.append("\n");
+    private void triageNextReferral() {
+        Referral referral = referralController.takeNextForTriage();
+        if (referral == null) {
+            JOptionPane.showMessageDialog(this,
+                    "No referrals are waiting for triage.",
+                    "Triage",
+                    JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
 
-            details.append("REFERRED TO\n");
-            details.append("-----------\n");
-            if (toClinician != null) {
-                details.append("Name: ").append(toClinician.getFullName()).append("\n");
-                details.append("Speciality: ").append(toClinician.getSpeciality()).append("\n");
-            }
-            if (toFacility != null) {
-                details.append("Facility: ").append(toFacility.getFacilityName()).append("\n");
-            }
-            details.append("\n");
-
-            details.append("CLINICAL INFORMATION\n");
-            details.append("--------------------\n");
-            details.append("Reason: ").append(referral.getReferralReason()).append("\n\n");
-            details.append("Clinical Summary:\n").append(referral.getClinicalSummary()).append("\n\n");
-            details.append("Requested Investigations: ").append(referral.getRequestedInvestigations()).append("\n");
-            if (referral.getNotes() != null && !referral.getNotes().isEmpty()) {
-                details.append("\nNotes: ").append(referral.getNotes()).append("\n");
-            }
+        refreshData();
+        showReferralDetails(referral, "Triage - " + referral.getReferralId() + " (now In Progress, "
+                + referralController.getTriageBacklog() + " still waiting)");
+    }
 
-            JTextArea textArea = new JTextArea(details.toString());
-            textArea.setEditable(false);
-            textArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-            textArea.setCaretPosition(0);
+    private void showReferralDetails(Referral referral, String title) {
+        Patient patient = patientController.getPatientById(referral.getPatientId());
+        Clinician fromClinician = clinicianController.getClinicianById(referral.getReferringClinicianId());
+        Clinician toClinician = clinicianController.getClinicianById(referral.getReferredToClinicianId());
+        Facility fromFacility = facilityController.getFacilityById(referral.getReferringFacilityId());
+        Facility toFacility = facilityController.getFacilityById(referral.getReferredToFacilityId());
+
+        StringBuilder details = new StringBuilder();
+        details.append("REFERRAL DETAILS\n");
+        details.append("================\n\n");
+        details.append("Referral ID: ").append(referral.getReferralId()).append("\n");
+        details.append("Date: ").append(referral.getReferralDate()).append("\n");
+        details.append("Urgency: ").append(referral.getUrgencyLevel()).append("\n");
+        details.append("Status: ").append(referral.getStatus()).append("\n\n");
+
+        details.append("PATIENT\n");
+        details.append("-------\n");
+        if (patient != null) {
+            details.append("Name: ").append(patient.getFullName()).append("\n");
+            details.append("NHS Number: ").append(patient.getNhsNumber()).append("\n");
+        }
+        details.append("\n");
 
-            JScrollPane scrollPane = new JScrollPane(textArea);
-            scrollPane.setPreferredSize(new Dimension(500, 400));
+        details.append("REFERRING CLINICIAN\n");
+        details.append("-------------------\n");
+        if (fromClinician != null) {
+            details.append("Name: ").append(fromClinician.getFullName()).append("\n");
+        }
+        if (fromFacility != null) {
+            details.append("Facility: ").append(fromFacility.getFacilityName()).append("\n");
+        }
+        details.append("\n");
 
-            JOptionPane.showMessageDialog(this, scrollPane,
-                    "Referral Details - " + referral.getReferralId(),
-                    JOptionPane.INFORMATION_MESSAGE);
+        details.append("REFERRED TO\n");
+        details.append("-----------\n");
+        if (toClinician != null) {
+            details.append("Name: ").append(toClinician.getFullName()).append("\n");
+            details.append("Speciality: ").append(toClinician.getSpeciality()).append("\n");
+        }
+        if (toFacility != null) {
+            details.append("Facility: ").append(toFacility.getFacilityName()).append("\n");
         }
+        details.append("\n");
+
+        details.append("CLINICAL INFORMATION\n");
+        details.append("--------------------\n");
+        details.append("Reason: ").append(referral.getReferralReason()).append("\n\n");
+        details.append("Clinical Summary:\n").append(referral.getClinicalSummary()).append("\n\n");
+        details.append("Requested Investigations: ").append(referral.getRequestedInvestigations()).append("\n");
+        if (referral.getNotes() != null && !referral.getNotes().isEmpty()) {
+            details.append("\nNotes: ").append(referral.getNotes()).append("\n");
+        }
+
+        JTextArea textArea = new JTextArea(details.toString());
+        textArea.setEditable(false);
+        textArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        textArea.setCaretPosition(0);
+
+        JScrollPane scrollPane = new JScrollPane(textArea);
+        scrollPane.setPreferredSize(new Dimension(500, 400));
+
+        JOptionPane.showMessageDialog(this, scrollPane,
+                title,
+                JOptionPane.INFORMATION_MESSAGE);
     }
 
     private void generateReferralLetter() {
@@ -374,6 +388,84 @@ public class ReferralPanel extends JPanel {
         }
     }
 
+    private void generateBatchLetters() {
+        JComboBox<String> statusCombo = new JComboBox<>(new String[]{"New", "Pending", "In Progress", "Completed", "All"});
+        JTextField fromField = new JTextField(10);
+        JTextField toField = new JTextField(10);
+        JCheckBox archiveCheckBox = new JCheckBox("Write a single ZIP archive", true);
+
+        JPanel optionsPanel = new JPanel(new GridLayout(0, 2, 5, 5));
+        optionsPanel.add(new JLabel("Status:"));
+        optionsPanel.add(statusCombo);
+        optionsPanel.add(new JLabel("From date (YYYY-MM-DD, optional):"));
+        optionsPanel.add(fromField);
+        optionsPanel.add(new JLabel("To date (YYYY-MM-DD, optional):"));
+        optionsPanel.add(toField);
+        optionsPanel.add(new JLabel());
+        optionsPanel.add(archiveCheckBox);
+
+        int choice = JOptionPane.showConfirmDialog(this, optionsPanel,
+                "Batch Referral Letters",
+                JOptionPane.OK_CANCEL_OPTION,
+                JOptionPane.PLAIN_MESSAGE);
+        if (choice != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        String status = (String) statusCombo.getSelectedItem();
+        LocalDate from;
+        LocalDate to;
+        try {
+            from = parseOptionalDate(fromField.getText());
+            to = parseOptionalDate(toField.getText());
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(this,
+                    "Invalid date format. Please use YYYY-MM-DD.",
+                    "Validation Error",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        boolean singleArchive = archiveCheckBox.isSelected();
+        ReferralLetterBatch batch = new ReferralLetterBatch(patientController::getPatientById,
+                clinicianController::getClinicianById, facilityController::getFacilityById);
+
+        // Thousands of letters take a while, so keep the UI responsive
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        new SwingWorker<ReferralLetterBatch.Result, Void>() {
+            @Override
+            protected ReferralLetterBatch.Result doInBackground() throws IOException {
+                return referralController.generateReferralLetters(batch,
+                        "All".equals(status) ? null : status, from, to, singleArchive);
+            }
+
+            @Override
+            protected void done() {
+                setCursor(Cursor.getDefaultCursor());
+                try {
+                    ReferralLetterBatch.Result result = get();
+                    JOptionPane.showMessageDialog(ReferralPanel.this,
+                            String.format("Generated %d referral letters in %.1f s (%.0f letters/s).%n%nSaved to:%n%s",
+                                    result.getLetterCount(), result.getElapsedMillis() / 1000.0,
+                                    result.getLettersPerSecond(), result.getOutputPath()),
+                            "Letters Generated",
+                            JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    JOptionPane.showMessageDialog(ReferralPanel.this,
+                            "Error generating referral letters: " + e.getCause().getMessage(),
+                            "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    private LocalDate parseOptionalDate(String text) {
+        String trimmed = text.trim();
+        return trimmed.isEmpty() ? null : LocalDate.parse(trimmed, DATE_FORMAT);
+    }
+
     private void updateStatus() {
         int selectedRow = referralTable.getSelectedRow();
         if (selectedRow < 0) {
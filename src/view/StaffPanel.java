@@ -6,10 +6,8 @@ import model.Facility;
 import model.Staff;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
-import java.util.List;
 
 /**
  * Panel for displaying and managing non-clinical staff.
@@ -20,10 +18,13 @@ public class StaffPanel extends JPanel {
     private StaffController staffController;
     private FacilityController facilityController;
     private JTable staffTable;
-    private DefaultTableModel tableModel;
+    private EntityTableModel<Staff> tableModel;
     private JTextField searchField;
+    private Timer searchTimer;
     private JComboBox<String> roleFilterCombo;
-    private TableRowSorter<DefaultTableModel> sorter;
+    private TableRowSorter<EntityTableModel<Staff>> sorter;
+
+    private static final int SEARCH_DELAY_MS = 250;
 
     private static final String[] COLUMN_NAMES = {
             "ID", "First Name", "Last Name", "Role", "Department",
@@ -44,6 +45,10 @@ public class StaffPanel extends JPanel {
     private void createTopPanel() {
         JPanel topPanel = new JPanel(new BorderLayout(10, 0));
 
+        // Search once typing pauses rather than on every keystroke
+        searchTimer = new Timer(SEARCH_DELAY_MS, e -> applyFilter());
+        searchTimer.setRepeats(false);
+
         JLabel titleLabel = new JLabel("Staff Management");
         titleLabel.setFont(new Font("Arial", Font.BOLD, 18));
         topPanel.add(titleLabel, BorderLayout.WEST);
@@ -66,7 +71,7 @@ public class StaffPanel extends JPanel {
         searchField = new JTextField(15);
         searchField.addKeyListener(new java.awt.event.KeyAdapter() {
             public void keyReleased(java.awt.event.KeyEvent evt) {
-                applyFilter();
+                searchTimer.restart();
             }
         });
         filterPanel.add(searchField);
@@ -74,6 +79,7 @@ public class StaffPanel extends JPanel {
         JButton clearButton = new JButton("Clear");
         clearButton.addActionListener(e -> {
             searchField.setText("");
+            searchTimer.stop();
             roleFilterCombo.setSelectedIndex(0);
             applyFilter();
         });
@@ -84,12 +90,7 @@ public class StaffPanel extends JPanel {
     }
 
     private void createTablePanel() {
-        tableModel = new DefaultTableModel(COLUMN_NAMES, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        tableModel = new EntityTableModel<>(COLUMN_NAMES, this::getCellValue);
 
         staffTable = new JTable(tableModel);
         staffTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -140,21 +141,21 @@ public class StaffPanel extends JPanel {
     }
 
     private void applyFilter() {
-        String searchText = searchField.getText().trim().toLowerCase();
+        String searchText = searchField.getText().trim();
         String filterRole = (String) roleFilterCombo.getSelectedItem();
 
-        RowFilter<DefaultTableModel, Object> searchFilter = null;
-        RowFilter<DefaultTableModel, Object> roleFilter = null;
+        RowFilter<EntityTableModel<Staff>, Integer> searchFilter = null;
+        RowFilter<EntityTableModel<Staff>, Integer> roleFilter = null;
 
         if (!searchText.isEmpty()) {
-            searchFilter = RowFilter.regexFilter("(?i)" + searchText);
+            searchFilter = tableModel.createSearchFilter(searchText);
         }
 
         if (!"All".equals(filterRole)) {
             final String role = filterRole;
-            roleFilter = new RowFilter<DefaultTableModel, Object>() {
+            roleFilter = new RowFilter<EntityTableModel<Staff>, Integer>() {
                 @Override
-                public boolean include(Entry<? extends DefaultTableModel, ? extends Object> entry) {
+                public boolean include(Entry<? extends EntityTableModel<Staff>, ? extends Integer> entry) {
                     String entryRole = entry.getStringValue(3);
                     return entryRole.equalsIgnoreCase(role);
                 }
@@ -173,30 +174,31 @@ public class StaffPanel extends JPanel {
     }
 
     public void refreshData() {
-        tableModel.setRowCount(0);
-        List<Staff> staffList = staffController.getAllStaff();
-
-        for (Staff staff : staffList) {
-            String facilityName = "";
-            if (staff.getFacilityId() != null) {
-                Facility facility = facilityController.getFacilityById(staff.getFacilityId());
-                if (facility != null) {
-                    facilityName = facility.getFacilityName();
-                }
-            }
+        tableModel.reload(staffController::getAllStaff, this::applyFilter);
+    }
 
-            Object[] row = {
-                    staff.getStaffId(),
-                    staff.getFirstName(),
-                    staff.getLastName(),
-                    staff.getRole(),
-                    staff.getDepartment(),
-                    facilityName,
-                    staff.getPhoneNumber(),
-                    staff.getEmail(),
-                    staff.getEmploymentStatus()
-            };
-            tableModel.addRow(row);
+    private Object getCellValue(Staff staff, int column) {
+        switch (column) {
+            case 0:
+                return staff.getStaffId();
+            case 1:
+                return staff.getFirstName();
+            case 2:
+                return staff.getLastName();
+            case 3:
+                return staff.getRole();
+            case 4:
+                return staff.getDepartment();
+            case 5:
+                return facilityController.getFacilityName(staff.getFacilityId());
+            case 6:
+                return staff.getPhoneNumber();
+            case 7:
+                return staff.getEmail();
+            case 8:
+                return staff.getEmploymentStatus();
+            default:
+                return "";
         }
     }
 
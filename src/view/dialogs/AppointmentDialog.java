@@ -1,6 +1,8 @@
 package view.dialogs;
 
+import controller.AppointmentConflictException;
 import controller.AppointmentController;
+import controller.AppointmentScheduler;
 import controller.ClinicianController;
 import controller.FacilityController;
 import controller.PatientController;
@@ -12,10 +14,13 @@ import model.Patient;
 import javax.swing.*;
 import java.awt.*;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Dialog for adding or editing an appointment.
@@ -26,7 +31,9 @@ public class AppointmentDialog extends JDialog {
     private PatientController patientController;
     private ClinicianController clinicianController;
     private FacilityController facilityController;
+    private AppointmentScheduler scheduler;
     private Appointment appointment;
+    private String newAppointmentId;
     private boolean saved = false;
 
     private JComboBox<PatientItem> patientCombo;
@@ -42,6 +49,8 @@ public class AppointmentDialog extends JDialog {
 
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+    private static final String ANY = "Any";
+    private static final int MAX_SLOT_SUGGESTIONS = 10;
 
     public AppointmentDialog(Frame parent, String title, Appointment appointment,
                              AppointmentController appointmentController,
@@ -54,6 +63,7 @@ public class AppointmentDialog extends JDialog {
         this.patientController = patientController;
         this.clinicianController = clinicianController;
         this.facilityController = facilityController;
+        this.scheduler = new AppointmentScheduler(appointmentController, clinicianController, facilityController);
 
         initComponents();
         if (appointment != null) {
@@ -167,12 +177,15 @@ public class AppointmentDialog extends JDialog {
 
         // Buttons
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        JButton findSlotButton = new JButton("Find Slot");
         JButton saveButton = new JButton("Save");
         JButton cancelButton = new JButton("Cancel");
 
+        findSlotButton.addActionListener(e -> findSlot());
         saveButton.addActionListener(e -> saveAppointment());
         cancelButton.addActionListener(e -> dispose());
 
+        buttonPanel.add(findSlotButton);
         buttonPanel.add(saveButton);
         buttonPanel.add(cancelButton);
         add(buttonPanel, BorderLayout.SOUTH);
@@ -277,38 +290,175 @@ public class AppointmentDialog extends JDialog {
             return;
         }
 
-        if (appointment == null) {
-            appointment = new Appointment();
-            appointment.setAppointmentId(appointmentController.getNextAppointmentId());
-            appointment.setCreatedDate(LocalDate.now());
-        }
-
         PatientItem selectedPatient = (PatientItem) patientCombo.getSelectedItem();
         ClinicianItem selectedClinician = (ClinicianItem) clinicianCombo.getSelectedItem();
         FacilityItem selectedFacility = (FacilityItem) facilityCombo.getSelectedItem();
+        int duration = (Integer) durationSpinner.getValue();
+        String status = (String) statusCombo.getSelectedItem();
 
-        appointment.setPatientId(selectedPatient.getPatient().getPatientId());
-        appointment.setClinicianId(selectedClinician.getClinician().getClinicianId());
-        appointment.setFacilityId(selectedFacility.getFacility().getFacilityId());
-        appointment.setAppointmentDate(date);
-        appointment.setAppointmentTime(time);
-        appointment.setDurationMinutes((Integer) durationSpinner.getValue());
-        appointment.setAppointmentType((String) typeCombo.getSelectedItem());
-        appointment.setStatus((String) statusCombo.getSelectedItem());
-        appointment.setReasonForVisit(reasonField.getText().trim());
-        appointment.setNotes(notesArea.getText().trim());
-        appointment.setLastModified(LocalDate.now());
-
-        if (appointmentController.getAppointmentById(appointment.getAppointmentId()) != null) {
-            appointmentController.updateAppointment(appointment);
+        // Fill in a copy, so the stored appointment is untouched if the change is rejected
+        Appointment edited = new Appointment();
+        if (appointment != null) {
+            edited.setAppointmentId(appointment.getAppointmentId());
+            edited.setCreatedDate(appointment.getCreatedDate());
         } else {
-            appointmentController.addAppointment(appointment);
+            if (newAppointmentId == null) {
+                newAppointmentId = appointmentController.getNextAppointmentId();
+            }
+            edited.setAppointmentId(newAppointmentId);
+            edited.setCreatedDate(LocalDate.now());
         }
 
+        edited.setPatientId(selectedPatient.getPatient().getPatientId());
+        edited.setClinicianId(selectedClinician.getClinician().getClinicianId());
+        edited.setFacilityId(selectedFacility.getFacility().getFacilityId());
+        edited.setAppointmentDate(date);
+        edited.setAppointmentTime(time);
+        edited.setDurationMinutes(duration);
+        edited.setAppointmentType((String) typeCombo.getSelectedItem());
+        edited.setStatus(status);
+        edited.setReasonForVisit(reasonField.getText().trim());
+        edited.setNotes(notesArea.getText().trim());
+        edited.setLastModified(LocalDate.now());
+
+        try {
+            if (appointmentController.getAppointmentById(edited.getAppointmentId()) != null) {
+                appointmentController.updateAppointment(edited);
+            } else {
+                appointmentController.addAppointment(edited);
+            }
+        } catch (AppointmentConflictException e) {
+            showConflicts(e.getConflicts());
+            return;
+        }
+
+        appointment = edited;
         saved = true;
         dispose();
     }
 
+    private void findSlot() {
+        ClinicianItem selectedClinician = (ClinicianItem) clinicianCombo.getSelectedItem();
+        PatientItem selectedPatient = (PatientItem) patientCombo.getSelectedItem();
+
+        Set<String> specialities = new TreeSet<>();
+        for (int i = 0; i < clinicianCombo.getItemCount(); i++) {
+            specialities.add(clinicianCombo.getItemAt(i).getClinician().getSpeciality());
+        }
+        JComboBox<String> specialityCombo = new JComboBox<>();
+        specialityCombo.addItem(ANY);
+        for (String speciality : specialities) {
+            specialityCombo.addItem(speciality);
+        }
+        if (selectedClinician != null) {
+            specialityCombo.setSelectedItem(selectedClinician.getClinician().getSpeciality());
+        }
+
+        JComboBox<Object> facilitySearchCombo = new JComboBox<>();
+        facilitySearchCombo.addItem(ANY);
+        for (int i = 0; i < facilityCombo.getItemCount(); i++) {
+            facilitySearchCombo.addItem(facilityCombo.getItemAt(i));
+        }
+        JSpinner weeksSpinner = new JSpinner(new SpinnerNumberModel(2, 1, 12, 1));
+
+        JPanel optionsPanel = new JPanel(new GridLayout(0, 2, 5, 5));
+        optionsPanel.add(new JLabel("Speciality:"));
+        optionsPanel.add(specialityCombo);
+        optionsPanel.add(new JLabel("Facility:"));
+        optionsPanel.add(facilitySearchCombo);
+        optionsPanel.add(new JLabel("Weeks ahead:"));
+        optionsPanel.add(weeksSpinner);
+
+        int choice = JOptionPane.showConfirmDialog(this, optionsPanel,
+                "Find Slot",
+                JOptionPane.OK_CANCEL_OPTION,
+                JOptionPane.PLAIN_MESSAGE);
+        if (choice != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        // Search from the date already entered, if any, but never from the past
+        LocalDateTime from = LocalDateTime.now();
+        try {
+            LocalDate enteredDate = LocalDate.parse(dateField.getText().trim(), DATE_FORMAT);
+            if (enteredDate.atStartOfDay().isAfter(from)) {
+                from = enteredDate.atStartOfDay();
+            }
+        } catch (DateTimeParseException e) {
+            // No date entered yet, so search from now
+        }
+
+        String speciality = ANY.equals(specialityCombo.getSelectedItem()) ? null : (String) specialityCombo.getSelectedItem();
+        Object facility = facilitySearchCombo.getSelectedItem();
+        String facilityId = facility instanceof FacilityItem ? ((FacilityItem) facility).getFacility().getFacilityId() : null;
+        String patientId = selectedPatient != null ? selectedPatient.getPatient().getPatientId() : null;
+
+        // The appointment being edited gives up its own time, so that time can be offered again
+        String editedId = appointment != null ? appointment.getAppointmentId() : null;
+        List<AppointmentScheduler.Slot> slots = scheduler.findEarliestSlots(speciality, facilityId, patientId, editedId,
+                from, (Integer) weeksSpinner.getValue() * 7, (Integer) durationSpinner.getValue(), MAX_SLOT_SUGGESTIONS);
+        if (slots.isEmpty()) {
+            JOptionPane.showMessageDialog(this,
+                    "No free slots were found. Try another speciality or search further ahead.",
+                    "Find Slot",
+                    JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        String[] descriptions = new String[slots.size()];
+        for (int i = 0; i < slots.size(); i++) {
+            AppointmentScheduler.Slot slot = slots.get(i);
+            descriptions[i] = slot.getDate().format(DATE_FORMAT) + " " + slot.getTime().format(TIME_FORMAT) + "  "
+                    + slot.getClinician().getTitle() + " " + slot.getClinician().getFullName()
+                    + " (" + slot.getClinician().getSpeciality() + ") - " + slot.getFacility().getFacilityName();
+        }
+        JList<String> slotList = new JList<>(descriptions);
+        slotList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        slotList.setSelectedIndex(0);
+
+        choice = JOptionPane.showConfirmDialog(this, new JScrollPane(slotList),
+                "Choose a Slot",
+                JOptionPane.OK_CANCEL_OPTION,
+                JOptionPane.PLAIN_MESSAGE);
+        if (choice == JOptionPane.OK_OPTION && slotList.getSelectedIndex() >= 0) {
+            applySlot(slots.get(slotList.getSelectedIndex()));
+        }
+    }
+
+    private void applySlot(AppointmentScheduler.Slot slot) {
+        for (int i = 0; i < clinicianCombo.getItemCount(); i++) {
+            if (clinicianCombo.getItemAt(i).getClinician().getClinicianId().equals(slot.getClinician().getClinicianId())) {
+                clinicianCombo.setSelectedIndex(i);
+                break;
+            }
+        }
+        for (int i = 0; i < facilityCombo.getItemCount(); i++) {
+            if (facilityCombo.getItemAt(i).getFacility().getFacilityId().equals(slot.getFacility().getFacilityId())) {
+                facilityCombo.setSelectedIndex(i);
+                break;
+            }
+        }
+        dateField.setText(slot.getDate().format(DATE_FORMAT));
+        timeField.setText(slot.getTime().format(TIME_FORMAT));
+    }
+
+    private void showConflicts(List<Appointment> conflicts) {
+        StringBuilder message = new StringBuilder("This time clashes with existing appointments:\n\n");
+        for (Appointment conflict : conflicts) {
+            LocalTime start = conflict.getAppointmentTime();
+            message.append(conflict.getAppointmentId()).append("  ")
+                    .append(start.format(TIME_FORMAT)).append("-")
+                    .append(start.plusMinutes(conflict.getDurationMinutes()).format(TIME_FORMAT)).append("  ")
+                    .append(clinicianController.getClinicianShortName(conflict.getClinicianId())).append(" with ")
+                    .append(patientController.getPatientName(conflict.getPatientId())).append("\n");
+        }
+        message.append("\nPlease choose another time.");
+        JOptionPane.showMessageDialog(this,
+                message.toString(),
+                "Double Booking",
+                JOptionPane.ERROR_MESSAGE);
+    }
+
     public boolean isSaved() {
         return saved;
     }